@@ -0,0 +1,19 @@
+package sudoku;
+
+/**
+ * Both diagonals of the grid must contain every number exactly once
+ * (Sudoku X).
+ */
+public final class DiagonalConstraint implements SudokuConstraint {
+
+	@Override
+	public int[][] getUnits(final int layoutSize) {
+		final int[][] units = new int[2][layoutSize];
+		for (int i = 0; i < layoutSize; i++) {
+			units[0][i] = i * layoutSize + i;
+			units[1][i] = i * layoutSize + (layoutSize - 1 - i);
+		}
+
+		return units;
+	}
+}
@@ -0,0 +1,50 @@
+package sudoku;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Irregular regions replace the standard sectors (Jigsaw Sudoku).
+ */
+public final class JigsawConstraint implements SudokuConstraint {
+
+	/**
+	 * Region [0 - size-1] of every cell in row order.
+	 */
+	private final int[] regions;
+
+	/**
+	 * Create a jigsaw constraint.
+	 *
+	 * @param regions
+	 *            region [0 - size-1] of every cell in row order
+	 */
+	public JigsawConstraint(final @NonNull int[] regions) {
+		this.regions = regions.clone();
+	}
+
+	@Override
+	public int[][] getRegions(final int layoutSize) {
+		if (regions.length != layoutSize * layoutSize)
+			throw new IllegalArgumentException("regions must contain " + (layoutSize * layoutSize) + " cells");
+
+		final int[][] result = new int[layoutSize][layoutSize];
+		final int[] numCells = new int[layoutSize];
+		for (int cell = 0; cell < regions.length; cell++) {
+			int region = regions[cell];
+			if (region < 0 || region >= layoutSize)
+				throw new IndexOutOfBoundsException("region has to be between 0 and " + (layoutSize - 1));
+
+			if (numCells[region] == layoutSize)
+				throw new IllegalArgumentException("region " + region + " must contain " + layoutSize + " cells");
+
+			result[region][numCells[region]++] = cell;
+		}
+
+		for (int region = 0; region < layoutSize; region++) {
+			if (numCells[region] != layoutSize)
+				throw new IllegalArgumentException("region " + region + " must contain " + layoutSize + " cells");
+		}
+
+		return result;
+	}
+}
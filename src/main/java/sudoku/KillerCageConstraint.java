@@ -0,0 +1,166 @@
+package sudoku;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Cages whose cells contain different numbers that add up to the sum of the
+ * cage (Killer Sudoku). For every cage all sets of numbers with the right
+ * size and sum are calculated once as bit masks; while solving, only the
+ * numbers of sets that still fit the options of the cage remain options.
+ */
+public final class KillerCageConstraint implements SudokuConstraint {
+
+	/**
+	 * Collect all sets of numbers of a cage as bit masks.
+	 *
+	 * @param combinations
+	 * @param value
+	 *            smallest number that can be added
+	 * @param maxValue
+	 * @param remainingCells
+	 * @param remainingSum
+	 * @param mask
+	 *            numbers added so far
+	 */
+	private static void collectCombinations(final @NonNull List<Integer> combinations, final int value,
+			final int maxValue, final int remainingCells, final int remainingSum, final int mask) {
+		if (remainingCells == 0) {
+			if (remainingSum == 0) {
+				combinations.add(mask);
+			}
+			return;
+		}
+
+		for (int next = value; next <= maxValue && next <= remainingSum; next++) {
+			collectCombinations(combinations, next + 1, maxValue, remainingCells - 1, remainingSum - next,
+					mask | (1 << (next - 1)));
+		}
+	}
+
+	private final List<int[]> cages = new ArrayList<int[]>();
+	private final List<int[]> combinations = new ArrayList<int[]>();
+	private final int layoutSize;
+	private final List<Integer> sums = new ArrayList<Integer>();
+
+	/**
+	 * Create a killer constraint without cages.
+	 *
+	 * @param layoutSize
+	 *            number of rows and columns of the grid
+	 */
+	public KillerCageConstraint(final int layoutSize) {
+		this.layoutSize = layoutSize;
+	}
+
+	/**
+	 * Add a cage.
+	 *
+	 * @param sum
+	 *            sum of all numbers of the cage
+	 * @param cells
+	 *            indexes of the cells in row order
+	 * @return this constraint
+	 */
+	public @NonNull KillerCageConstraint addCage(final int sum, final @NonNull int... cells) {
+		if (cells.length == 0 || cells.length > layoutSize)
+			throw new IllegalArgumentException("a cage must contain between 1 and " + layoutSize + " cells");
+
+		for (int cell : cells) {
+			if (cell < 0 || cell >= layoutSize * layoutSize)
+				throw new IndexOutOfBoundsException("cell has to be between 0 and " + (layoutSize * layoutSize - 1));
+		}
+
+		final List<Integer> cageCombinations = new ArrayList<Integer>();
+		collectCombinations(cageCombinations, 1, layoutSize, cells.length, sum, 0);
+		if (cageCombinations.isEmpty())
+			throw new IllegalArgumentException("no numbers of " + cells.length + " cells add up to " + sum);
+
+		final int[] masks = new int[cageCombinations.size()];
+		for (int i = 0; i < masks.length; i++) {
+			masks[i] = cageCombinations.get(i);
+		}
+
+		cages.add(cells.clone());
+		combinations.add(masks);
+		sums.add(sum);
+		return this;
+	}
+
+	@Override
+	public int[][] getUnits(final int size) {
+		if (size != layoutSize)
+			throw new IllegalArgumentException("cages were created for a grid with " + layoutSize + " rows");
+
+		return cages.toArray(new int[cages.size()][]);
+	}
+
+	@Override
+	public boolean hasPropagation() {
+		return true;
+	}
+
+	@Override
+	public boolean isValid(final @NonNull SudokuGrid grid, final boolean checkIfFinished) {
+		for (int cage = 0; cage < cages.size(); cage++) {
+			int sum = 0;
+			boolean finished = true;
+			for (int cell : cages.get(cage)) {
+				byte value = grid.getValue(cell);
+				if (value == SudokuGrid.EMPTY) {
+					finished = false;
+				}
+				sum += value;
+			}
+
+			if (finished ? (sum != sums.get(cage)) : (checkIfFinished || sum >= sums.get(cage)))
+				return false;
+		}
+
+		return true;
+	}
+
+	@Override
+	public boolean propagate(final @NonNull SudokuOptions options) {
+		for (int cage = 0; cage < cages.size(); cage++) {
+			final int[] cells = cages.get(cage);
+
+			int union = 0;
+			for (int cell : cells) {
+				union |= options.getOptions(cell);
+			}
+
+			// keep the numbers of all sets that can still be placed
+			int allowed = 0;
+			for (int combination : combinations.get(cage)) {
+				if ((combination & ~union) != 0) {
+					continue;
+				}
+
+				boolean fits = true;
+				for (int cell : cells) {
+					if ((options.getOptions(cell) & combination) == 0) {
+						fits = false;
+						break;
+					}
+				}
+
+				if (fits) {
+					allowed |= combination;
+				}
+			}
+
+			if (allowed == 0)
+				return false;
+
+			for (int cell : cells) {
+				if (!options.retainOptions(cell, allowed))
+					return false;
+			}
+		}
+
+		return true;
+	}
+}
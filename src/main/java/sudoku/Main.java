@@ -1,35 +1,53 @@
 package sudoku;
 
-import java.io.BufferedReader;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 import org.eclipse.jdt.annotation.NonNull;
 import org.joda.time.DateTime;
 
 public class Main {
 
+	/**
+	 * Max nodes per sudoku and strategy in benchmark mode.
+	 */
+	private static final long BENCHMARK_MAX_NODES = 10000000;
+
+	/**
+	 * Last argument to continue after the last checkpoint.
+	 */
+	static final @NonNull String RESUME = "--resume";
+
+	/**
+	 * Option "--metrics file" to export the SudokuMetrics periodically.
+	 */
+	private static final @NonNull String METRICS = "--metrics";
+
 	private static final @NonNull String TEST_PLAN_FILE = "sudoku_test_plan.txt";
 	private static final int TEST_SUDOKUS = 1000;
 
 	/**
-	 * Generate n test fields / games.
+	 * Generate n test fields / games and append them to a file. A checkpoint
+	 * is saved periodically, so an interrupted run can be resumed.
 	 *
 	 * @param numSudokus
 	 *            Amount of games to be generated.
-	 * @return List of generated games.
+	 * @param filename
+	 *            File for the generated games.
+	 * @param resume
+	 *            Continue after the last checkpoint of the file.
+	 * @throws IOException
 	 */
-	private static @NonNull List<Sudoku> generateTestPlan(final int numSudokus) {
-		final @NonNull List<Sudoku> sudokus = new ArrayList<Sudoku>(numSudokus);
-
+	private static void generateTestPlan(final int numSudokus, @NonNull final String filename, final boolean resume)
+			throws IOException {
 		final List<Integer> predefinedCells = new ArrayList<Integer>(6);
 		predefinedCells.add(Sudoku.PREDEFINED_VERY_EASY);
 		predefinedCells.add(Sudoku.PREDEFINED_EASY);
@@ -41,25 +59,48 @@ public class Main {
 		int percent10 = 10;
 		int switchType = (int) Math.ceil((double) numSudokus / (double) predefinedCells.size());
 
-		System.out.println("Generate test plan: " + numSudokus + " sudokus");
+		final SudokuCheckpoint checkpoint = resume ? SudokuCheckpoint.load(filename) : null;
+		final int first = (checkpoint == null) ? 0 : (int) Math.min(numSudokus, checkpoint.getGames());
+		final long offset = (checkpoint == null) ? 0 : checkpoint.getBytes();
 
-		for (int i = 0; i < numSudokus; i++) {
-			int index = (int) Math.floor(i / switchType);
-			try {
-				Sudoku sudoku = new Sudoku(predefinedCells.get(index));
-				sudokus.add(sudoku);
-			} catch (Exception ex) {
-				System.out.println(ex.getMessage());
-			}
-			int percent = (i + 1) * 100 / numSudokus;
-			if (percent >= percent10) {
-				System.out.print(".");
-				percent10 += 10;
+		System.out.println("Generate test plan: " + numSudokus + " sudokus"
+				+ (first > 0 ? ", resume after " + first : "") + " to \"" + filename + "\"");
+
+		try (FileOutputStream out = SudokuCheckpoint.openOutput(filename, checkpoint);
+				SudokuWriter writer = new SudokuWriter(out, SudokuFormat.GRID)) {
+			final long interval = SudokuCheckpoint.DEFAULT_INTERVAL_MILLIS * 1000000;
+			long nextCheckpoint = System.nanoTime() + interval;
+
+			// a run that stops before the first periodic checkpoint leaves a
+			// partial file, the checkpoint marks it as unfinished
+			new SudokuCheckpoint(first, offset, new SudokuStats()).save(filename);
+
+			for (int i = first; i < numSudokus; i++) {
+				int index = (int) Math.floor(i / switchType);
+				PackedSudoku sudoku = null;
+				try {
+					sudoku = new Sudoku(predefinedCells.get(index)).pack();
+				} catch (Exception ex) {
+					System.out.println(ex.getMessage());
+				}
+				if (sudoku != null) {
+					writer.write(sudoku);
+				}
+				int percent = (i + 1) * 100 / numSudokus;
+				if (percent >= percent10) {
+					System.out.print(".");
+					percent10 += 10;
+				}
+
+				if (System.nanoTime() - nextCheckpoint >= 0) {
+					SudokuCheckpoint.sync(writer, out);
+					new SudokuCheckpoint(i + 1, offset + writer.numBytes(), new SudokuStats()).save(filename);
+					nextCheckpoint = System.nanoTime() + interval;
+				}
 			}
 		}
+		SudokuCheckpoint.delete(filename);
 		System.out.println("DONE");
-
-		return sudokus;
 	}
 
 	/**
@@ -69,29 +110,15 @@ public class Main {
 	 *            File containing fields.
 	 * @return List of loaded games.
 	 */
-	private static @NonNull List<Sudoku> loadFromFile(@NonNull final String filename) {
+	private static @NonNull List<PackedSudoku> loadFromFile(@NonNull final String filename) {
 		@NonNull
-		List<Sudoku> sudokus = new LinkedList<Sudoku>();
-
-		StringBuilder sb = new StringBuilder(280);
-		int lineCount = 0;
-		try (BufferedReader br = new BufferedReader(new FileReader(filename))) {
-			String line;
-
+		List<PackedSudoku> sudokus = new ArrayList<PackedSudoku>();
+		try (SudokuReader reader = SudokuReader.open(filename)) {
 			System.out.println("Load test plan from \"" + filename + "\"");
 
-			while ((line = br.readLine()) != null) {
-				// process the line.
-				if (line.startsWith("+") || line.startsWith("|")) {
-					sb.append(line + System.lineSeparator());
-					lineCount++;
-
-					if (lineCount >= 13) {
-						sudokus.add(new Sudoku(sb.toString()));
-						lineCount = 0;
-						sb = new StringBuilder(280);
-					}
-				}
+			PackedSudoku sudoku;
+			while ((sudoku = reader.read()) != null) {
+				sudokus.add(sudoku);
 			}
 		} catch (IOException e) {
 		}
@@ -102,42 +129,359 @@ public class Main {
 	/**
 	 *
 	 * @param args
+	 *            no arguments to solve the test plan, "server [port]" to
+	 *            start the HTTP server, "benchmark [file]" to compare the
+	 *            strategies of the solver, "calibrate [file] [table]" to
+	 *            write the calibration table of the SudokuDispatcher,
+	 *            "batch input output [shards]" to solve a corpus with one
+	 *            process per shard, "shard input output index count" to
+	 *            solve a single shard, "merge output count" to combine
+	 *            the files of all shards, "pipeline input output [workers]"
+	 *            to solve a corpus with overlapping reader, solver and
+	 *            writer threads, "compress input output" to write a corpus
+	 *            in the compressed format of SudokuCorpusWriter, "minimal
+	 *            output [count] [threads] [maxClues]" to generate minimal
+	 *            games with a unique solution and "generate file [count]"
+	 *            to generate games; batch, shard
+	 *            and generate continue after their last checkpoint if the
+	 *            last argument is "--resume"; "--metrics file" exports the
+	 *            SudokuMetrics of every command except batch to a file
+	 *            periodically and at the end, batch solves in other
+	 *            processes, whose metrics can be exported by running the
+	 *            shards themselves
+	 * @throws IOException
+	 * @throws InterruptedException
 	 */
-	public static void main(String[] args) {
+	public static void main(String[] args) throws IOException, InterruptedException {
+		final boolean resume = args.length > 0 && args[args.length - 1].equals(RESUME);
+		if (resume) {
+			args = Arrays.copyOf(args, args.length - 1);
+		}
+
+		final int metrics = Arrays.asList(args).indexOf(METRICS);
+		if (metrics >= 0 && metrics + 1 < args.length) {
+			final String filename = args[metrics + 1];
+			final List<String> remaining = new ArrayList<String>(Arrays.asList(args));
+			remaining.subList(metrics, metrics + 2).clear();
+			if (!remaining.isEmpty() && remaining.get(0).equals("batch"))
+				throw new IllegalArgumentException(METRICS + " is not supported by batch, use it for every shard");
+
+			exportMetrics(filename);
+			try {
+				run(remaining.toArray(new String[remaining.size()]), resume);
+			} finally {
+				SudokuMetrics.GLOBAL.save(filename);
+			}
+		} else {
+			run(args, resume);
+		}
+	}
+
+	/**
+	 * Run the command of the arguments.
+	 *
+	 * @param args
+	 *            arguments without options
+	 * @param resume
+	 *            continue after the last checkpoint
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private static void run(final String[] args, final boolean resume) throws IOException, InterruptedException {
+		if (args.length > 2 && args[0].equals("batch")) {
+			int shards = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+			System.out.println("Solve \"" + args[1] + "\" with " + shards + " processes");
+			System.out.print(SudokuShards.run(args[1], args[2], shards, resume));
+			return;
+		}
+
+		if (args.length > 2 && args[0].equals("pipeline")) {
+			runPipeline(args[1], args[2],
+					args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors());
+			return;
+		}
+
+		if (args.length > 1 && args[0].equals("minimal")) {
+			runMinimal(args[1], args.length > 2 ? Integer.parseInt(args[2]) : TEST_SUDOKUS,
+					args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors(),
+					args.length > 4 ? Integer.parseInt(args[4]) : SudokuMinimalGenerator.DEFAULT_MAX_CLUES);
+			return;
+		}
+
+		if (args.length > 2 && args[0].equals("compress")) {
+			runCompression(args[1], args[2]);
+			return;
+		}
+
+		if (args.length > 4 && args[0].equals("shard")) {
+			SudokuShards.runShard(args[1], args[2], Integer.parseInt(args[3]), Integer.parseInt(args[4]), resume);
+			return;
+		}
+
+		if (args.length > 1 && args[0].equals("generate")) {
+			generateTestPlan(args.length > 2 ? Integer.parseInt(args[2]) : TEST_SUDOKUS, args[1], resume);
+			return;
+		}
+
+		if (args.length > 2 && args[0].equals("merge")) {
+			System.out.print(SudokuShards.merge(args[1], Integer.parseInt(args[2])));
+			return;
+		}
+
+		if (args.length > 0 && args[0].equals("server")) {
+			runServer(args.length > 1 ? Integer.parseInt(args[1]) : SudokuServer.DEFAULT_PORT);
+			return;
+		}
+
+		if (args.length > 0 && args[0].equals("benchmark")) {
+			runBenchmark(loadFromFile(args.length > 1 ? args[1] : TEST_PLAN_FILE));
+			return;
+		}
+
+		if (args.length > 0 && args[0].equals("calibrate")) {
+			runCalibration(loadFromFile(args.length > 1 ? args[1] : TEST_PLAN_FILE),
+					args.length > 2 ? args[2] : SudokuDispatcher.CALIBRATION_FILE);
+			return;
+		}
+
 		// testSudoku();
 		@NonNull
-		List<Sudoku> sudokus = loadFromFile(TEST_PLAN_FILE);
-		if (sudokus.isEmpty()) {
-			sudokus = generateTestPlan(TEST_SUDOKUS);
-			saveToFile(sudokus, TEST_PLAN_FILE);
+		List<PackedSudoku> sudokus = loadFromFile(TEST_PLAN_FILE);
+		if (sudokus.isEmpty() || SudokuCheckpoint.load(TEST_PLAN_FILE) != null) {
+			generateTestPlan(TEST_SUDOKUS, TEST_PLAN_FILE, true);
+			sudokus = loadFromFile(TEST_PLAN_FILE);
 		}
 		solveSudokus(sudokus);
 	}
 
 	/**
-	 * Save list of games to text file.
+	 * Solve all games with every built-in strategy and print the nodes and
+	 * time per amount of predefined cells, followed by the strategy with the
+	 * least nodes for each amount.
+	 *
+	 * @param sudokus
+	 */
+	private static void runBenchmark(@NonNull final List<PackedSudoku> sudokus) {
+		final SudokuHeuristic[] heuristics = SudokuHeuristic.values();
+
+		// per amount of predefined cells and heuristic: sudokus, nodes, nanos
+		// and timeouts
+		final Map<Integer, long[][]> results = new TreeMap<Integer, long[][]>();
+
+		System.out.println("Benchmark " + sudokus.size() + " sudokus with " + heuristics.length + " strategies");
+		for (SudokuHeuristic heuristic : heuristics) {
+			for (PackedSudoku packed : sudokus) {
+				Sudoku sudoku = new Sudoku(packed);
+				sudoku.setStrategy(heuristic);
+				sudoku.setMetrics(null);
+
+				long[][] result = results.get(sudoku.numCellsFilled());
+				if (result == null) {
+					result = new long[heuristics.length][4];
+					results.put(sudoku.numCellsFilled(), result);
+				}
+
+				long start = System.nanoTime();
+				SudokuStatus status = sudoku.solve(SudokuBudget.ofNodes(BENCHMARK_MAX_NODES));
+				long[] counters = result[heuristic.ordinal()];
+				counters[0]++;
+				counters[1] += sudoku.getNodes();
+				counters[2] += System.nanoTime() - start;
+				counters[3] += (status == SudokuStatus.TIMEOUT) ? 1 : 0;
+			}
+			System.out.print(".");
+		}
+		System.out.println("DONE");
+
+		for (Map.Entry<Integer, long[][]> entry : results.entrySet()) {
+			SudokuHeuristic best = null;
+			for (SudokuHeuristic heuristic : heuristics) {
+				long[] counters = entry.getValue()[heuristic.ordinal()];
+				System.out.println("-> " + heuristic + ": " + counters[0] + " sudokus with " + entry.getKey()
+						+ " cells: " + (counters[1] / counters[0]) + " nodes, "
+						+ (counters[2] / counters[0] / 1000) + " us per sudoku, " + counters[3] + " timeouts");
+
+				if (best == null || counters[1] < entry.getValue()[best.ordinal()][1]) {
+					best = heuristic;
+				}
+			}
+			System.out.println("-> best strategy for " + entry.getKey() + " cells: " + best);
+		}
+	}
+
+	/**
+	 * Calibrate the SudokuDispatcher on all games, save the table and print
+	 * the time of every engine and of the dispatcher.
 	 *
 	 * @param sudokus
 	 * @param filename
+	 *            file of the calibration table
+	 * @throws IOException
+	 */
+	private static void runCalibration(@NonNull final List<PackedSudoku> sudokus, @NonNull final String filename)
+			throws IOException {
+		final SudokuBudget budget = SudokuBudget.ofNodes(BENCHMARK_MAX_NODES);
+
+		System.out.println("Calibrate " + sudokus.size() + " sudokus with " + SudokuEngines.values().length
+				+ " engines");
+		final SudokuDispatcher dispatcher = SudokuDispatcher.calibrate(sudokus, budget);
+		dispatcher.save(filename);
+		System.out.println("Saved calibration table to \"" + filename + "\"");
+
+		// the measured solves are not counted in the SudokuMetrics
+		final SudokuResult result = new SudokuResult();
+		final Map<String, SudokuEngine> engines = new LinkedHashMap<String, SudokuEngine>();
+		for (SudokuEngines engine : SudokuEngines.values()) {
+			engines.put(engine.toString(), (puzzle, limit, target) -> engine.solve(puzzle, limit, target, null));
+		}
+		engines.put("DISPATCHER", (puzzle, limit, target) -> dispatcher.solve(puzzle, limit, target, null));
+		for (Map.Entry<String, SudokuEngine> engine : engines.entrySet()) {
+			long start = System.nanoTime();
+			for (PackedSudoku sudoku : sudokus) {
+				engine.getValue().solve(sudoku, budget, result);
+			}
+			long duration = System.nanoTime() - start;
+
+			System.out.println("-> " + engine.getKey() + ": " + (duration / Math.max(1, sudokus.size()) / 1000)
+					+ " us per sudoku");
+		}
+	}
+
+	/**
+	 * Copy a corpus to a compressed corpus and print the sizes.
+	 *
+	 * @param input
+	 *            corpus in a format of SudokuReader
+	 * @param output
+	 * @throws IOException
 	 */
-	private static void saveToFile(@NonNull final List<Sudoku> sudokus, @NonNull final String filename) {
+	private static void runCompression(@NonNull final String input, @NonNull final String output)
+			throws IOException {
+		try (SudokuReader reader = SudokuReader.open(input);
+				SudokuCorpusWriter writer = SudokuCorpusWriter.create(output)) {
+			PackedSudoku sudoku;
+			while ((sudoku = reader.read()) != null) {
+				writer.write(sudoku);
+			}
+		}
 
-		System.out.println("Save test plan with " + sudokus.size() + " runs to \"" + filename + "\"");
+		System.out.println("Compressed " + new File(input).length() + " to " + new File(output).length() + " bytes");
+	}
+
+	/**
+	 * Save the SudokuMetrics to a file in the interval of the checkpoints
+	 * until the process ends.
+	 *
+	 * @param filename
+	 */
+	private static void exportMetrics(@NonNull final String filename) {
+		Thread exporter = new Thread(() -> {
+			try {
+				while (true) {
+					Thread.sleep(SudokuCheckpoint.DEFAULT_INTERVAL_MILLIS);
+					SudokuMetrics.GLOBAL.save(filename);
+				}
+			} catch (IOException e) {
+				System.out.println("Cannot export metrics: " + e.getMessage());
+			} catch (InterruptedException e) {
+				// process ends
+			}
+		}, "sudoku-metrics");
+		exporter.setDaemon(true);
+		exporter.start();
+	}
 
-		PrintWriter writer;
-		try {
-			writer = new PrintWriter(filename, "UTF-8");
+	/**
+	 * Generate minimal games with a SudokuMinimalGenerator and print the rate
+	 * of games and attempts every second.
+	 *
+	 * @param output
+	 * @param count
+	 * @param threads
+	 * @param maxClues
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private static void runMinimal(@NonNull final String output, final int count, final int threads,
+			final int maxClues) throws IOException, InterruptedException {
+		final SudokuMinimalGenerator generator = new SudokuMinimalGenerator(threads, maxClues);
+		final long start = System.nanoTime();
 
-			for (Sudoku sudoku : sudokus) {
-				writer.println(sudoku.toString());
+		System.out.println("Generate " + count + " minimal sudokus with at most " + maxClues + " clues and " + threads
+				+ " threads to \"" + output + "\"");
+		Thread reporter = new Thread(() -> {
+			try {
+				while (true) {
+					Thread.sleep(1000);
+					printMinimalRate(generator, start);
+				}
+			} catch (InterruptedException e) {
+				// generation ends
 			}
+		}, "sudoku-minimal-rate");
+		reporter.setDaemon(true);
+		reporter.start();
+
+		try (SudokuWriter writer = new SudokuWriter(new FileOutputStream(output), SudokuFormat.LINE)) {
+			generator.run(count, System.nanoTime(), writer);
+		} finally {
+			reporter.interrupt();
+		}
+		printMinimalRate(generator, start);
+	}
+
+	/**
+	 * Print the generated games and attempts per second of a generator.
+	 *
+	 * @param generator
+	 * @param start
+	 *            System.nanoTime() of the start
+	 */
+	private static void printMinimalRate(@NonNull final SudokuMinimalGenerator generator, final long start) {
+		double seconds = Math.max(1, System.nanoTime() - start) / 1e9;
+		System.out.println(String.format("%d sudokus, %.1f sudokus/s, %.0f attempts/s, %.0f nodes/attempt",
+				generator.numGenerated(), generator.numGenerated() / seconds, generator.numAttempts() / seconds,
+				(double) generator.numNodes() / Math.max(1, generator.numAttempts())));
+	}
+
+	/**
+	 * Solve a corpus with a SudokuPipeline, save the statistics next to the
+	 * output and print them with the metrics of the pipeline.
+	 *
+	 * @param input
+	 * @param output
+	 * @param workers
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private static void runPipeline(@NonNull final String input, @NonNull final String output, final int workers)
+			throws IOException, InterruptedException {
+		final SudokuPipeline pipeline = new SudokuPipeline(workers, SudokuPipeline.DEFAULT_CHUNK_SIZE,
+				workers * SudokuPipeline.DEFAULT_CHUNKS_PER_WORKER);
 
-			writer.close();
-		} catch (FileNotFoundException e) {
-			e.printStackTrace();
-		} catch (UnsupportedEncodingException e) {
-			e.printStackTrace();
+		System.out.println("Solve \"" + input + "\" with " + workers + " workers");
+		long start = System.nanoTime();
+		try (SudokuReader reader = SudokuReader.open(input);
+				SudokuWriter writer = new SudokuWriter(new FileOutputStream(output), SudokuFormat.LINE)) {
+			SudokuStats stats = pipeline.run(reader, writer, SudokuBudget.ofNodes(SudokuShards.MAX_NODES));
+			stats.save(SudokuShards.getStatsFile(output));
+			System.out.print(stats);
 		}
+		System.out.println("-> " + (System.nanoTime() - start) / 1000000 + " ms in total");
+		System.out.print(pipeline.getMetrics());
+	}
+
+	/**
+	 * Run the HTTP server until the process is stopped.
+	 *
+	 * @param port
+	 * @throws IOException
+	 */
+	private static void runServer(final int port) throws IOException {
+		final SudokuServer server = new SudokuServer(port);
+		Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+		server.start();
+		System.out.println("Sudoku server listening on port " + server.getPort());
 	}
 
 	/**
@@ -145,7 +489,7 @@ public class Main {
 	 *
 	 * @param sudokus
 	 */
-	private static void solveSudokus(@NonNull final List<Sudoku> sudokus) {
+	private static void solveSudokus(@NonNull final List<PackedSudoku> sudokus) {
 		int solved = 0;
 		int unsolvable = 0;
 		int numSudokus = sudokus.size();
@@ -153,15 +497,17 @@ public class Main {
 		DateTime startTime = DateTime.now();
 		Map<Integer, DateTime> stopWatch = new HashMap<Integer, DateTime>();
 		Map<Integer, Integer> gameTypes = new HashMap<Integer, Integer>();
+		List<PackedSudoku> solutions = new ArrayList<PackedSudoku>(numSudokus);
 
 		System.out.println("Start solving " + numSudokus + " sudokus");
 		for (int i = 0; i < numSudokus; i++) {
-			Sudoku sudoku = sudokus.get(i);
+			Sudoku sudoku = new Sudoku(sudokus.get(i));
 			int predefinedCells = sudoku.numCellsFilled();
 			DateTime duration = DateTime.now();
 
 			if (sudoku.solve()) {
 				solved++;
+				solutions.add(sudoku.pack());
 			} else {
 				unsolvable++;
 			}
@@ -186,6 +532,7 @@ public class Main {
 		System.out.println("Finished all " + numSudokus + " sudokus in " + (duration.getMillis() / 1000) + " sec");
 		System.out.println("-> " + solved + " solved");
 		System.out.println("-> " + unsolvable + " not solvable");
+		System.out.println("-> " + SudokuValidator.numInvalid(solutions, true) + " invalid solutions");
 
 		for (int predefinedCells : gameTypes.keySet()) {
 			System.out.println("-> " + gameTypes.get(predefinedCells) + " sudokus with " + predefinedCells + " cells: "
@@ -0,0 +1,239 @@
+package sudoku;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Immutable, compact representation of a Sudoku field. Every cell is stored
+ * in 4 bits, 16 cells per long, so a complete field fits into 6 longs instead
+ * of the arrays held by a {@link SudokuField}. Use this type to keep large
+ * amounts of games in lists, caches or indexes.
+ */
+public final class PackedSudoku {
+
+	/**
+	 * Number of bits used per cell.
+	 */
+	private static final int BITS = 4;
+
+	/**
+	 * Mask for a single cell.
+	 */
+	private static final long CELL_MASK = 0xFL;
+
+	/**
+	 * Number of cells stored in one long.
+	 */
+	private static final int CELLS_PER_WORD = 16;
+
+	/**
+	 * Packed field that contains only empty cells.
+	 */
+	public static final PackedSudoku EMPTY = new PackedSudoku(0L, 0L, 0L, 0L, 0L, 0L);
+
+	/**
+	 * Pack the current values of a field. Options are not stored.
+	 *
+	 * @param field
+	 * @return packed copy of the values
+	 */
+	public static @NonNull PackedSudoku of(final @NonNull SudokuField field) {
+		final long[] words = new long[6];
+		int index = 0;
+		for (byte row = 0; row < SudokuField.MAX; row++) {
+			for (byte column = 0; column < SudokuField.MAX; column++) {
+				words[index / CELLS_PER_WORD] |= (long) field.getValue(row, column) << ((index % CELLS_PER_WORD) * BITS);
+				index++;
+			}
+		}
+
+		return new PackedSudoku(words[0], words[1], words[2], words[3], words[4], words[5]);
+	}
+
+	/**
+	 * Pack values from byte[] with 81 cells in row order. Empty cells contain
+	 * a 0 as number.
+	 *
+	 * @param cells
+	 * @return packed copy of the values
+	 */
+	public static @NonNull PackedSudoku of(final @NonNull byte[] cells) {
+		if (cells.length != SudokuField.CELLS)
+			throw new IllegalArgumentException("cells must contain exactly " + SudokuField.CELLS + " values");
+
+		final long[] words = new long[6];
+		for (int index = 0; index < SudokuField.CELLS; index++) {
+			byte value = cells[index];
+			if (value < SudokuField.EMPTY || value > SudokuField.MAX)
+				throw new IllegalArgumentException("value has to be between 0 and 9");
+
+			words[index / CELLS_PER_WORD] |= (long) value << ((index % CELLS_PER_WORD) * BITS);
+		}
+
+		return new PackedSudoku(words[0], words[1], words[2], words[3], words[4], words[5]);
+	}
+
+	/**
+	 * Pack values from byte[][].
+	 *
+	 * @param field
+	 * @return packed copy of the values
+	 */
+	public static @NonNull PackedSudoku of(final @NonNull byte[][] field) {
+		final byte[] cells = new byte[SudokuField.CELLS];
+		for (int row = 0; row < SudokuField.MAX; row++) {
+			System.arraycopy(field[row], 0, cells, row * SudokuField.MAX, SudokuField.MAX);
+		}
+
+		return of(cells);
+	}
+
+	private final long word0;
+	private final long word1;
+	private final long word2;
+	private final long word3;
+	private final long word4;
+	private final long word5;
+
+	private PackedSudoku(final long word0, final long word1, final long word2, final long word3, final long word4,
+			final long word5) {
+		this.word0 = word0;
+		this.word1 = word1;
+		this.word2 = word2;
+		this.word3 = word3;
+		this.word4 = word4;
+		this.word5 = word5;
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj)
+			return true;
+
+		if (!(obj instanceof PackedSudoku))
+			return false;
+
+		PackedSudoku other = (PackedSudoku) obj;
+		return (word0 == other.word0) && (word1 == other.word1) && (word2 == other.word2) && (word3 == other.word3)
+				&& (word4 == other.word4) && (word5 == other.word5);
+	}
+
+	/**
+	 * Return value of a cell.
+	 *
+	 * @param index
+	 *            cell index [0-80] in row order
+	 * @return value of the cell or EMPTY (0)
+	 */
+	public byte getValue(final int index) {
+		return (byte) ((getWord(index / CELLS_PER_WORD) >>> ((index % CELLS_PER_WORD) * BITS)) & CELL_MASK);
+	}
+
+	/**
+	 * Return value of a cell.
+	 *
+	 * @param row
+	 *            current row [0-8]
+	 * @param column
+	 *            current cell [0-8]
+	 * @return value of the cell or EMPTY (0)
+	 */
+	public byte getValue(final int row, final int column) {
+		return getValue(row * SudokuField.MAX + column);
+	}
+
+	private long getWord(final int word) {
+		switch (word) {
+		case 0:
+			return word0;
+		case 1:
+			return word1;
+		case 2:
+			return word2;
+		case 3:
+			return word3;
+		case 4:
+			return word4;
+		case 5:
+			return word5;
+		default:
+			throw new IndexOutOfBoundsException("index has to be between 0 and 80");
+		}
+	}
+
+	@Override
+	public int hashCode() {
+		long hash = word0;
+		hash = hash * 31 + word1;
+		hash = hash * 31 + word2;
+		hash = hash * 31 + word3;
+		hash = hash * 31 + word4;
+		hash = hash * 31 + word5;
+		return (int) (hash ^ (hash >>> 32));
+	}
+
+	/**
+	 * Returns amount of cells that are filled out.
+	 *
+	 * @return
+	 */
+	public int numCellsFilled() {
+		int num = 0;
+		for (int index = 0; index < SudokuField.CELLS; index++) {
+			if (getValue(index) != SudokuField.EMPTY) {
+				num++;
+			}
+		}
+
+		return num;
+	}
+
+	/**
+	 * Write all values in row order into the specified array.
+	 *
+	 * @param cells
+	 *            array with at least 81 elements
+	 * @return the specified array
+	 */
+	public @NonNull byte[] toBytes(final @NonNull byte[] cells) {
+		for (int index = 0; index < SudokuField.CELLS; index++) {
+			cells[index] = getValue(index);
+		}
+
+		return cells;
+	}
+
+	/**
+	 * Create a new field with the packed values. All options are calculated
+	 * again.
+	 *
+	 * @return new field
+	 */
+	public @NonNull SudokuField toField() {
+		SudokuField field = new SudokuField();
+		for (byte row = 0; row < SudokuField.MAX; row++) {
+			for (byte column = 0; column < SudokuField.MAX; column++) {
+				byte value = getValue(row, column);
+				if (value > SudokuField.EMPTY) {
+					field.setValue(row, column, value);
+				}
+			}
+		}
+
+		return field;
+	}
+
+	/**
+	 * Print values as single line with 81 characters. Empty cells are printed
+	 * as '.'.
+	 */
+	@Override
+	public String toString() {
+		char[] line = new char[SudokuField.CELLS];
+		for (int index = 0; index < SudokuField.CELLS; index++) {
+			byte value = getValue(index);
+			line[index] = (value == SudokuField.EMPTY) ? '.' : (char) ('0' + value);
+		}
+
+		return new String(line);
+	}
+}
@@ -0,0 +1,334 @@
+package sudoku;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Grid solver for grids up to 16x16 that stores the options of a cell in a
+ * short.
+ */
+final class ShortMaskGridSolver extends SudokuGridSolver implements SudokuOptions {
+
+	private final int allOptions;
+
+	/**
+	 * Options that are currently passed to the constraints.
+	 */
+	private short[] current = null;
+
+	/**
+	 * Amount of solutions after which the search stops.
+	 */
+	private int limit = 1;
+
+	/**
+	 * Set if a constraint removed an option.
+	 */
+	private boolean restricted = false;
+
+	/**
+	 * Amount of solutions found during the current call.
+	 */
+	private int solutions = 0;
+
+	/**
+	 * Options of all cells for every search depth.
+	 */
+	private final short[][] stack;
+
+	/**
+	 * Values of the grid that receives the first solution or null.
+	 */
+	private byte[] target = null;
+
+	ShortMaskGridSolver(final @NonNull SudokuGridLayout layout) {
+		super(layout);
+		allOptions = (1 << layout.getSize()) - 1;
+		stack = new short[cells + 1][];
+	}
+
+	/**
+	 * Place a number by reducing the options of a cell to it.
+	 *
+	 * @param options
+	 * @param cell
+	 * @param bit
+	 *            bit of the number
+	 * @return false if the number is not an option of the cell
+	 */
+	private boolean assign(final short[] options, final int cell, final int bit) {
+		int mask = options[cell] & 0xFFFF;
+		if ((mask & bit) == 0)
+			return false;
+
+		if (mask != bit) {
+			options[cell] = (short) bit;
+			queue[queueSize++] = cell;
+		}
+
+		return true;
+	}
+
+	@Override
+	public int countSolutions(final @NonNull SudokuGrid grid, final int limit, final @NonNull SudokuBudget budget) {
+		final SudokuEvents.Uniqueness event = new SudokuEvents.Uniqueness();
+		final int clues = event.isEnabled() ? grid.numCellsFilled() : 0;
+		event.begin();
+
+		start(grid, budget);
+		this.limit = limit;
+		this.target = null;
+		solutions = 0;
+
+		if (limit > 0 && init(grid.getValues())) {
+			search(0);
+		}
+
+		event.finish("ShortMaskGridSolver", clues, nodes, backtracks, limit, solutions);
+		return solutions;
+	}
+
+	/**
+	 * Returns the options of a search depth.
+	 *
+	 * @param depth
+	 * @return
+	 */
+	private short[] getDepthOptions(final int depth) {
+		short[] options = stack[depth];
+		if (options == null) {
+			options = new short[cells];
+			stack[depth] = options;
+		}
+
+		return options;
+	}
+
+	@Override
+	public int getOptions(final int cell) {
+		return current[cell] & 0xFFFF;
+	}
+
+	/**
+	 * Set the options of search depth 0 from the values of a grid.
+	 *
+	 * @param values
+	 * @return false if the values contradict each other
+	 */
+	private boolean init(final byte[] values) {
+		final short[] options = getDepthOptions(0);
+		for (int cell = 0; cell < cells; cell++) {
+			options[cell] = (short) allOptions;
+		}
+
+		queueSize = 0;
+		for (int cell = 0; cell < cells; cell++) {
+			if (values[cell] != SudokuGrid.EMPTY) {
+				nodes++;
+				if (!assign(options, cell, 1 << (values[cell] - 1)))
+					return false;
+			}
+		}
+
+		return propagate(options);
+	}
+
+	/**
+	 * Remove the numbers of all queued cells from their peers and place all
+	 * numbers that have only one cell left in a unit, until nothing changes
+	 * anymore.
+	 *
+	 * @param options
+	 * @return false if a cell has no option left or a number has no cell left
+	 */
+	private boolean propagate(final short[] options) {
+		for (;;) {
+			while (queueSize > 0) {
+				int cell = queue[--queueSize];
+				int bit = options[cell] & 0xFFFF;
+
+				for (int i = peerStart[cell]; i < peerStart[cell + 1]; i++) {
+					int peer = peers[i];
+					int mask = options[peer] & 0xFFFF;
+					if ((mask & bit) != 0) {
+						mask &= ~bit;
+						if (mask == 0) {
+							queueSize = 0;
+							return false;
+						}
+
+						options[peer] = (short) mask;
+						if ((mask & (mask - 1)) == 0) {
+							queue[queueSize++] = peer;
+						}
+					}
+				}
+			}
+
+			// search numbers that have only one cell left in a unit
+			boolean changed = false;
+			for (int unit = 0; unit < completeUnits; unit++) {
+				int once = 0;
+				int twice = 0;
+				for (int i = unitStart[unit]; i < unitStart[unit + 1]; i++) {
+					int mask = options[unitCells[i]] & 0xFFFF;
+					twice |= once & mask;
+					once |= mask;
+				}
+
+				if (once != allOptions)
+					return false;
+
+				int hidden = once & ~twice;
+				if (hidden == 0) {
+					continue;
+				}
+
+				for (int i = unitStart[unit]; i < unitStart[unit + 1]; i++) {
+					int cell = unitCells[i];
+					int mask = options[cell] & 0xFFFF;
+					int single = mask & hidden;
+					if (single != 0 && single != mask) {
+						if ((single & (single - 1)) != 0) {
+							queueSize = 0;
+							return false;
+						}
+
+						nodes++;
+						options[cell] = (short) single;
+						queue[queueSize++] = cell;
+						changed = true;
+					}
+				}
+			}
+
+			if (changed) {
+				continue;
+			}
+
+			if (propagators.length == 0)
+				return true;
+
+			current = options;
+			restricted = false;
+			for (SudokuConstraint constraint : propagators) {
+				if (!constraint.propagate(this)) {
+					queueSize = 0;
+					return false;
+				}
+			}
+
+			if (!restricted)
+				return true;
+		}
+	}
+
+	@Override
+	public boolean retainOptions(final int cell, final int mask) {
+		int oldMask = current[cell] & 0xFFFF;
+		int newMask = oldMask & mask;
+		if (newMask == oldMask)
+			return true;
+
+		if (newMask == 0)
+			return false;
+
+		current[cell] = (short) newMask;
+		restricted = true;
+		if ((newMask & (newMask - 1)) == 0) {
+			queue[queueSize++] = cell;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Guess a number for the cell with the least options and continue with
+	 * the next depth.
+	 *
+	 * @param depth
+	 * @return true if the search can stop because limit solutions were found
+	 *         or the budget is exhausted
+	 */
+	private boolean search(final int depth) {
+		final short[] options = stack[depth];
+
+		int bestCell = -1;
+		int bestCount = Integer.MAX_VALUE;
+		for (int cell = 0; cell < cells; cell++) {
+			int mask = options[cell] & 0xFFFF;
+			if ((mask & (mask - 1)) != 0) {
+				int count = Integer.bitCount(mask);
+				if (count < bestCount) {
+					bestCell = cell;
+					bestCount = count;
+					if (count == 2) {
+						break;
+					}
+				}
+			}
+		}
+
+		// all cells have exactly one option left
+		if (bestCell < 0) {
+			solutions++;
+			if (solutions == 1 && target != null) {
+				for (int cell = 0; cell < cells; cell++) {
+					target[cell] = (byte) (Integer.numberOfTrailingZeros(options[cell] & 0xFFFF) + 1);
+				}
+			}
+
+			return solutions >= limit;
+		}
+
+		final short[] nextOptions = getDepthOptions(depth + 1);
+		int remaining = options[bestCell] & 0xFFFF;
+		while (remaining != 0) {
+			int bit = remaining & -remaining;
+			remaining &= remaining - 1;
+
+			System.arraycopy(options, 0, nextOptions, 0, cells);
+			nodes++;
+			if (nodes >= nextCheck && isBudgetExhausted())
+				return true;
+
+			nextOptions[bestCell] = (short) bit;
+			queue[0] = bestCell;
+			queueSize = 1;
+
+			if (propagate(nextOptions) && search(depth + 1))
+				return true;
+			backtracks++;
+		}
+
+		return false;
+	}
+
+	@Override
+	public @NonNull SudokuStatus solve(final @NonNull SudokuGrid grid, final @NonNull SudokuBudget budget) {
+		final SudokuEvents.Solve event = new SudokuEvents.Solve();
+		final int clues = grid.numCellsFilled();
+		final long start = System.nanoTime();
+		event.begin();
+
+		start(grid, budget);
+		this.limit = 1;
+		this.target = grid.getValues();
+		solutions = 0;
+
+		boolean solved = init(target) && search(0);
+		target = null;
+
+		SudokuStatus status;
+		if (timeout) {
+			status = SudokuStatus.TIMEOUT;
+		} else {
+			status = solved ? SudokuStatus.SOLVED : SudokuStatus.UNSOLVABLE;
+		}
+
+		event.finish("ShortMaskGridSolver", clues, nodes, backtracks, status);
+		if (metrics != null && cells == SudokuField.CELLS) {
+			metrics.recordSolve(clues, status, nodes, System.nanoTime() - start);
+		}
+		return status;
+	}
+}
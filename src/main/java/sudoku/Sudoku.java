@@ -1,6 +1,10 @@
 package sudoku;
 
 import java.security.InvalidParameterException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
 
 import org.eclipse.jdt.annotation.NonNull;
 
@@ -36,8 +40,27 @@ public class Sudoku {
 	 */
 	public static final int PREDEFINED_VERY_HARD = 26;
 
+	private @NonNull SudokuBudget budget = SudokuBudget.UNLIMITED;
 	private boolean debugMode = false;
 	private SudokuField field = null;
+	private SudokuMetrics metrics = SudokuMetrics.GLOBAL;
+
+	/**
+	 * Values taken back and values placed by the last solve or generate call
+	 * and the node count of the next budget check.
+	 */
+	private long backtracks = 0;
+	private long nodes = 0;
+	private long nextCheck = 0;
+
+	private @NonNull SudokuStrategy strategy = SudokuHeuristic.MRV;
+
+	/**
+	 * Options removed by solve() as (cell index * 16 + value), so they can be
+	 * added again when the search returns from a wrong path.
+	 */
+	private int[] removedOptions = new int[SudokuField.CELLS];
+	private int numRemovedOptions = 0;
 
 	/**
 	 * Create an empty sudoku field.
@@ -67,11 +90,66 @@ public class Sudoku {
 	 * @throws Exception
 	 */
 	public Sudoku(final int predefinedCells) throws Exception {
+		this(predefinedCells, ThreadLocalRandom.current());
+	}
+
+	/**
+	 * Create a sudoku field with prefilled values chosen by a random
+	 * generator, so the same seed creates the same game again.
+	 *
+	 * @param predefinedCells
+	 *            Amount of fields that should be prefilled
+	 * @param random
+	 * @throws Exception
+	 */
+	public Sudoku(final int predefinedCells, final @NonNull Random random) throws Exception {
+		this(predefinedCells, random, SudokuBudget.UNLIMITED);
+	}
+
+	/**
+	 * Create a sudoku field with prefilled values chosen by a random
+	 * generator within a budget.
+	 *
+	 * @param predefinedCells
+	 *            Amount of fields that should be prefilled
+	 * @param random
+	 * @param budget
+	 *            max time and nodes of the generation
+	 * @throws TimeoutException
+	 *             if the budget was exhausted or the thread was interrupted
+	 * @throws Exception
+	 */
+	public Sudoku(final int predefinedCells, final @NonNull Random random, final @NonNull SudokuBudget budget)
+			throws Exception {
 		this();
-		if (generate(predefinedCells) == null)
+		this.budget = budget;
+		this.nextCheck = budget.nextCheck(0);
+
+		final SudokuEvents.Generate event = new SudokuEvents.Generate();
+		event.begin();
+		SudokuField generated = generate(predefinedCells, random);
+		event.finish("generator", predefinedCells, nodes, backtracks, generated != null);
+		SudokuMetrics.GLOBAL.recordGeneration(generated != null, backtracks);
+
+		if (generated == null && budget.isExhausted(nodes))
+			throw new TimeoutException("Generation exceeded its budget after " + nodes + " nodes");
+		if (generated == null)
 			throw new Exception("Cannot generate a valid field");
 	}
 
+	/**
+	 * Load sudoku field from packed values.
+	 *
+	 * @param predefinedField
+	 */
+	public Sudoku(final PackedSudoku predefinedField) {
+		if (predefinedField != null) {
+			field = predefinedField.toField();
+		} else {
+			field = new SudokuField();
+		}
+	}
+
 	/**
 	 * Load sudoku field from String.
 	 *
@@ -83,36 +161,56 @@ public class Sudoku {
 		}
 	}
 
+	/**
+	 * Check the current field for duplicate values, cells without options and
+	 * numbers without a place in a unit.
+	 *
+	 * @return SudokuInputCheck.VALID or the first problem found
+	 */
+	public @NonNull SudokuInputCheck check() {
+		return SudokuInputCheck.check(field);
+	}
+
 	/**
 	 * Create a sudoku field with prefilled values.
 	 *
 	 * @param predefinedCells
 	 *            Amount of fields that should be prefilled
+	 * @param random
 	 */
-	private SudokuField generate(final int predefinedCells) {
+	private SudokuField generate(final int predefinedCells, final @NonNull Random random) {
 		if (predefinedCells > 60)
 			throw new InvalidParameterException("predefinedCells must not be greater than 60");
 
 		for (byte row = 0; row < SudokuField.MAX; row++) {
 			for (byte column = 0; column < SudokuField.MAX; column++) {
 				while (field.getValue(row, column) == SudokuField.EMPTY) {
-					byte value = field.getRandomOption(row, column);
+					// an exhausted budget stays exhausted, keep the check due
+					// so every level gives up
+					if (nodes >= nextCheck && isBudgetExhausted()) {
+						nextCheck = nodes;
+						return null;
+					}
+
+					byte value = field.getRandomOption(row, column, random);
 					if (value == SudokuField.EMPTY)
 						return null;
 
 					@SuppressWarnings("null")
 					SudokuField backupField = new SudokuField(field);
 					field.setValue(row, column, value);
+					nodes++;
 
 					// call solve again -> if result = true, then return true
 					// and field is completely filled out
-					field = generate(predefinedCells);
+					field = generate(predefinedCells, random);
 					if (field != null)
 						return field;
 					else {
 						// else undo change
 						field = backupField;
 						field.removeOption(row, column, value);
+						backtracks++;
 					}
 				}
 			}
@@ -122,7 +220,7 @@ public class Sudoku {
 		// amount of requested predefined cells are set
 		SudokuField preparedField = new SudokuField();
 		while (preparedField.numCellsFilled() < predefinedCells) {
-			SudokuPosition pos = preparedField.getRandomEmptyPosition();
+			SudokuPosition pos = preparedField.getRandomEmptyPosition(random);
 
 			if (pos == null) {
 				break;
@@ -134,6 +232,58 @@ public class Sudoku {
 		return preparedField;
 	}
 
+	/**
+	 * Remember an option that was removed by solve().
+	 *
+	 * @param pos
+	 * @param value
+	 */
+	private void addRemovedOption(final @NonNull SudokuPosition pos, final byte value) {
+		if (numRemovedOptions == removedOptions.length) {
+			removedOptions = Arrays.copyOf(removedOptions, removedOptions.length * 2);
+		}
+
+		removedOptions[numRemovedOptions++] = ((pos.getRow() * SudokuField.MAX + pos.getColumn()) << 4) | value;
+	}
+
+	/**
+	 * Returns the amount of values taken back by the last solve or generate
+	 * call.
+	 *
+	 * @return
+	 */
+	public long getBacktracks() {
+		return backtracks;
+	}
+
+	/**
+	 * Returns the amount of values placed by the last solve or generate call.
+	 *
+	 * @return
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * Check the budget of the current solve call.
+	 *
+	 * @return true if the search has to stop
+	 */
+	private boolean isBudgetExhausted() {
+		nextCheck = budget.nextCheck(nodes);
+		return budget.isExhausted(nodes);
+	}
+
+	/**
+	 * Returns the branching heuristic of solve().
+	 *
+	 * @return
+	 */
+	public @NonNull SudokuStrategy getStrategy() {
+		return strategy;
+	}
+
 	/**
 	 * @return the debug
 	 */
@@ -150,6 +300,15 @@ public class Sudoku {
 		return field.numCellsFilled();
 	}
 
+	/**
+	 * Returns the current values in compact form.
+	 *
+	 * @return packed copy of the current field
+	 */
+	public @NonNull PackedSudoku pack() {
+		return PackedSudoku.of(field);
+	}
+
 	/**
 	 * Print the Sudoku field to System.out.
 	 */
@@ -157,6 +316,21 @@ public class Sudoku {
 		field.print();
 	}
 
+	/**
+	 * Add all options again that were removed by solve() since the specified
+	 * index.
+	 *
+	 * @param firstRemovedOption
+	 */
+	private void restoreRemovedOptions(final int firstRemovedOption) {
+		while (numRemovedOptions > firstRemovedOption) {
+			int removedOption = removedOptions[--numRemovedOptions];
+			int cell = removedOption >>> 4;
+			field.addOption((byte) (cell / SudokuField.MAX), (byte) (cell % SudokuField.MAX),
+					(byte) (removedOption & 0xF));
+		}
+	}
+
 	/**
 	 * @param debug
 	 *            the debug to set
@@ -166,47 +340,86 @@ public class Sudoku {
 	}
 
 	/**
-	 * Solve the current Sudoku field.
+	 * Set the registry that counts the solve calls.
 	 *
-	 * @return true if solved or false if not solvable
+	 * @param metrics
+	 *            registry, SudokuMetrics.GLOBAL by default, or null if the
+	 *            caller counts the games itself
 	 */
-	public boolean solve() {
+	public void setMetrics(final SudokuMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Set the branching heuristic of solve().
+	 *
+	 * @param strategy
+	 *            strategy, SudokuHeuristic.MRV by default
+	 */
+	public void setStrategy(final @NonNull SudokuStrategy strategy) {
+		this.strategy = strategy;
+	}
+
+	/**
+	 * Search a solution depth-first on the current field.
+	 *
+	 * @return SOLVED, UNSOLVABLE or TIMEOUT, the field is unchanged unless
+	 *         solved
+	 */
+	private @NonNull SudokuStatus search() {
+		int firstRemovedOption = numRemovedOptions;
+
 		// as long as there are still empty cells
 		while (field.numRemainingEmptyCells() > 0) {
 
-			// check empty cells with least options first
-			SudokuPosition pos = field.getBestEmptyPosition();
+			// let the strategy choose the cell, by default the cell with the
+			// least options
+			SudokuPosition pos = strategy.selectPosition(field);
 
 			// if no position found this path is wrong
-			if (pos == null)
-				return false;
-			else {
-				byte newValue = field.getNextOption(pos);
+			if (pos == null) {
+				restoreRemovedOptions(firstRemovedOption);
+				return SudokuStatus.UNSOLVABLE;
+			} else {
+				byte newValue = strategy.selectValue(field, pos);
 				if (newValue == SudokuField.EMPTY) {
 
 					if (debugMode) {
 						System.out.println("no options left for " + pos);
 					}
 
-					return false;
+					restoreRemovedOptions(firstRemovedOption);
+					return SudokuStatus.UNSOLVABLE;
 				}
 
-				@SuppressWarnings("null")
-				SudokuField backupField = new SudokuField(field);
 				field.setValue(pos, newValue);
+				nodes++;
 
 				if (debugMode) {
 					field.print(pos);
 				}
 
-				// call solve again -> if result = true, then return true
-				// and puzzle is solved
-				if (solve())
-					return true;
-				else {
-					// else undo change
-					field = backupField;
+				// call solve again -> if result = SOLVED, then return and
+				// puzzle is solved
+				SudokuStatus status = SudokuStatus.TIMEOUT;
+				if (nodes < nextCheck || !isBudgetExhausted()) {
+					status = search();
+				}
+
+				if (status == SudokuStatus.SOLVED)
+					return status;
+				else if (status == SudokuStatus.TIMEOUT) {
+					// leave the field as it was before the search
+					field.clearValue(pos);
+					restoreRemovedOptions(firstRemovedOption);
+					return status;
+				} else {
+					// else undo change in place, the deeper levels already
+					// restored their own changes
+					field.clearValue(pos);
 					field.removeOption(pos, newValue);
+					addRemovedOption(pos, newValue);
+					backtracks++;
 
 					if (debugMode) {
 						System.out.println("UNDO value \"" + newValue + "\" at " + pos);
@@ -219,7 +432,7 @@ public class Sudoku {
 			System.out.println("*** SOLVED ***");
 		}
 
-		return true;
+		return SudokuStatus.SOLVED;
 	}
 
 	/**
@@ -227,7 +440,109 @@ public class Sudoku {
 	 *
 	 * @return true if solved or false if not solvable
 	 */
+	public boolean solve() {
+		return solve(SudokuBudget.UNLIMITED) == SudokuStatus.SOLVED;
+	}
+
+	/**
+	 * Solve the current Sudoku field within a budget. Fields that fail the
+	 * SudokuInputCheck are rejected before the search starts.
+	 *
+	 * @param budget
+	 *            max time and nodes of the search
+	 * @return SOLVED, UNSOLVABLE or TIMEOUT if the budget was exhausted or the
+	 *         thread was interrupted; the field is unchanged unless solved
+	 */
+	public @NonNull SudokuStatus solve(final @NonNull SudokuBudget budget) {
+		this.budget = budget;
+		this.nodes = 0;
+		this.backtracks = 0;
+		this.nextCheck = budget.nextCheck(0);
+
+		final SudokuEvents.Solve event = new SudokuEvents.Solve();
+		final int clues = field.numCellsFilled();
+		final long start = System.nanoTime();
+		event.begin();
+
+		SudokuStatus status = check().isValid() ? search() : SudokuStatus.UNSOLVABLE;
+
+		event.finish(strategy.toString(), clues, nodes, backtracks, status);
+		if (metrics != null) {
+			metrics.recordSolve(clues, status, nodes, System.nanoTime() - start);
+		}
+		return status;
+	}
+
+	/**
+	 * Solve the current Sudoku field and store the outcome in a result, which
+	 * can be reused for the next game.
+	 *
+	 * @param budget
+	 *            max time and nodes of the search
+	 * @param result
+	 *            receives status, solution and statistics
+	 * @return the specified result
+	 */
+	public @NonNull SudokuResult solve(final @NonNull SudokuBudget budget, final @NonNull SudokuResult result) {
+		long start = System.nanoTime();
+		SudokuStatus status = solve(budget);
+
+		if (status == SudokuStatus.SOLVED) {
+			byte[] solution = result.getSolution();
+			for (byte row = 0; row < SudokuField.MAX; row++) {
+				for (byte column = 0; column < SudokuField.MAX; column++) {
+					solution[row * SudokuField.MAX + column] = field.getValue(row, column);
+				}
+			}
+		}
+
+		return result.set(status, nodes, System.nanoTime() - start);
+	}
+
+	/**
+	 * Solve the current Sudoku field by sweeping over all cells with an
+	 * increasing maximum amount of options and copying the field per guess.
+	 *
+	 * @return true if solved or false if not solvable
+	 */
 	public boolean solveA() {
+		return solveA(SudokuBudget.UNLIMITED) == SudokuStatus.SOLVED;
+	}
+
+	/**
+	 * Solve the current Sudoku field like solveA() within a budget. Fields
+	 * that fail the SudokuInputCheck are rejected before the search starts.
+	 *
+	 * @param budget
+	 *            max time and nodes of the search
+	 * @return SOLVED, UNSOLVABLE or TIMEOUT if the budget was exhausted or the
+	 *         thread was interrupted; the field is unchanged unless solved
+	 */
+	public @NonNull SudokuStatus solveA(final @NonNull SudokuBudget budget) {
+		this.budget = budget;
+		this.nodes = 0;
+		this.backtracks = 0;
+		this.nextCheck = budget.nextCheck(0);
+
+		if (!check().isValid())
+			return SudokuStatus.UNSOLVABLE;
+
+		final SudokuField startField = field;
+		field = new SudokuField(startField);
+
+		SudokuStatus status = searchA();
+		if (status != SudokuStatus.SOLVED) {
+			field = startField;
+		}
+		return status;
+	}
+
+	/**
+	 * Sweep search of solveA().
+	 *
+	 * @return SOLVED, UNSOLVABLE or TIMEOUT
+	 */
+	private @NonNull SudokuStatus searchA() {
 		int depth = 1;
 
 		// as long as there are still empty cells
@@ -246,26 +561,33 @@ public class Sudoku {
 							System.out.println("no options left for " + pos);
 						}
 
-						return false;
+						return SudokuStatus.UNSOLVABLE;
 					}
 
 					@SuppressWarnings("null")
 					@NonNull
 					SudokuField backupField = new SudokuField(field);
 					field.setValue(pos, newValue);
+					nodes++;
 
 					if (debugMode) {
 						field.print(pos);
 					}
 
-					// call solve again -> if result = true, then return true
-					// and puzzle is solved
-					if (solve())
-						return true;
+					// call searchA again -> if result = SOLVED, then return and
+					// puzzle is solved
+					SudokuStatus status = SudokuStatus.TIMEOUT;
+					if (nodes < nextCheck || !isBudgetExhausted()) {
+						status = searchA();
+					}
+
+					if (status != SudokuStatus.UNSOLVABLE)
+						return status;
 					else {
 						// else undo change
 						field = backupField;
 						field.removeOption(pos, newValue);
+						backtracks++;
 
 						if (debugMode) {
 							System.out.println("UNDO value \"" + newValue + "\" at " + pos);
@@ -275,13 +597,18 @@ public class Sudoku {
 					}
 				}
 
-				// no options anymore but also not solve --> return false
+				// no options anymore but also not solved --> UNSOLVABLE
 				if (numOptions == 0)
-					return false;
+					return SudokuStatus.UNSOLVABLE;
 
 				// get next free position and quit loop if we are at the end of
-				// the field
-				pos = field.getNextEmptyPosition(pos);
+				// the field, getNextEmptyPosition starts again at the beginning
+				SudokuPosition nextPos = field.getNextEmptyPosition(pos);
+				if (nextPos != null && nextPos.getRow() * SudokuField.MAX + nextPos.getColumn() <= pos.getRow()
+						* SudokuField.MAX + pos.getColumn()) {
+					nextPos = null;
+				}
+				pos = nextPos;
 			}
 
 			if (depth < SudokuField.MAX) {
@@ -291,7 +618,7 @@ public class Sudoku {
 					System.out.println("-> NOT SOLVABLE");
 				}
 
-				return false;
+				return SudokuStatus.UNSOLVABLE;
 			}
 		}
 
@@ -299,7 +626,7 @@ public class Sudoku {
 			System.out.println("*** SOLVED ***");
 		}
 
-		return true;
+		return SudokuStatus.SOLVED;
 	}
 
 	/**
@@ -0,0 +1,395 @@
+package sudoku;
+
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Solves many games at once. The options of all games are stored per cell
+ * next to each other (options[cell * batchSize + game]), so every rule runs
+ * as a tight, branch-free loop over all games of a batch that the JIT
+ * compiler can vectorize. Games that are not finished by propagation are
+ * solved with Sudoku.solve().
+ */
+public final class SudokuBatchSolver {
+
+	private static final int ALL_OPTIONS = (1 << SudokuField.MAX) - 1;
+
+	/**
+	 * Default amount of games that are propagated together.
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 256;
+
+	private final int batchSize;
+
+	/**
+	 * Per game: set if a contradiction was found.
+	 */
+	private final int[] failed;
+
+	/**
+	 * Per game: numbers found in exactly one cell of the current unit.
+	 */
+	private final int[] hidden;
+
+	private int numSolvedByPropagation = 0;
+	private int numSolvedBySearch = 0;
+	private int numTimeouts = 0;
+	private int numUnsolvable = 0;
+
+	/**
+	 * Per game: numbers found in at least one cell of the current unit.
+	 */
+	private final int[] once;
+
+	/**
+	 * Options of all cells of all games, bit 0 for number 1.
+	 */
+	private final int[] options;
+
+	/**
+	 * Per game: numbers already placed in the current unit.
+	 */
+	private final int[] placed;
+
+	/**
+	 * Per game: numbers found in more than one cell of the current unit.
+	 */
+	private final int[] twice;
+
+	private final byte[] unitCells;
+
+	/**
+	 * Create a batch solver with the default batch size.
+	 */
+	public SudokuBatchSolver() {
+		this(DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * Create a batch solver.
+	 *
+	 * @param batchSize
+	 *            amount of games that are propagated together
+	 */
+	public SudokuBatchSolver(final int batchSize) {
+		if (batchSize < 1)
+			throw new IllegalArgumentException("batchSize must be at least 1");
+
+		this.batchSize = batchSize;
+		this.options = new int[SudokuField.CELLS * batchSize];
+		this.failed = new int[batchSize];
+		this.hidden = new int[batchSize];
+		this.once = new int[batchSize];
+		this.placed = new int[batchSize];
+		this.twice = new int[batchSize];
+		this.unitCells = SudokuTopology.UNIT_CELLS;
+	}
+
+	/**
+	 * Load games into the option arrays.
+	 *
+	 * @param sudokus
+	 * @param first
+	 *            index of the first game of the batch
+	 * @param count
+	 *            amount of games in the batch
+	 */
+	private void load(final @NonNull List<PackedSudoku> sudokus, final int first, final int count) {
+		for (int game = 0; game < count; game++) {
+			PackedSudoku sudoku = sudokus.get(first + game);
+			for (int cell = 0; cell < SudokuField.CELLS; cell++) {
+				byte value = sudoku.getValue(cell);
+				options[cell * batchSize + game] = (value == SudokuField.EMPTY) ? ALL_OPTIONS : 1 << (value - 1);
+			}
+			failed[game] = 0;
+		}
+	}
+
+	/**
+	 * Returns amount of games solved by propagation since the solver was
+	 * created.
+	 *
+	 * @return
+	 */
+	public int numSolvedByPropagation() {
+		return numSolvedByPropagation;
+	}
+
+	/**
+	 * Returns amount of games that needed Sudoku.solve() since the solver was
+	 * created.
+	 *
+	 * @return
+	 */
+	public int numSolvedBySearch() {
+		return numSolvedBySearch;
+	}
+
+	/**
+	 * Returns amount of games whose search exhausted its budget since the
+	 * solver was created.
+	 *
+	 * @return
+	 */
+	public int numTimeouts() {
+		return numTimeouts;
+	}
+
+	/**
+	 * Returns amount of games without solution since the solver was created.
+	 *
+	 * @return
+	 */
+	public int numUnsolvable() {
+		return numUnsolvable;
+	}
+
+	/**
+	 * Apply naked and hidden singles to all units of all games until nothing
+	 * changes anymore.
+	 *
+	 * @param count
+	 *            amount of games in the batch
+	 */
+	private void propagate(final int count) {
+		int changed = 1;
+		while (changed != 0) {
+			changed = 0;
+
+			for (int unit = 0; unit < SudokuField.UNITS; unit++) {
+				final int firstCell = unit * SudokuField.MAX;
+
+				for (int game = 0; game < count; game++) {
+					placed[game] = 0;
+					once[game] = 0;
+					twice[game] = 0;
+				}
+
+				for (int i = firstCell; i < firstCell + SudokuField.MAX; i++) {
+					final int offset = unitCells[i] * batchSize;
+					for (int game = 0; game < count; game++) {
+						int mask = options[offset + game];
+						// mask if exactly one option is left, else 0
+						int single = mask & (((mask & (mask - 1)) - 1) >> 31);
+						failed[game] |= placed[game] & single;
+						placed[game] |= single;
+						twice[game] |= once[game] & mask;
+						once[game] |= mask;
+					}
+				}
+
+				for (int game = 0; game < count; game++) {
+					failed[game] |= once[game] ^ ALL_OPTIONS;
+					hidden[game] = once[game] & ~twice[game];
+				}
+
+				for (int i = firstCell; i < firstCell + SudokuField.MAX; i++) {
+					final int offset = unitCells[i] * batchSize;
+					for (int game = 0; game < count; game++) {
+						int mask = options[offset + game];
+						int single = mask & (((mask & (mask - 1)) - 1) >> 31);
+
+						// remove numbers placed in other cells of the unit
+						int newMask = mask & ~(placed[game] & ~single);
+
+						// keep only a number that has no other cell left
+						int hiddenMask = newMask & hidden[game];
+						int keep = (hiddenMask - 1) >> 31;
+						newMask = (newMask & keep) | (hiddenMask & ~keep);
+
+						changed |= mask ^ newMask;
+						options[offset + game] = newMask;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Solve all games.
+	 *
+	 * @param sudokus
+	 *            games to be solved, they are not changed
+	 * @return solution per game or null if the game at the same index is not
+	 *         solvable
+	 */
+	public @NonNull PackedSudoku[] solve(final @NonNull List<PackedSudoku> sudokus) {
+		return solve(sudokus, SudokuBudget.UNLIMITED, (SudokuStatus[]) null);
+	}
+
+	/**
+	 * Solve all games within a budget. The deadline applies to the whole call,
+	 * the node limit to the search of every single game.
+	 *
+	 * @param sudokus
+	 *            games to be solved, they are not changed
+	 * @param budget
+	 *            max time and nodes
+	 * @param statuses
+	 *            receives the status of every game, can be null
+	 * @return solution per game or null if the game at the same index is not
+	 *         solvable or its search was stopped by the budget
+	 */
+	public @NonNull PackedSudoku[] solve(final @NonNull List<PackedSudoku> sudokus,
+			final @NonNull SudokuBudget budget, final SudokuStatus[] statuses) {
+		final PackedSudoku[] solutions = new PackedSudoku[sudokus.size()];
+		solve(sudokus, budget, null, solutions, statuses, null);
+		return solutions;
+	}
+
+	/**
+	 * Solve all games within a budget and store the outcome of every game in
+	 * the result at the same index. The results and their solution buffers
+	 * can be reused for the next call. The deadline applies to the whole
+	 * call, the node limit to the search of every single game.
+	 *
+	 * @param sudokus
+	 *            games to be solved, they are not changed
+	 * @param budget
+	 *            max time and nodes
+	 * @param results
+	 *            at least one result per game
+	 */
+	public void solve(final @NonNull List<PackedSudoku> sudokus, final @NonNull SudokuBudget budget,
+			final @NonNull SudokuResult[] results) {
+		if (results.length < sudokus.size())
+			throw new IllegalArgumentException("results needs at least " + sudokus.size() + " elements");
+
+		solve(sudokus, budget, null, null, null, results);
+	}
+
+	/**
+	 * Solve all games, each within its own budget, and store the outcome of
+	 * every game in the result at the same index. The games are still
+	 * propagated together, but the search of a game stops as soon as its own
+	 * budget is exhausted, independent of the budgets of the other games.
+	 *
+	 * @param sudokus
+	 *            games to be solved, they are not changed
+	 * @param budgets
+	 *            max time and nodes of the search of the game at the same
+	 *            index
+	 * @param results
+	 *            at least one result per game
+	 */
+	public void solve(final @NonNull List<PackedSudoku> sudokus, final @NonNull SudokuBudget[] budgets,
+			final @NonNull SudokuResult[] results) {
+		if (budgets.length < sudokus.size())
+			throw new IllegalArgumentException("budgets needs at least " + sudokus.size() + " elements");
+		if (results.length < sudokus.size())
+			throw new IllegalArgumentException("results needs at least " + sudokus.size() + " elements");
+
+		solve(sudokus, SudokuBudget.UNLIMITED, budgets, null, null, results);
+	}
+
+	/**
+	 * Solve all games and store the outcome in all specified arrays.
+	 *
+	 * @param sudokus
+	 * @param budget
+	 *            budget of all games if budgets is null
+	 * @param budgets
+	 *            budget per game, can be null
+	 * @param solutions
+	 *            receives the solution of every solved game, can be null
+	 * @param statuses
+	 *            receives the status of every game, can be null
+	 * @param results
+	 *            receives status, solution and statistics of every game, can
+	 *            be null
+	 */
+	private void solve(final @NonNull List<PackedSudoku> sudokus, final @NonNull SudokuBudget budget,
+			final SudokuBudget[] budgets, final PackedSudoku[] solutions, final SudokuStatus[] statuses,
+			final SudokuResult[] results) {
+		final byte[] cells = new byte[SudokuField.CELLS];
+
+		for (int first = 0; first < sudokus.size(); first += batchSize) {
+			final int count = Math.min(batchSize, sudokus.size() - first);
+			final SudokuEvents.BatchChunk event = new SudokuEvents.BatchChunk();
+			long clues = 0;
+			if (event.isEnabled()) {
+				for (int game = 0; game < count; game++) {
+					clues += sudokus.get(first + game).numCellsFilled();
+				}
+			}
+			final int propagated = numSolvedByPropagation;
+			long chunkNodes = 0;
+			long chunkBacktracks = 0;
+			event.begin();
+
+			load(sudokus, first, count);
+			propagate(count);
+
+			for (int game = 0; game < count; game++) {
+				boolean finished = true;
+				boolean valid = failed[game] == 0;
+
+				for (int cell = 0; cell < SudokuField.CELLS && valid; cell++) {
+					int mask = options[cell * batchSize + game];
+					if (mask == 0) {
+						valid = false;
+					} else if ((mask & (mask - 1)) == 0) {
+						cells[cell] = (byte) (Integer.numberOfTrailingZeros(mask) + 1);
+					} else {
+						cells[cell] = SudokuField.EMPTY;
+						finished = false;
+					}
+				}
+
+				long start = System.nanoTime();
+				long nodes = 0;
+				SudokuStatus status;
+				if (!valid) {
+					status = SudokuStatus.UNSOLVABLE;
+					numUnsolvable++;
+				} else if (finished) {
+					status = SudokuStatus.SOLVED;
+					if (solutions != null) {
+						solutions[first + game] = PackedSudoku.of(cells);
+					}
+					if (results != null) {
+						System.arraycopy(cells, 0, results[first + game].getSolution(), 0, SudokuField.CELLS);
+					}
+					numSolvedByPropagation++;
+				} else {
+					// continue with all values found by propagation
+					SudokuBudget gameBudget = (budgets != null) ? budgets[first + game] : budget;
+					Sudoku sudoku = new Sudoku(PackedSudoku.of(cells));
+					sudoku.setMetrics(null);
+					if (results != null) {
+						status = sudoku.solve(gameBudget, results[first + game]).getStatus();
+					} else {
+						status = sudoku.solve(gameBudget);
+					}
+					nodes = sudoku.getNodes();
+					chunkBacktracks += sudoku.getBacktracks();
+
+					if (status == SudokuStatus.SOLVED) {
+						if (solutions != null) {
+							solutions[first + game] = sudoku.pack();
+						}
+						numSolvedBySearch++;
+					} else if (status == SudokuStatus.TIMEOUT) {
+						numTimeouts++;
+					} else {
+						numUnsolvable++;
+					}
+				}
+
+				long nanos = System.nanoTime() - start;
+				if (results != null) {
+					results[first + game].set(status, nodes, nanos);
+				}
+				SudokuMetrics.GLOBAL.recordSolve(sudokus.get(first + game).numCellsFilled(), status, nodes, nanos);
+				if (statuses != null) {
+					statuses[first + game] = status;
+				}
+				chunkNodes += nodes;
+			}
+
+			event.finish("SudokuBatchSolver", count, clues, numSolvedByPropagation - propagated, chunkNodes,
+					chunkBacktracks);
+		}
+	}
+}
@@ -0,0 +1,162 @@
+package sudoku;
+
+import java.util.function.BooleanSupplier;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Limits the time and the amount of placed values (nodes) of a solve call.
+ * The deadline starts when the budget is created. Solvers compare the nodes
+ * with their next check on every node and only call isExpired() every
+ * CHECK_INTERVAL nodes, so a budget adds no measurable cost to the search.
+ * Budgets are immutable and can be shared between threads. A budget created
+ * with withCancel() also expires as soon as its condition is true, e.g. when
+ * nobody waits for the result anymore.
+ */
+public final class SudokuBudget {
+
+	/**
+	 * Amount of nodes between two calls of isExpired().
+	 */
+	public static final int CHECK_INTERVAL = 1024;
+
+	/**
+	 * Budget without limits. It does not react to thread interruption either.
+	 */
+	public static final @NonNull SudokuBudget UNLIMITED = new SudokuBudget(false, 0, Long.MAX_VALUE, null);
+
+	/**
+	 * Create a budget.
+	 *
+	 * @param timeoutMillis
+	 *            max time from now on in milliseconds
+	 * @param maxNodes
+	 *            max amount of nodes
+	 * @return
+	 */
+	public static @NonNull SudokuBudget of(final long timeoutMillis, final long maxNodes) {
+		if (timeoutMillis < 0)
+			throw new IllegalArgumentException("timeoutMillis must not be negative");
+		if (maxNodes < 0)
+			throw new IllegalArgumentException("maxNodes must not be negative");
+
+		return new SudokuBudget(true, System.nanoTime() + timeoutMillis * 1000000L, maxNodes, null);
+	}
+
+	/**
+	 * Create a budget without node limit.
+	 *
+	 * @param timeoutMillis
+	 *            max time from now on in milliseconds
+	 * @return
+	 */
+	public static @NonNull SudokuBudget ofMillis(final long timeoutMillis) {
+		return of(timeoutMillis, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Create a budget without time limit.
+	 *
+	 * @param maxNodes
+	 *            max amount of nodes
+	 * @return
+	 */
+	public static @NonNull SudokuBudget ofNodes(final long maxNodes) {
+		if (maxNodes < 0)
+			throw new IllegalArgumentException("maxNodes must not be negative");
+
+		return new SudokuBudget(false, 0, maxNodes, null);
+	}
+
+	/**
+	 * Condition that stops the solver, can be null.
+	 */
+	private final BooleanSupplier cancelled;
+
+	/**
+	 * Deadline in System.nanoTime(), only used if hasDeadline is set.
+	 */
+	private final long deadline;
+	private final boolean hasDeadline;
+	private final long maxNodes;
+
+	private SudokuBudget(final boolean hasDeadline, final long deadline, final long maxNodes,
+			final BooleanSupplier cancelled) {
+		this.hasDeadline = hasDeadline;
+		this.deadline = deadline;
+		this.maxNodes = maxNodes;
+		this.cancelled = cancelled;
+	}
+
+	/**
+	 * Max amount of nodes.
+	 *
+	 * @return Long.MAX_VALUE if nodes are not limited
+	 */
+	public long getMaxNodes() {
+		return maxNodes;
+	}
+
+	/**
+	 * Time left until the deadline.
+	 *
+	 * @return milliseconds, 0 if the deadline has passed or Long.MAX_VALUE if
+	 *         time is not limited
+	 */
+	public long getRemainingMillis() {
+		if (!hasDeadline)
+			return Long.MAX_VALUE;
+
+		return Math.max(0, (deadline - System.nanoTime()) / 1000000L);
+	}
+
+	/**
+	 * Check if the deadline has passed, the budget was cancelled or the
+	 * current thread was interrupted. The interrupt flag of the thread is not
+	 * cleared.
+	 *
+	 * @return
+	 */
+	public boolean isExpired() {
+		if (this == UNLIMITED)
+			return false;
+
+		return (hasDeadline && System.nanoTime() - deadline >= 0) || Thread.currentThread().isInterrupted()
+				|| (cancelled != null && cancelled.getAsBoolean());
+	}
+
+	/**
+	 * Create a budget with the same deadline and node limit that also expires
+	 * when a condition is true. The condition is checked together with the
+	 * deadline, so it has to be cheap and thread-safe.
+	 *
+	 * @param cancelled
+	 *            true if the solver has to stop
+	 * @return
+	 */
+	public @NonNull SudokuBudget withCancel(final @NonNull BooleanSupplier cancelled) {
+		return new SudokuBudget(hasDeadline, deadline, maxNodes, cancelled);
+	}
+
+	/**
+	 * Returns the node count at which the next check is due.
+	 *
+	 * @param nodes
+	 *            current amount of nodes
+	 * @return
+	 */
+	public long nextCheck(final long nodes) {
+		return Math.min(nodes + CHECK_INTERVAL, maxNodes);
+	}
+
+	/**
+	 * Check the budget, solvers call this when the next check is due.
+	 *
+	 * @param nodes
+	 *            current amount of nodes
+	 * @return true if the solver has to stop
+	 */
+	public boolean isExhausted(final long nodes) {
+		return nodes >= maxNodes || isExpired();
+	}
+}
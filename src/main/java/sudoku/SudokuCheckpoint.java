@@ -0,0 +1,193 @@
+package sudoku;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Progress of a long run that appends games to an output file. A checkpoint
+ * stores the amount of processed input games, the length of the output at
+ * that moment and the statistics so far in "output.checkpoint". It is
+ * written to a temporary file, synced and renamed atomically, so a crash
+ * leaves either the old or the new checkpoint. A resumed run cuts the output
+ * back to the length of the checkpoint before appending, so games written
+ * after the last checkpoint are neither lost nor duplicated.
+ */
+public final class SudokuCheckpoint {
+
+	/**
+	 * Default time between two checkpoints.
+	 */
+	public static final long DEFAULT_INTERVAL_MILLIS = 10000;
+
+	/**
+	 * Delete the checkpoint of an output, e.g. after the run finished.
+	 *
+	 * @param output
+	 * @throws IOException
+	 */
+	public static void delete(final @NonNull String output) throws IOException {
+		Files.deleteIfExists(new File(getFile(output)).toPath());
+	}
+
+	/**
+	 * Returns the checkpoint file of an output.
+	 *
+	 * @param output
+	 * @return
+	 */
+	public static @NonNull String getFile(final @NonNull String output) {
+		return output + ".checkpoint";
+	}
+
+	/**
+	 * Load the checkpoint of an output.
+	 *
+	 * @param output
+	 * @return checkpoint or null if there is none
+	 * @throws IOException
+	 *             if the checkpoint can not be read
+	 */
+	public static SudokuCheckpoint load(final @NonNull String output) throws IOException {
+		final String filename = getFile(output);
+		if (!new File(filename).exists())
+			return null;
+
+		try (BufferedReader br = new BufferedReader(
+				new InputStreamReader(new FileInputStream(filename), StandardCharsets.UTF_8))) {
+			String line = br.readLine();
+			String[] columns = (line == null) ? new String[0] : line.split(" ");
+			if (columns.length != 3 || !columns[0].equals("checkpoint"))
+				throw new IOException("invalid checkpoint \"" + filename + "\"");
+
+			try {
+				return new SudokuCheckpoint(Long.parseLong(columns[1]), Long.parseLong(columns[2]),
+						SudokuStats.read(br, filename));
+			} catch (IllegalArgumentException e) {
+				throw new IOException("invalid checkpoint \"" + filename + "\"", e);
+			}
+		}
+	}
+
+	/**
+	 * Open an output to append games. Without a checkpoint the output is
+	 * created or emptied, else it is cut back to the length of the
+	 * checkpoint.
+	 *
+	 * @param output
+	 * @param checkpoint
+	 *            checkpoint to resume or null to start a new run
+	 * @return stream positioned at the end of the output
+	 * @throws IOException
+	 *             if the output is shorter than the checkpoint
+	 */
+	public static @NonNull FileOutputStream openOutput(final @NonNull String output,
+			final SudokuCheckpoint checkpoint) throws IOException {
+		if (checkpoint == null)
+			return new FileOutputStream(output);
+
+		try (RandomAccessFile file = new RandomAccessFile(output, "rw")) {
+			if (file.length() < checkpoint.bytes)
+				throw new IOException("\"" + output + "\" is shorter than its checkpoint");
+			file.setLength(checkpoint.bytes);
+		}
+
+		return new FileOutputStream(output, true);
+	}
+
+	/**
+	 * Flush a writer and sync its file to the disk, so the output is at least
+	 * as long as a checkpoint saved afterwards.
+	 *
+	 * @param writer
+	 * @param out
+	 *            file stream of the writer
+	 * @throws IOException
+	 */
+	public static void sync(final @NonNull SudokuWriter writer, final @NonNull FileOutputStream out)
+			throws IOException {
+		writer.flush();
+		out.getFD().sync();
+	}
+
+	private final long bytes;
+	private final long games;
+	private final SudokuStats stats;
+
+	/**
+	 * Create a checkpoint.
+	 *
+	 * @param games
+	 *            amount of input games processed completely
+	 * @param bytes
+	 *            length of the output with all games processed so far
+	 * @param stats
+	 *            statistics of the processed games
+	 */
+	public SudokuCheckpoint(final long games, final long bytes, final @NonNull SudokuStats stats) {
+		if (games < 0 || bytes < 0)
+			throw new IllegalArgumentException("games and bytes must not be negative");
+
+		this.games = games;
+		this.bytes = bytes;
+		this.stats = stats;
+	}
+
+	/**
+	 * Length of the output with all games processed so far.
+	 *
+	 * @return
+	 */
+	public long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * Amount of input games processed completely.
+	 *
+	 * @return
+	 */
+	public long getGames() {
+		return games;
+	}
+
+	public @NonNull SudokuStats getStats() {
+		return stats;
+	}
+
+	/**
+	 * Save the checkpoint atomically. The output has to be flushed and synced
+	 * before, see sync().
+	 *
+	 * @param output
+	 * @throws IOException
+	 */
+	public void save(final @NonNull String output) throws IOException {
+		final File file = new File(getFile(output));
+		final File temp = new File(file.getPath() + ".tmp");
+
+		try (FileOutputStream out = new FileOutputStream(temp)) {
+			PrintWriter writer = new PrintWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+			writer.println("checkpoint " + games + " " + bytes);
+			stats.write(writer);
+			writer.flush();
+			if (writer.checkError())
+				throw new IOException("can not write \"" + temp + "\"");
+
+			out.getFD().sync();
+		}
+
+		Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+}
@@ -0,0 +1,72 @@
+package sudoku;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Additional rule of a Sudoku variant. A constraint contributes units to a
+ * SudokuGridLayout, so its cells become peers in the precomputed tables of the
+ * layout, and may restrict options beyond that while a SudokuGridSolver
+ * propagates.
+ */
+public interface SudokuConstraint {
+
+	/**
+	 * Regions that replace the standard sectors. Every region must contain as
+	 * many cells as the grid has rows.
+	 *
+	 * @param layoutSize
+	 *            number of rows and columns of the grid
+	 * @return regions with the indexes of their cells or null to keep the
+	 *         standard sectors
+	 */
+	default int[][] getRegions(final int layoutSize) {
+		return null;
+	}
+
+	/**
+	 * Additional units whose cells must contain different numbers. A unit with
+	 * as many cells as the grid has rows must contain every number.
+	 *
+	 * @param layoutSize
+	 *            number of rows and columns of the grid
+	 * @return units with the indexes of their cells
+	 */
+	default int[][] getUnits(final int layoutSize) {
+		return new int[0][];
+	}
+
+	/**
+	 * Returns whether propagate has to be called by the solver.
+	 *
+	 * @return
+	 */
+	default boolean hasPropagation() {
+		return false;
+	}
+
+	/**
+	 * Check the values of a grid against the rules that are not covered by the
+	 * units.
+	 *
+	 * @param grid
+	 * @param checkIfFinished
+	 *            if set, the method will also check whether all numbers are
+	 *            found.
+	 * @return True if grid is correct.
+	 */
+	default boolean isValid(final @NonNull SudokuGrid grid, final boolean checkIfFinished) {
+		return true;
+	}
+
+	/**
+	 * Remove options that are not allowed by the rules that are not covered by
+	 * the units.
+	 *
+	 * @param options
+	 *            current options of the solver
+	 * @return false if the options contradict the rules
+	 */
+	default boolean propagate(final @NonNull SudokuOptions options) {
+		return true;
+	}
+}
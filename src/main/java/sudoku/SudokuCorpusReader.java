@@ -0,0 +1,237 @@
+package sudoku;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Reads games from a corpus written by SudokuCorpusWriter. The blocks are
+ * read in order by the calling thread, but decompressed by a pool of threads
+ * that works ahead of the caller, so the next blocks are usually ready when
+ * the current one is consumed. Instances are not thread-safe.
+ */
+public final class SudokuCorpusReader implements Closeable {
+
+	/**
+	 * Blocks decompressed ahead per thread.
+	 */
+	public static final int BLOCKS_AHEAD_PER_THREAD = 2;
+
+	/**
+	 * Check if a stream starts with a corpus without consuming it.
+	 *
+	 * @param in
+	 *            stream that supports mark()
+	 * @return
+	 * @throws IOException
+	 */
+	public static boolean isCorpus(final @NonNull InputStream in) throws IOException {
+		if (!in.markSupported())
+			throw new IllegalArgumentException("in must support mark()");
+
+		final byte[] magic = new byte[SudokuCorpusWriter.MAGIC.length];
+		in.mark(magic.length);
+		try {
+			int length = 0;
+			int n;
+			while (length < magic.length && (n = in.read(magic, length, magic.length - length)) > 0) {
+				length += n;
+			}
+			return Arrays.equals(magic, SudokuCorpusWriter.MAGIC);
+		} finally {
+			in.reset();
+		}
+	}
+
+	/**
+	 * Decompress and check a block.
+	 *
+	 * @param compressed
+	 * @param games
+	 * @param checksum
+	 *            CRC32 of the values
+	 * @return 81 values per game
+	 * @throws IOException
+	 *             if the block is corrupt
+	 */
+	private static @NonNull byte[] decompress(final @NonNull byte[] compressed, final int games, final int checksum)
+			throws IOException {
+		final byte[] block = new byte[games * SudokuField.CELLS];
+		final Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(compressed);
+			int length = 0;
+			while (length < block.length && !inflater.finished()) {
+				int n = inflater.inflate(block, length, block.length - length);
+				if (n == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+					break;
+				length += n;
+			}
+			if (length != block.length || !inflater.finished())
+				throw new IOException("corrupt block with " + games + " games");
+		} catch (DataFormatException e) {
+			throw new IOException("corrupt block with " + games + " games", e);
+		} finally {
+			inflater.end();
+		}
+
+		final CRC32 crc = new CRC32();
+		crc.update(block, 0, block.length);
+		if ((int) crc.getValue() != checksum)
+			throw new IOException("checksum mismatch in block with " + games + " games");
+
+		return block;
+	}
+
+	private final Queue<Future<byte[]>> ahead = new ArrayDeque<Future<byte[]>>();
+	private byte[] block = new byte[0];
+	private final int blockSize;
+	private final byte[] cells = new byte[SudokuField.CELLS];
+	private boolean finished = false;
+	private final ExecutorService executor;
+	private final DataInputStream in;
+	private int offset = 0;
+	private long read = 0;
+	private final int threads;
+
+	/**
+	 * Create a reader and read the header.
+	 *
+	 * @param in
+	 *            stream that is closed by close()
+	 * @param threads
+	 *            amount of decompression threads
+	 * @throws IOException
+	 *             if the stream does not start with a valid header
+	 */
+	public SudokuCorpusReader(final @NonNull InputStream in, final int threads) throws IOException {
+		if (threads < 1)
+			throw new IllegalArgumentException("threads must be at least 1");
+
+		this.in = new DataInputStream(
+				(in instanceof BufferedInputStream) ? in : new BufferedInputStream(in, SudokuWriter.DEFAULT_BUFFER_SIZE));
+		this.threads = threads;
+
+		final byte[] magic = new byte[SudokuCorpusWriter.MAGIC.length];
+		try {
+			this.in.readFully(magic);
+			if (!Arrays.equals(magic, SudokuCorpusWriter.MAGIC))
+				throw new IOException("stream is no corpus");
+			int version = this.in.readInt();
+			if (version != SudokuCorpusWriter.VERSION)
+				throw new IOException("unsupported corpus version " + version);
+			this.blockSize = this.in.readInt();
+			if (blockSize < 1)
+				throw new IOException("invalid block size " + blockSize);
+		} catch (EOFException e) {
+			throw new IOException("incomplete corpus header", e);
+		}
+
+		this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "sudoku-corpus-reader");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Stop the decompression threads and close the stream.
+	 */
+	@Override
+	public void close() throws IOException {
+		executor.shutdownNow();
+		in.close();
+	}
+
+	/**
+	 * Read blocks from the stream and start their decompression until
+	 * enough blocks are ahead of the caller or the corpus ends.
+	 *
+	 * @throws IOException
+	 *             if the stream fails or ends before the end of the corpus
+	 */
+	private void fill() throws IOException {
+		while (!finished && ahead.size() < threads * BLOCKS_AHEAD_PER_THREAD) {
+			try {
+				final int games = in.readInt();
+				final int length = in.readInt();
+				final int checksum = in.readInt();
+				if (games == 0) {
+					finished = true;
+					return;
+				}
+				// deflate expands incompressible data only slightly
+				if (games < 0 || games > blockSize || length < 0 || length > 2 * games * SudokuField.CELLS + 1024)
+					throw new IOException("invalid block with " + games + " games and " + length + " bytes");
+
+				final byte[] compressed = new byte[length];
+				in.readFully(compressed);
+				ahead.add(executor.submit(() -> decompress(compressed, games, checksum)));
+			} catch (EOFException e) {
+				throw new IOException("corpus ends without end mark", e);
+			}
+		}
+	}
+
+	/**
+	 * Returns amount of games read since the reader was created.
+	 *
+	 * @return
+	 */
+	public long numRead() {
+		return read;
+	}
+
+	/**
+	 * Read the next game.
+	 *
+	 * @return game or null at the end of the corpus
+	 * @throws IOException
+	 *             if the stream fails or a block is corrupt
+	 */
+	public PackedSudoku read() throws IOException {
+		if (offset == block.length) {
+			fill();
+			Future<byte[]> next = ahead.poll();
+			if (next == null)
+				return null;
+
+			try {
+				block = next.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("interrupted while decompressing", e);
+			} catch (ExecutionException e) {
+				throw (e.getCause() instanceof IOException) ? (IOException) e.getCause()
+						: new IOException("decompression failed", e.getCause());
+			}
+			offset = 0;
+			fill();
+		}
+
+		System.arraycopy(block, offset, cells, 0, SudokuField.CELLS);
+		offset += SudokuField.CELLS;
+		read++;
+
+		try {
+			return PackedSudoku.of(cells);
+		} catch (IllegalArgumentException e) {
+			throw new IOException("invalid value in game " + read, e);
+		}
+	}
+}
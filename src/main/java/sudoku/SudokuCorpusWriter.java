@@ -0,0 +1,180 @@
+package sudoku;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Writes games to a compressed corpus that SudokuCorpusReader can decompress
+ * with several threads. The corpus starts with a header of MAGIC, VERSION
+ * and the max games per block, followed by independent blocks: the amount of
+ * games, the length and the CRC32 of the block, then the 81 values of every
+ * game compressed by a Deflater of its own. A block without games marks the
+ * end, so a truncated corpus is detected. All integers are big-endian.
+ * Instances are not thread-safe.
+ */
+public final class SudokuCorpusWriter implements Closeable {
+
+	/**
+	 * Default max games per block.
+	 */
+	public static final int DEFAULT_BLOCK_SIZE = 4096;
+
+	/**
+	 * First bytes of every corpus.
+	 */
+	static final byte[] MAGIC = { 'S', 'D', 'K', 'Z' };
+
+	/**
+	 * Version of the format.
+	 */
+	static final int VERSION = 1;
+
+	/**
+	 * Create a corpus file with the default block size.
+	 *
+	 * @param filename
+	 * @return
+	 * @throws IOException
+	 *             if the file can not be created
+	 */
+	public static @NonNull SudokuCorpusWriter create(final @NonNull String filename) throws IOException {
+		return new SudokuCorpusWriter(new FileOutputStream(filename), DEFAULT_BLOCK_SIZE, Deflater.DEFAULT_COMPRESSION);
+	}
+
+	private final byte[] block;
+	private final int blockSize;
+	private final byte[] cells = new byte[SudokuField.CELLS];
+	private byte[] compressed;
+	private final CRC32 crc = new CRC32();
+	private final Deflater deflater;
+	private int games = 0;
+	private final DataOutputStream out;
+	private long written = 0;
+
+	/**
+	 * Create a writer and write the header.
+	 *
+	 * @param out
+	 *            stream that is closed by close()
+	 * @param blockSize
+	 *            max games per block
+	 * @param level
+	 *            compression level of the Deflater [0-9] or -1 for the
+	 *            default
+	 * @throws IOException
+	 *             if the header can not be written
+	 */
+	public SudokuCorpusWriter(final @NonNull OutputStream out, final int blockSize, final int level)
+			throws IOException {
+		if (blockSize < 1)
+			throw new IllegalArgumentException("blockSize must be at least 1");
+		if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION)
+			throw new IllegalArgumentException("level has to be between -1 and 9");
+
+		this.out = new DataOutputStream(new BufferedOutputStream(out, SudokuWriter.DEFAULT_BUFFER_SIZE));
+		this.blockSize = blockSize;
+		this.block = new byte[blockSize * SudokuField.CELLS];
+		this.compressed = new byte[block.length / 4 + 64];
+		this.deflater = new Deflater(level);
+
+		this.out.write(MAGIC);
+		this.out.writeInt(VERSION);
+		this.out.writeInt(blockSize);
+	}
+
+	/**
+	 * Write the last block, the end of the corpus and close the stream.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			writeBlock();
+			out.writeInt(0);
+			out.writeInt(0);
+			out.writeInt(0);
+			out.flush();
+		} finally {
+			deflater.end();
+			out.close();
+		}
+	}
+
+	/**
+	 * Returns amount of games written since the writer was created.
+	 *
+	 * @return
+	 */
+	public long numWritten() {
+		return written;
+	}
+
+	/**
+	 * Write a game.
+	 *
+	 * @param cells
+	 *            81 values in row order
+	 * @throws IOException
+	 *             if the block was full and could not be written
+	 */
+	public void write(final @NonNull byte[] cells) throws IOException {
+		if (cells.length != SudokuField.CELLS)
+			throw new IllegalArgumentException("cells must contain exactly " + SudokuField.CELLS + " values");
+
+		System.arraycopy(cells, 0, block, games * SudokuField.CELLS, SudokuField.CELLS);
+		written++;
+		if (++games == blockSize) {
+			writeBlock();
+		}
+	}
+
+	/**
+	 * Write a game.
+	 *
+	 * @param sudoku
+	 * @throws IOException
+	 *             if the block was full and could not be written
+	 */
+	public void write(final @NonNull PackedSudoku sudoku) throws IOException {
+		write(sudoku.toBytes(cells));
+	}
+
+	/**
+	 * Compress and write the buffered games as one block.
+	 *
+	 * @throws IOException
+	 */
+	private void writeBlock() throws IOException {
+		if (games == 0)
+			return;
+
+		final int length = games * SudokuField.CELLS;
+		crc.reset();
+		crc.update(block, 0, length);
+
+		deflater.reset();
+		deflater.setInput(block, 0, length);
+		deflater.finish();
+		int size = 0;
+		while (!deflater.finished()) {
+			if (size == compressed.length) {
+				compressed = Arrays.copyOf(compressed, compressed.length * 2);
+			}
+			size += deflater.deflate(compressed, size, compressed.length - size);
+		}
+
+		out.writeInt(games);
+		out.writeInt(size);
+		out.writeInt((int) crc.getValue());
+		out.write(compressed, 0, size);
+		games = 0;
+	}
+}
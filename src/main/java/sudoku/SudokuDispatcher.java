@@ -0,0 +1,247 @@
+package sudoku;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Engine in front of the built-in engines that routes every puzzle to the
+ * engine that was fastest for puzzles with similar features. The table with
+ * one engine per bucket of SudokuFeatures is produced by calibrate() on a
+ * corpus and can be saved to and loaded from a text file. Buckets without
+ * samples use the engine that was fastest on the whole corpus.
+ */
+public final class SudokuDispatcher implements SudokuEngine {
+
+	/**
+	 * Measured runs per puzzle and engine.
+	 */
+	public static final int CALIBRATION_ROUNDS = 3;
+
+	/**
+	 * Default file of the calibration table.
+	 */
+	public static final @NonNull String CALIBRATION_FILE = "sudoku_calibration.txt";
+
+	/**
+	 * Engine of all buckets of an uncalibrated dispatcher.
+	 */
+	public static final @NonNull SudokuEngines DEFAULT_ENGINE = SudokuEngines.GRID;
+
+	/**
+	 * Measure every engine on every puzzle of a corpus and select the fastest
+	 * engine per bucket. Calibration solves are not counted in the
+	 * SudokuMetrics. Every engine solves the corpus once without
+	 * measurement to warm up, then the fastest of CALIBRATION_ROUNDS runs
+	 * counts per puzzle.
+	 *
+	 * @param sudokus
+	 *            corpus
+	 * @param budget
+	 *            budget per puzzle and engine, exhausted budgets count with
+	 *            the time spent
+	 * @return
+	 */
+	public static @NonNull SudokuDispatcher calibrate(final @NonNull List<PackedSudoku> sudokus,
+			final @NonNull SudokuBudget budget) {
+		final SudokuEngines[] engines = SudokuEngines.values();
+		final SudokuResult result = new SudokuResult();
+
+		final int[] buckets = new int[sudokus.size()];
+		final int[] samples = new int[SudokuFeatures.BUCKETS];
+		for (int i = 0; i < buckets.length; i++) {
+			buckets[i] = SudokuFeatures.of(sudokus.get(i)).getBucket();
+			samples[buckets[i]]++;
+		}
+
+		// fastest of all rounds per puzzle and engine, the engines take turns
+		// per puzzle so that they run under the same conditions
+		final long[][] fastest = new long[sudokus.size()][engines.length];
+		for (int round = 0; round <= CALIBRATION_ROUNDS; round++) {
+			for (int i = 0; i < buckets.length; i++) {
+				for (SudokuEngines engine : engines) {
+					long duration = engine.solve(sudokus.get(i), budget, result, null).getNanos();
+
+					// round 0 warms up
+					if (round == 1 || (round > 1 && duration < fastest[i][engine.ordinal()])) {
+						fastest[i][engine.ordinal()] = duration;
+					}
+				}
+			}
+		}
+
+		// nanos per bucket and engine
+		final long[][] nanos = new long[SudokuFeatures.BUCKETS][engines.length];
+		final long[] totalNanos = new long[engines.length];
+		for (int i = 0; i < buckets.length; i++) {
+			for (SudokuEngines engine : engines) {
+				nanos[buckets[i]][engine.ordinal()] += fastest[i][engine.ordinal()];
+				totalNanos[engine.ordinal()] += fastest[i][engine.ordinal()];
+			}
+		}
+
+		SudokuEngines fallback = DEFAULT_ENGINE;
+		for (SudokuEngines engine : engines) {
+			if (!sudokus.isEmpty() && totalNanos[engine.ordinal()] < totalNanos[fallback.ordinal()]) {
+				fallback = engine;
+			}
+		}
+
+		final SudokuEngines[] table = new SudokuEngines[SudokuFeatures.BUCKETS];
+		final long[] bestNanos = new long[SudokuFeatures.BUCKETS];
+		for (int bucket = 0; bucket < table.length; bucket++) {
+			table[bucket] = fallback;
+			if (samples[bucket] > 0) {
+				for (SudokuEngines engine : engines) {
+					if (nanos[bucket][engine.ordinal()] < nanos[bucket][table[bucket].ordinal()]) {
+						table[bucket] = engine;
+					}
+				}
+				bestNanos[bucket] = nanos[bucket][table[bucket].ordinal()] / samples[bucket];
+			}
+		}
+
+		return new SudokuDispatcher(table, samples, bestNanos);
+	}
+
+	/**
+	 * Load a calibration table written by save().
+	 *
+	 * @param filename
+	 * @return
+	 * @throws IOException
+	 *             if the file can not be read or is no calibration table
+	 */
+	public static @NonNull SudokuDispatcher load(final @NonNull String filename) throws IOException {
+		final SudokuEngines[] table = new SudokuEngines[SudokuFeatures.BUCKETS];
+		Arrays.fill(table, DEFAULT_ENGINE);
+
+		try (BufferedReader br = new BufferedReader(new FileReader(filename))) {
+			String line;
+			while ((line = br.readLine()) != null) {
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+
+				String[] columns = line.split("\\s+");
+				try {
+					table[Integer.parseInt(columns[0])] = SudokuEngines.valueOf(columns[1]);
+				} catch (RuntimeException e) {
+					throw new IOException("invalid calibration line \"" + line + "\" in \"" + filename + "\"", e);
+				}
+			}
+		}
+
+		return new SudokuDispatcher(table);
+	}
+
+	private final long[] nanos;
+	private final int[] samples;
+	private final SudokuEngines[] table;
+
+	/**
+	 * Create an uncalibrated dispatcher that uses DEFAULT_ENGINE for all
+	 * puzzles.
+	 */
+	public SudokuDispatcher() {
+		this(defaultTable());
+	}
+
+	/**
+	 * Create a dispatcher with a calibration table.
+	 *
+	 * @param table
+	 *            engine per bucket of SudokuFeatures
+	 */
+	public SudokuDispatcher(final @NonNull SudokuEngines[] table) {
+		this(table, new int[SudokuFeatures.BUCKETS], new long[SudokuFeatures.BUCKETS]);
+	}
+
+	private SudokuDispatcher(final @NonNull SudokuEngines[] table, final @NonNull int[] samples,
+			final @NonNull long[] nanos) {
+		if (table.length != SudokuFeatures.BUCKETS)
+			throw new IllegalArgumentException("table needs " + SudokuFeatures.BUCKETS + " engines");
+		for (SudokuEngines engine : table) {
+			if (engine == null)
+				throw new IllegalArgumentException("table must not contain null");
+		}
+
+		this.table = table.clone();
+		this.samples = samples;
+		this.nanos = nanos;
+	}
+
+	private static @NonNull SudokuEngines[] defaultTable() {
+		SudokuEngines[] table = new SudokuEngines[SudokuFeatures.BUCKETS];
+		Arrays.fill(table, DEFAULT_ENGINE);
+		return table;
+	}
+
+	/**
+	 * Returns the engine of a bucket.
+	 *
+	 * @param bucket
+	 *            [0 - SudokuFeatures.BUCKETS - 1]
+	 * @return
+	 */
+	public @NonNull SudokuEngines getEngine(final int bucket) {
+		if (bucket < 0 || bucket >= table.length)
+			throw new IndexOutOfBoundsException("bucket has to be between 0 and " + (table.length - 1));
+
+		return table[bucket];
+	}
+
+	/**
+	 * Save the calibration table, together with the samples and the average
+	 * time of the selected engine per bucket if the table was calibrated.
+	 *
+	 * @param filename
+	 * @throws IOException
+	 */
+	public void save(final @NonNull String filename) throws IOException {
+		try (PrintWriter writer = new PrintWriter(filename, "UTF-8")) {
+			writer.println("# bucket engine sudokus ns_per_sudoku");
+			for (int bucket = 0; bucket < table.length; bucket++) {
+				writer.println(bucket + " " + table[bucket] + " " + samples[bucket] + " " + nanos[bucket]);
+			}
+		}
+	}
+
+	/**
+	 * Select the engine for a puzzle.
+	 *
+	 * @param puzzle
+	 * @return
+	 */
+	public @NonNull SudokuEngines select(final @NonNull PackedSudoku puzzle) {
+		return table[SudokuFeatures.of(puzzle).getBucket()];
+	}
+
+	/**
+	 * Solve a game with the engine of its bucket and count the solve in a
+	 * registry.
+	 *
+	 * @param puzzle
+	 * @param budget
+	 * @param result
+	 * @param metrics
+	 *            registry, or null if the solve must not be counted
+	 * @return the specified result
+	 */
+	public @NonNull SudokuResult solve(final @NonNull PackedSudoku puzzle, final @NonNull SudokuBudget budget,
+			final @NonNull SudokuResult result, final SudokuMetrics metrics) {
+		return select(puzzle).solve(puzzle, budget, result, metrics);
+	}
+
+	@Override
+	public @NonNull SudokuResult solve(final @NonNull PackedSudoku puzzle, final @NonNull SudokuBudget budget,
+			final @NonNull SudokuResult result) {
+		return select(puzzle).solve(puzzle, budget, result);
+	}
+}
@@ -0,0 +1,37 @@
+package sudoku;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Solves a single 9x9 game. Implementations must be thread-safe.
+ */
+public interface SudokuEngine {
+
+	/**
+	 * Solve a game within a budget.
+	 *
+	 * @param puzzle
+	 *            game to be solved, it is not changed
+	 * @param budget
+	 *            max time and nodes of the search
+	 * @return new result
+	 */
+	default @NonNull SudokuResult solve(final @NonNull PackedSudoku puzzle, final @NonNull SudokuBudget budget) {
+		return solve(puzzle, budget, new SudokuResult());
+	}
+
+	/**
+	 * Solve a game within a budget and store the outcome in a result, which
+	 * can be reused for the next game.
+	 *
+	 * @param puzzle
+	 *            game to be solved, it is not changed
+	 * @param budget
+	 *            max time and nodes of the search
+	 * @param result
+	 *            receives status, solution and statistics
+	 * @return the specified result
+	 */
+	@NonNull
+	SudokuResult solve(@NonNull PackedSudoku puzzle, @NonNull SudokuBudget budget, @NonNull SudokuResult result);
+}
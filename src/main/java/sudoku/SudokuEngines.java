@@ -0,0 +1,108 @@
+package sudoku;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Built-in engines that can be selected by the SudokuDispatcher.
+ */
+public enum SudokuEngines implements SudokuEngine {
+
+	/**
+	 * Sudoku.solve() with the default strategy (MRV).
+	 */
+	CLASSIC {
+		@Override
+		public @NonNull SudokuResult solve(final @NonNull PackedSudoku puzzle, final @NonNull SudokuBudget budget,
+				final @NonNull SudokuResult result, final SudokuMetrics metrics) {
+			return solveClassic(puzzle, SudokuHeuristic.MRV, budget, result, metrics);
+		}
+	},
+
+	/**
+	 * Sudoku.solve() with the MRV_DEGREE strategy.
+	 */
+	CLASSIC_DEGREE {
+		@Override
+		public @NonNull SudokuResult solve(final @NonNull PackedSudoku puzzle, final @NonNull SudokuBudget budget,
+				final @NonNull SudokuResult result, final SudokuMetrics metrics) {
+			return solveClassic(puzzle, SudokuHeuristic.MRV_DEGREE, budget, result, metrics);
+		}
+	},
+
+	/**
+	 * SudokuGridSolver with bit masks, one solver and grid per thread.
+	 */
+	GRID {
+		@Override
+		public @NonNull SudokuResult solve(final @NonNull PackedSudoku puzzle, final @NonNull SudokuBudget budget,
+				final @NonNull SudokuResult result, final SudokuMetrics metrics) {
+			long start = System.nanoTime();
+			SudokuGridSolver solver = GRID_SOLVERS.get();
+			SudokuGrid grid = GRIDS.get();
+			if (metrics != null) {
+				metrics.recordCache(solver != null);
+			}
+			if (solver == null) {
+				solver = SudokuGridSolver.create(SudokuGridLayout.of(3));
+				grid = new SudokuGrid(solver.getLayout());
+				GRID_SOLVERS.set(solver);
+				GRIDS.set(grid);
+			}
+			puzzle.toBytes(grid.getValues());
+
+			solver.setMetrics(metrics);
+			SudokuStatus status = solver.solve(grid, budget);
+			if (status == SudokuStatus.SOLVED) {
+				System.arraycopy(grid.getValues(), 0, result.getSolution(), 0, SudokuField.CELLS);
+			}
+
+			return result.set(status, solver.getNodes(), System.nanoTime() - start);
+		}
+	};
+
+	private static final ThreadLocal<SudokuGrid> GRIDS = new ThreadLocal<SudokuGrid>();
+	private static final ThreadLocal<SudokuGridSolver> GRID_SOLVERS = new ThreadLocal<SudokuGridSolver>();
+
+	/**
+	 * Solve a game within a budget, store the outcome in a result and count
+	 * the solve in a registry.
+	 *
+	 * @param puzzle
+	 *            game to be solved, it is not changed
+	 * @param budget
+	 *            max time and nodes of the search
+	 * @param result
+	 *            receives status, solution and statistics
+	 * @param metrics
+	 *            registry, or null if the solve must not be counted, e.g.
+	 *            for calibrations and benchmarks
+	 * @return the specified result
+	 */
+	public abstract @NonNull SudokuResult solve(@NonNull PackedSudoku puzzle, @NonNull SudokuBudget budget,
+			@NonNull SudokuResult result, SudokuMetrics metrics);
+
+	@Override
+	public @NonNull SudokuResult solve(final @NonNull PackedSudoku puzzle, final @NonNull SudokuBudget budget,
+			final @NonNull SudokuResult result) {
+		return solve(puzzle, budget, result, SudokuMetrics.GLOBAL);
+	}
+
+	/**
+	 * Solve a game with Sudoku.solve().
+	 *
+	 * @param puzzle
+	 * @param strategy
+	 * @param budget
+	 * @param result
+	 * @param metrics
+	 * @return
+	 */
+	private static @NonNull SudokuResult solveClassic(final @NonNull PackedSudoku puzzle,
+			final @NonNull SudokuStrategy strategy, final @NonNull SudokuBudget budget,
+			final @NonNull SudokuResult result, final SudokuMetrics metrics) {
+		Sudoku sudoku = new Sudoku(puzzle);
+		sudoku.setStrategy(strategy);
+		sudoku.setMetrics(metrics);
+		return sudoku.solve(budget, result);
+	}
+}
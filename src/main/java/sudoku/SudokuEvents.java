@@ -0,0 +1,235 @@
+package sudoku;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder events of the solvers and the generator. All events
+ * are disabled by default, so they cost nothing unless a recording enables
+ * them, e.g. with "sudoku.Solve#enabled=true" in its settings. Every event
+ * is used in the same way:
+ *
+ * <pre>
+ * SudokuEvents.Solve event = new SudokuEvents.Solve();
+ * event.begin();
+ * ...
+ * event.finish(...);
+ * </pre>
+ *
+ * finish() only fills in the fields if the event is recorded.
+ */
+public final class SudokuEvents {
+
+	/**
+	 * One batch of SudokuBatchSolver.
+	 */
+	@Name("sudoku.BatchChunk")
+	@Label("Sudoku Batch Chunk")
+	@Category("Sudoku")
+	@Description("Propagation and search of one batch of games")
+	@Enabled(false)
+	@StackTrace(false)
+	public static final class BatchChunk extends Event {
+		@Label("Engine")
+		String engine;
+
+		@Label("Games")
+		int games;
+
+		@Label("Average Clues")
+		int clues;
+
+		@Label("Solved By Propagation")
+		int propagated;
+
+		@Label("Nodes")
+		long nodes;
+
+		@Label("Backtracks")
+		long backtracks;
+
+		/**
+		 * End the event and commit it if it is recorded.
+		 *
+		 * @param engine
+		 * @param games
+		 * @param clues
+		 *            given cells of all games
+		 * @param propagated
+		 *            games solved without search
+		 * @param nodes
+		 * @param backtracks
+		 */
+		void finish(final String engine, final int games, final long clues, final int propagated, final long nodes,
+				final long backtracks) {
+			end();
+			if (shouldCommit()) {
+				this.engine = engine;
+				this.games = games;
+				this.clues = (games == 0) ? 0 : (int) (clues / games);
+				this.propagated = propagated;
+				this.nodes = nodes;
+				this.backtracks = backtracks;
+				commit();
+			}
+		}
+	}
+
+	/**
+	 * Generation of a game by new Sudoku(predefinedCells).
+	 */
+	@Name("sudoku.Generate")
+	@Label("Sudoku Generate")
+	@Category("Sudoku")
+	@Description("Generation of a random game")
+	@Enabled(false)
+	@StackTrace(false)
+	public static final class Generate extends Event {
+		@Label("Engine")
+		String engine;
+
+		@Label("Clues")
+		int clues;
+
+		@Label("Nodes")
+		long nodes;
+
+		@Label("Backtracks")
+		long backtracks;
+
+		@Label("Success")
+		boolean success;
+
+		/**
+		 * End the event and commit it if it is recorded.
+		 *
+		 * @param engine
+		 * @param clues
+		 *            requested given cells
+		 * @param nodes
+		 * @param backtracks
+		 * @param success
+		 */
+		void finish(final String engine, final int clues, final long nodes, final long backtracks,
+				final boolean success) {
+			end();
+			if (shouldCommit()) {
+				this.engine = engine;
+				this.clues = clues;
+				this.nodes = nodes;
+				this.backtracks = backtracks;
+				this.success = success;
+				commit();
+			}
+		}
+	}
+
+	/**
+	 * Search of a solution.
+	 */
+	@Name("sudoku.Solve")
+	@Label("Sudoku Solve")
+	@Category("Sudoku")
+	@Description("Search of a solution of one game")
+	@Enabled(false)
+	@StackTrace(false)
+	public static final class Solve extends Event {
+		@Label("Engine")
+		String engine;
+
+		@Label("Clues")
+		int clues;
+
+		@Label("Nodes")
+		long nodes;
+
+		@Label("Backtracks")
+		long backtracks;
+
+		@Label("Status")
+		String status;
+
+		/**
+		 * End the event and commit it if it is recorded.
+		 *
+		 * @param engine
+		 * @param clues
+		 * @param nodes
+		 * @param backtracks
+		 * @param status
+		 */
+		void finish(final String engine, final int clues, final long nodes, final long backtracks,
+				final SudokuStatus status) {
+			end();
+			if (shouldCommit()) {
+				this.engine = engine;
+				this.clues = clues;
+				this.nodes = nodes;
+				this.backtracks = backtracks;
+				this.status = status.name();
+				commit();
+			}
+		}
+	}
+
+	/**
+	 * Counting of solutions, e.g. to check if a game has exactly one.
+	 */
+	@Name("sudoku.Uniqueness")
+	@Label("Sudoku Uniqueness Check")
+	@Category("Sudoku")
+	@Description("Counting of the solutions of one game up to a limit")
+	@Enabled(false)
+	@StackTrace(false)
+	public static final class Uniqueness extends Event {
+		@Label("Engine")
+		String engine;
+
+		@Label("Clues")
+		int clues;
+
+		@Label("Nodes")
+		long nodes;
+
+		@Label("Backtracks")
+		long backtracks;
+
+		@Label("Limit")
+		int limit;
+
+		@Label("Solutions")
+		int solutions;
+
+		/**
+		 * End the event and commit it if it is recorded.
+		 *
+		 * @param engine
+		 * @param clues
+		 * @param nodes
+		 * @param backtracks
+		 * @param limit
+		 * @param solutions
+		 */
+		void finish(final String engine, final int clues, final long nodes, final long backtracks, final int limit,
+				final int solutions) {
+			end();
+			if (shouldCommit()) {
+				this.engine = engine;
+				this.clues = clues;
+				this.nodes = nodes;
+				this.backtracks = backtracks;
+				this.limit = limit;
+				this.solutions = solutions;
+				commit();
+			}
+		}
+	}
+
+	private SudokuEvents() {
+	}
+}
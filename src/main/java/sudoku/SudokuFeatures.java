@@ -0,0 +1,165 @@
+package sudoku;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Cheap features of a 9x9 puzzle that are used by the SudokuDispatcher to
+ * select an engine: the amount of given cells, the total amount of candidates
+ * of all empty cells and the amount of empty cells with a single candidate.
+ * The features are mapped to one of BUCKETS buckets, so a calibration table
+ * needs one engine per bucket.
+ */
+public final class SudokuFeatures {
+
+	private static final int CANDIDATE_BANDS = 3;
+	private static final int CLUE_BANDS = 5;
+	private static final int SINGLES_BANDS = 3;
+
+	/**
+	 * Amount of different buckets.
+	 */
+	public static final int BUCKETS = CLUE_BANDS * CANDIDATE_BANDS * SINGLES_BANDS;
+
+	/**
+	 * Features of a field, based on its remaining options.
+	 *
+	 * @param field
+	 * @return
+	 */
+	public static @NonNull SudokuFeatures of(final @NonNull SudokuField field) {
+		int singles = 0;
+		for (byte row = 0; row < SudokuField.MAX; row++) {
+			for (byte column = 0; column < SudokuField.MAX; column++) {
+				if (field.getValue(row, column) == SudokuField.EMPTY && field.numRemainingOptions(row, column) == 1) {
+					singles++;
+				}
+			}
+		}
+
+		return new SudokuFeatures(field.numCellsFilled(), field.numRemainingOptionsTotal(), singles);
+	}
+
+	/**
+	 * Features of a game, computed with one mask per unit without creating a
+	 * field.
+	 *
+	 * @param sudoku
+	 * @return
+	 */
+	public static @NonNull SudokuFeatures of(final @NonNull PackedSudoku sudoku) {
+		final int[] masks = new int[SudokuField.UNITS];
+		final byte[] values = sudoku.toBytes(new byte[SudokuField.CELLS]);
+
+		int clues = 0;
+		for (int cell = 0; cell < SudokuField.CELLS; cell++) {
+			if (values[cell] != SudokuField.EMPTY) {
+				int units = cell * SudokuTopology.UNITS_PER_CELL;
+				int bit = 1 << (values[cell] - 1);
+				masks[SudokuTopology.CELL_UNITS[units]] |= bit;
+				masks[SudokuTopology.CELL_UNITS[units + 1]] |= bit;
+				masks[SudokuTopology.CELL_UNITS[units + 2]] |= bit;
+				clues++;
+			}
+		}
+
+		int candidates = 0;
+		int singles = 0;
+		for (int cell = 0; cell < SudokuField.CELLS; cell++) {
+			if (values[cell] == SudokuField.EMPTY) {
+				int units = cell * SudokuTopology.UNITS_PER_CELL;
+				int used = masks[SudokuTopology.CELL_UNITS[units]] | masks[SudokuTopology.CELL_UNITS[units + 1]]
+						| masks[SudokuTopology.CELL_UNITS[units + 2]];
+				int options = SudokuField.MAX - Integer.bitCount(used);
+				candidates += options;
+				singles += (options == 1) ? 1 : 0;
+			}
+		}
+
+		return new SudokuFeatures(clues, candidates, singles);
+	}
+
+	private final int candidates;
+	private final int clues;
+	private final int singles;
+
+	/**
+	 * Create features.
+	 *
+	 * @param clues
+	 *            amount of given cells [0-81]
+	 * @param candidates
+	 *            total amount of candidates of all empty cells
+	 * @param singles
+	 *            amount of empty cells with a single candidate
+	 */
+	public SudokuFeatures(final int clues, final int candidates, final int singles) {
+		if (clues < 0 || clues > SudokuField.CELLS)
+			throw new IllegalArgumentException("clues has to be between 0 and " + SudokuField.CELLS);
+		if (singles < 0 || singles > SudokuField.CELLS - clues)
+			throw new IllegalArgumentException("singles has to be between 0 and the amount of empty cells");
+
+		this.clues = clues;
+		this.candidates = candidates;
+		this.singles = singles;
+	}
+
+	/**
+	 * Bucket of the features in the calibration table. The bucket combines
+	 * the band of the clues (up to 21, 25, 29, 35 or more), the band of the
+	 * average candidates per empty cell (below 2.5, 3.5 or more) and the band
+	 * of the singles ratio (below 10%, 30% or more).
+	 *
+	 * @return [0 - BUCKETS - 1]
+	 */
+	public int getBucket() {
+		int clueBand = (clues <= 21) ? 0 : (clues <= 25) ? 1 : (clues <= 29) ? 2 : (clues <= 35) ? 3 : 4;
+
+		int empty = SudokuField.CELLS - clues;
+		int candidateBand = (2 * candidates < 5 * empty) ? 0 : (2 * candidates < 7 * empty) ? 1 : 2;
+		int singlesBand = (10 * singles < empty) ? 0 : (10 * singles < 3 * empty) ? 1 : 2;
+
+		return (clueBand * CANDIDATE_BANDS + candidateBand) * SINGLES_BANDS + singlesBand;
+	}
+
+	/**
+	 * Total amount of candidates of all empty cells.
+	 *
+	 * @return
+	 */
+	public int getCandidates() {
+		return candidates;
+	}
+
+	/**
+	 * Amount of given cells.
+	 *
+	 * @return
+	 */
+	public int getClues() {
+		return clues;
+	}
+
+	/**
+	 * Amount of empty cells with a single candidate.
+	 *
+	 * @return
+	 */
+	public int getSingles() {
+		return singles;
+	}
+
+	/**
+	 * Ratio of empty cells with a single candidate.
+	 *
+	 * @return [0.0 - 1.0], 0.0 if there are no empty cells
+	 */
+	public double getSinglesRatio() {
+		int empty = SudokuField.CELLS - clues;
+		return (empty == 0) ? 0.0 : (double) singles / empty;
+	}
+
+	@Override
+	public String toString() {
+		return clues + " clues, " + candidates + " candidates, " + singles + " singles";
+	}
+}
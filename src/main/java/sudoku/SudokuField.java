@@ -1,9 +1,8 @@
 package sudoku;
 
 import java.util.Arrays;
-import java.util.LinkedList;
-import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 import org.eclipse.jdt.annotation.NonNull;
 
@@ -29,61 +28,38 @@ public class SudokuField {
 	public static final byte MIN = 1;
 
 	/**
-	 *
-	 * @param size
-	 * @param defaultValue
-	 * @return
+	 * Number of units (9 rows, 9 columns and 9 sectors).
 	 */
-	private static boolean[] createNewBoolArray(final byte size, final boolean defaultValue) {
-		boolean[] array = new boolean[size];
-		Arrays.fill(array, defaultValue);
-		return array;
-	}
+	public static final byte UNITS = 27;
 
 	/**
 	 *
-	 * @param size
-	 * @param defaultValue
+	 * @param sector
+	 * @param pos
 	 * @return
 	 */
-	private static boolean[][] createNewBoolArray(final int rowSize, final int columnSize, final boolean defaultValue) {
-		boolean[][] array = new boolean[rowSize][columnSize];
+	public static byte getColumnBySectorPos(final int sector, final int pos) {
+		if (sector < MIN || sector > MAX)
+			throw new IndexOutOfBoundsException("sector has to be between 1 and 9");
 
-		for (int row = 0; row < rowSize; row++) {
-			Arrays.fill(array[row], defaultValue);
-		}
+		if (pos < 0 || pos > 8)
+			throw new IndexOutOfBoundsException("pos has to be between 0 and 8");
 
-		return array;
+		return SudokuTopology.COLUMNS[getCellBySectorPos(sector, pos)];
 	}
 
 	/**
+	 * Return index of a cell of a sector.
 	 *
 	 * @param sector
+	 *            [1-9]
 	 * @param pos
+	 *            [0-8]
 	 * @return
 	 */
-	public static byte getColumnBySectorPos(int sector, int pos) {
-		if (sector < MIN || sector > MAX)
-			throw new IndexOutOfBoundsException("sector has to be between 1 and 9");
-
-		if (pos < 0 || pos > 8)
-			throw new IndexOutOfBoundsException("pos has to be between 0 and 8");
-
-		if (sector > 6) {
-			sector = sector - 7;
-		} else if (sector > 3) {
-			sector = sector - 4;
-		} else {
-			sector = sector - 1;
-		}
-
-		if (pos > 5) {
-			pos = pos - 6;
-		} else if (pos > 2) {
-			pos = pos - 3;
-		}
-
-		return (byte) (pos + (sector * 3));
+	private static int getCellBySectorPos(final int sector, final int pos) {
+		return SudokuTopology.UNIT_CELLS[(SudokuTopology.FIRST_SECTOR_UNIT + sector - 1) * SudokuTopology.CELLS_PER_UNIT
+				+ pos];
 	}
 
 	/**
@@ -123,7 +99,7 @@ public class SudokuField {
 		if (pos < 0 || pos > 8)
 			throw new IndexOutOfBoundsException("pos has to be between 0 and 8");
 
-		return (byte) ((pos / 3) + (((sector - 1) / 3) * 3));
+		return SudokuTopology.ROWS[getCellBySectorPos(sector, pos)];
 	}
 
 	/**
@@ -139,7 +115,20 @@ public class SudokuField {
 		if (column < 0 || column > 8)
 			throw new IndexOutOfBoundsException("column has to be between 0 and 8");
 
-		return (byte) (((row / 3) * 3) + (column / 3) + 1);
+		return (byte) (SudokuTopology.SECTORS[SudokuTopology.getCell(row, column)] + 1);
+	}
+
+	/**
+	 * Return index of a number in unitCounts.
+	 *
+	 * @param unit
+	 *            unit [0-26]
+	 * @param value
+	 *            the number [1-9]
+	 * @return
+	 */
+	private static int getUnitCountIndex(final int unit, final byte value) {
+		return (unit * MAX) + value - 1;
 	}
 
 	/**
@@ -188,6 +177,35 @@ public class SudokuField {
 	 */
 	private final byte[][] remainingOptions;
 
+	/**
+	 * Store how often each number is placed per unit. Units 0-8 are the rows,
+	 * 9-17 the columns and 18-26 the sectors.
+	 */
+	private final byte[] unitCounts;
+
+	/**
+	 * Store the numbers placed per unit as bit mask, bit 0 for number 1 up to
+	 * bit 8 for number 9. Uses the same unit order as unitCounts.
+	 */
+	private final short[] unitMasks;
+
+	/**
+	 * Store how often each number is placed on the whole field, index 0 for
+	 * number 1.
+	 */
+	private final byte[] valueCounts;
+
+	/**
+	 * Store the options per cell that were removed explicitly with
+	 * removeOption, as bit mask like unitMasks.
+	 */
+	private final short[][] excludedOptions;
+
+	/**
+	 * Store amount of numbers that are placed more than once in a unit.
+	 */
+	private int conflicts = 0;
+
 	/**
 	 *
 	 */
@@ -195,6 +213,10 @@ public class SudokuField {
 		field = new byte[MAX][MAX];
 		remainingOptions = new byte[MAX][MAX];
 		options = new boolean[MAX][MAX][MAX];
+		unitCounts = new byte[UNITS * MAX];
+		unitMasks = new short[UNITS];
+		valueCounts = new byte[MAX];
+		excludedOptions = new short[MAX][MAX];
 		remainingEmptyCells = CELLS;
 
 		for (byte row = 0; row < MAX; row++) {
@@ -233,9 +255,15 @@ public class SudokuField {
 		options = fromField.options.clone();
 		remainingOptions = fromField.remainingOptions.clone();
 		remainingEmptyCells = fromField.remainingEmptyCells;
+		unitCounts = fromField.unitCounts.clone();
+		unitMasks = fromField.unitMasks.clone();
+		valueCounts = fromField.valueCounts.clone();
+		excludedOptions = fromField.excludedOptions.clone();
+		conflicts = fromField.conflicts;
 
 		for (byte row = 0; row < MAX; row++) {
 			field[row] = fromField.field[row].clone();
+			excludedOptions[row] = fromField.excludedOptions[row].clone();
 			remainingOptions[row] = fromField.remainingOptions[row].clone();
 			options[row] = fromField.options[row].clone();
 			for (byte column = 0; column < MAX; column++) {
@@ -245,11 +273,87 @@ public class SudokuField {
 	}
 
 	/**
+	 * Add an option that was removed with removeOption to the cell specified
+	 * by row and column again. The number only becomes an option if it is not
+	 * placed in the row, column or sector of the cell.
 	 *
-	 * @return
+	 * @param row
+	 *            current row [0-8]
+	 * @param column
+	 *            current cell [0-8]
+	 * @param value
+	 *            the number [1-9] that should be added as option
+	 */
+	public void addOption(final byte row, final byte column, final byte value) {
+		excludedOptions[row][column] &= ~(1 << (value - 1));
+		restoreOption(SudokuTopology.getCell(row, column), value);
+	}
+
+	/**
+	 * Add an option that was removed with removeOption to the cell specified
+	 * by position again.
+	 *
+	 * @param pos
+	 * @param value
+	 *            the number [1-9] that should be added as option
+	 */
+	public void addOption(final @NonNull SudokuPosition pos, final byte value) {
+		addOption(pos.getRow(), pos.getColumn(), value);
+	}
+
+	/**
+	 * Remove the number from the cell specified by row and column. The number
+	 * becomes an option again for the cell itself and for all cells of the
+	 * same row, column and sector that do not contain it anymore, except for
+	 * options that were removed with removeOption. Together with setValue this
+	 * allows to change a field in place instead of copying it.
+	 *
+	 * @param row
+	 *            current row [0-8] to clear
+	 * @param column
+	 *            current cell [0-8] to clear
+	 */
+	public void clearValue(final byte row, final byte column) {
+		byte value = field[row][column];
+		if (value == EMPTY)
+			return;
+
+		int cell = SudokuTopology.getCell(row, column);
+		field[row][column] = EMPTY;
+		remainingEmptyCells++;
+		updateUnitCounts(cell, value, -1);
+
+		// restore all options of the current cell
+		for (byte option = MIN; option <= MAX; option++) {
+			restoreOption(cell, option);
+		}
+
+		// restore value in currentRow, currentColumn and currentSector
+		int peerEnd = (cell + 1) * SudokuTopology.PEERS_PER_CELL;
+		for (int i = cell * SudokuTopology.PEERS_PER_CELL; i < peerEnd; i++) {
+			restoreOption(SudokuTopology.PEERS[i], value);
+		}
+	}
+
+	/**
+	 * Remove the number from the cell specified by position.
+	 *
+	 * @param pos
+	 */
+	public void clearValue(final @NonNull SudokuPosition pos) {
+		clearValue(pos.getRow(), pos.getColumn());
+	}
+
+	/**
+	 * Returns the first empty cell with the least options (minimum remaining
+	 * values).
+	 *
+	 * @return cell or null if an empty cell has no options left or the field
+	 *         is finished
 	 */
 	public SudokuPosition getBestEmptyPosition() {
-		List<SudokuPosition> positions = new LinkedList<SudokuPosition>();
+		byte bestRow = -1;
+		byte bestColumn = -1;
 		byte minOptions = MAX + 1;
 
 		for (byte row = 0; row < MAX; row++) {
@@ -263,13 +367,14 @@ public class SudokuField {
 						return new SudokuPosition(row, column);
 					else if (optionCount < minOptions) {
 						minOptions = optionCount;
-						positions.add(0, new SudokuPosition(row, column));
+						bestRow = row;
+						bestColumn = column;
 					}
 				}
 			}
 		}
 
-		return positions.get(0);
+		return (bestRow < 0) ? null : new SudokuPosition(bestRow, bestColumn);
 	}
 
 	/**
@@ -287,6 +392,26 @@ public class SudokuField {
 		return newField;
 	}
 
+	/**
+	 * Returns all options of the cell specified by row and column.
+	 *
+	 * @param row
+	 *            current row [0-8]
+	 * @param column
+	 *            current cell [0-8]
+	 * @return bit mask, bit 0 for number 1 up to bit 8 for number 9
+	 */
+	public int getOptionMask(final byte row, final byte column) {
+		int mask = 0;
+		for (int i = 0; i < MAX; i++) {
+			if (options[row][column][i]) {
+				mask |= 1 << i;
+			}
+		}
+
+		return mask;
+	}
+
 	/**
 	 * Return the next empty cell as row and column index.
 	 *
@@ -356,11 +481,20 @@ public class SudokuField {
 	 * @return
 	 */
 	public SudokuPosition getRandomEmptyPosition() {
+		return getRandomEmptyPosition(ThreadLocalRandom.current());
+	}
+
+	/**
+	 * Returns an empty position chosen by a random generator, so the choice
+	 * can be repeated with the same seed.
+	 *
+	 * @param r
+	 * @return
+	 */
+	public SudokuPosition getRandomEmptyPosition(final @NonNull Random r) {
 		if (remainingEmptyCells == 0)
 			return null;
 
-		Random r = new Random();
-
 		byte row = (byte) r.nextInt(SudokuField.MAX);
 		byte column = (byte) r.nextInt(SudokuField.MAX);
 
@@ -385,13 +519,25 @@ public class SudokuField {
 	 * @return value of next option or EMPTY (0) if no options left
 	 */
 	public byte getRandomOption(final byte row, final byte column) {
+		return getRandomOption(row, column, ThreadLocalRandom.current());
+	}
+
+	/**
+	 * Return a value that would be valid for this cell, chosen by a random
+	 * generator, so the choice can be repeated with the same seed.
+	 *
+	 * @param row
+	 * @param column
+	 * @param r
+	 * @return value of next option or EMPTY (0) if no options left
+	 */
+	public byte getRandomOption(final byte row, final byte column, final @NonNull Random r) {
 		byte max = remainingOptions[row][column];
 
 		if (max == 0)
 			return EMPTY;
 
 		// choose random position of valid remaining options
-		Random r = new Random();
 		byte n = (byte) r.nextInt(max);
 
 		boolean[] opt = options[row][column];
@@ -420,6 +566,17 @@ public class SudokuField {
 		return getRandomOption(pos.getRow(), pos.getColumn());
 	}
 
+	/**
+	 * Returns the numbers placed in a unit.
+	 *
+	 * @param unit
+	 *            [0-26], in the order of unitCounts
+	 * @return bit mask, bit 0 for number 1
+	 */
+	int getUnitMask(final int unit) {
+		return unitMasks[unit];
+	}
+
 	/**
 	 *
 	 * @param row
@@ -449,6 +606,37 @@ public class SudokuField {
 		return remainingEmptyCells == CELLS;
 	}
 
+	/**
+	 * Check if a number is placed more than once in any row, column or sector.
+	 *
+	 * @return True if at least one conflict exists.
+	 */
+	public boolean hasConflicts() {
+		return conflicts > 0;
+	}
+
+	/**
+	 * Check if the number of the cell specified by row and column is placed
+	 * more than once in its row, column or sector.
+	 *
+	 * @param row
+	 *            current row [0-8]
+	 * @param column
+	 *            current cell [0-8]
+	 * @return True if the cell is in conflict with another cell.
+	 */
+	public boolean isConflict(final byte row, final byte column) {
+		byte value = field[row][column];
+		if (value == EMPTY)
+			return false;
+
+		return (unitCounts[getUnitCountIndex(row, value)] > 1)
+				|| (unitCounts[getUnitCountIndex(MAX + column, value)] > 1)
+				|| (unitCounts[getUnitCountIndex(
+						SudokuTopology.CELL_UNITS[SudokuTopology.getCell(row, column) * SudokuTopology.UNITS_PER_CELL + 2],
+						value)] > 1);
+	}
+
 	/**
 	 * Check if current field is correct and has no invalid values.
 	 *
@@ -491,31 +679,16 @@ public class SudokuField {
 	 * @return True if field is correct.
 	 */
 	private boolean isValid(final boolean checkIfFinished) {
-		boolean[][] columnValues = createNewBoolArray(MAX, MAX, false);
-		for (byte row = 0; row < MAX; row++) {
-			boolean[] rowValues = createNewBoolArray(MAX, false);
-
-			for (byte column = 0; column < MAX; column++) {
-				byte value = field[row][column];
-
-				if (value > EMPTY) {
-					if (rowValues[value - 1])
-						return false;
-					else {
-						rowValues[value - 1] = true;
-					}
-
-					if (columnValues[column][value - 1])
-						return false;
-					else {
-						columnValues[column][value - 1] = true;
-					}
-				} else if (checkIfFinished)
-					return false;
-			}
-		}
+		return SudokuValidator.isValid(field, checkIfFinished);
+	}
 
-		return true;
+	/**
+	 * Count numbers that are placed more than once in a unit.
+	 *
+	 * @return Number of conflicts, 0 for a correct field.
+	 */
+	public int numConflicts() {
+		return conflicts;
 	}
 
 	/**
@@ -527,6 +700,17 @@ public class SudokuField {
 		return CELLS - remainingEmptyCells;
 	}
 
+	/**
+	 * Count how often a number is placed on the field.
+	 *
+	 * @param value
+	 *            the number [1-9]
+	 * @return
+	 */
+	public int numPlaced(final byte value) {
+		return valueCounts[value - 1];
+	}
+
 	/**
 	 * Count remaining empty cells.
 	 *
@@ -613,6 +797,8 @@ public class SudokuField {
 	 *            the number [1-9] that should be removed as option
 	 */
 	public void removeOption(final byte row, final byte column, final byte value) {
+		excludedOptions[row][column] |= 1 << (value - 1);
+
 		if (options[row][column][value - 1]) {
 			options[row][column][value - 1] = false;
 			remainingOptions[row][column]--;
@@ -633,6 +819,28 @@ public class SudokuField {
 		removeOption(pos.getRow(), pos.getColumn(), value);
 	}
 
+	/**
+	 * Add a number as option to an empty cell again if it is not placed in
+	 * the row, column or sector of the cell and was not removed explicitly.
+	 *
+	 * @param cell
+	 *            [0-80]
+	 * @param value
+	 */
+	private void restoreOption(final int cell, final byte value) {
+		byte row = SudokuTopology.ROWS[cell];
+		byte column = SudokuTopology.COLUMNS[cell];
+		int units = cell * SudokuTopology.UNITS_PER_CELL;
+		int blocked = unitMasks[SudokuTopology.CELL_UNITS[units]] | unitMasks[SudokuTopology.CELL_UNITS[units + 1]]
+				| unitMasks[SudokuTopology.CELL_UNITS[units + 2]] | excludedOptions[row][column];
+
+		if ((field[row][column] == EMPTY) && !options[row][column][value - 1]
+				&& ((blocked & (1 << (value - 1))) == 0)) {
+			options[row][column][value - 1] = true;
+			remainingOptions[row][column]++;
+		}
+	}
+
 	/**
 	 * Place a number to the cell specified by row and column.
 	 *
@@ -641,13 +849,20 @@ public class SudokuField {
 	 * @param column
 	 *            current cell [0-8] to place the number
 	 * @param value
-	 *            the number [1-9] that should be placed
+	 *            the number [1-9] that should be placed or EMPTY (0) to clear
+	 *            the cell
+	 * @return True if the number is not placed in the same row, column or
+	 *         sector already.
 	 */
-	public void setValue(final byte row, final byte column, final byte value) {
-		field[row][column] = value;
+	public boolean setValue(final byte row, final byte column, final byte value) {
+		if (field[row][column] == value)
+			return !isConflict(row, column);
+
+		clearValue(row, column);
 
 		if (value > EMPTY) {
-			byte sector = getSector(row, column);
+			int cell = SudokuTopology.getCell(row, column);
+			field[row][column] = value;
 			remainingEmptyCells--;
 			remainingOptions[row][column] = 0;
 
@@ -655,28 +870,22 @@ public class SudokuField {
 			Arrays.fill(options[row][column], false);
 
 			byte valueIndex = (byte) (value - 1);
-			for (byte i = 0; i < MAX; i++) {
-				// remove currentValue from currentRow
-				if (options[i][column][valueIndex]) {
-					options[i][column][valueIndex] = false;
-					remainingOptions[i][column]--;
-				}
-
-				// remove currentValue from currentColumn
-				if (options[row][i][valueIndex]) {
-					options[row][i][valueIndex] = false;
-					remainingOptions[row][i]--;
-				}
-
-				// remove currentValue from currentSector
-				byte currentRow = getRowBySectorPos(sector, i);
-				byte currentColumn = getColumnBySectorPos(sector, i);
+			// remove currentValue from currentRow, currentColumn and currentSector
+			int peerEnd = (cell + 1) * SudokuTopology.PEERS_PER_CELL;
+			for (int i = cell * SudokuTopology.PEERS_PER_CELL; i < peerEnd; i++) {
+				byte peer = SudokuTopology.PEERS[i];
+				byte currentRow = SudokuTopology.ROWS[peer];
+				byte currentColumn = SudokuTopology.COLUMNS[peer];
 				if (options[currentRow][currentColumn][valueIndex]) {
 					options[currentRow][currentColumn][valueIndex] = false;
 					remainingOptions[currentRow][currentColumn]--;
 				}
 			}
+
+			return updateUnitCounts(cell, value, 1);
 		}
+
+		return true;
 	}
 
 	/**
@@ -687,10 +896,66 @@ public class SudokuField {
 	 * @param column
 	 *            current cell [0-8] to place the number
 	 * @param value
-	 *            the number [1-9] that should be placed
+	 *            the number [1-9] that should be placed or EMPTY (0) to clear
+	 *            the cell
+	 * @return True if the number is not placed in the same row, column or
+	 *         sector already.
 	 */
-	public void setValue(final @NonNull SudokuPosition pos, final byte value) {
-		setValue(pos.getRow(), pos.getColumn(), value);
+	public boolean setValue(final @NonNull SudokuPosition pos, final byte value) {
+		return setValue(pos.getRow(), pos.getColumn(), value);
+	}
+
+	/**
+	 * Update the counters of the row, column and sector of a cell.
+	 *
+	 * @param cell
+	 *            [0-80]
+	 * @param value
+	 *            the number [1-9] that was placed or removed
+	 * @param delta
+	 *            1 if the number was placed, -1 if it was removed
+	 * @return True if no unit contains the number more than once.
+	 */
+	private boolean updateUnitCounts(final int cell, final byte value, final int delta) {
+		int units = cell * SudokuTopology.UNITS_PER_CELL;
+		int rowUnit = SudokuTopology.CELL_UNITS[units];
+		int columnUnit = SudokuTopology.CELL_UNITS[units + 1];
+		int sectorUnit = SudokuTopology.CELL_UNITS[units + 2];
+		int rowIndex = getUnitCountIndex(rowUnit, value);
+		int columnIndex = getUnitCountIndex(columnUnit, value);
+		int sectorIndex = getUnitCountIndex(sectorUnit, value);
+
+		// a unit is in conflict for every additional occurrence of a number
+		conflicts -= Math.max(unitCounts[rowIndex] - 1, 0) + Math.max(unitCounts[columnIndex] - 1, 0)
+				+ Math.max(unitCounts[sectorIndex] - 1, 0);
+		unitCounts[rowIndex] += delta;
+		unitCounts[columnIndex] += delta;
+		unitCounts[sectorIndex] += delta;
+		valueCounts[value - 1] += delta;
+		conflicts += Math.max(unitCounts[rowIndex] - 1, 0) + Math.max(unitCounts[columnIndex] - 1, 0)
+				+ Math.max(unitCounts[sectorIndex] - 1, 0);
+
+		updateUnitMask(rowUnit, rowIndex, value);
+		updateUnitMask(columnUnit, columnIndex, value);
+		updateUnitMask(sectorUnit, sectorIndex, value);
+
+		return (unitCounts[rowIndex] <= 1) && (unitCounts[columnIndex] <= 1) && (unitCounts[sectorIndex] <= 1);
+	}
+
+	/**
+	 * Set or clear the bit of a number in the mask of a unit depending on
+	 * whether the number is still placed in the unit.
+	 *
+	 * @param unit
+	 * @param countIndex
+	 * @param value
+	 */
+	private void updateUnitMask(final int unit, final int countIndex, final byte value) {
+		if (unitCounts[countIndex] > 0) {
+			unitMasks[unit] |= 1 << (value - 1);
+		} else {
+			unitMasks[unit] &= ~(1 << (value - 1));
+		}
 	}
 
 	/**
@@ -718,34 +983,23 @@ public class SudokuField {
 	 * @param showInfoText
 	 */
 	public String toString(final byte highlightRow, final byte highlightColumn, final boolean showInfoText) {
-		StringBuilder sb = new StringBuilder();
-		sb.append("+-----------+-----------+-----------+");
-		sb.append(System.lineSeparator());
+		final byte[] cells = new byte[CELLS];
 		for (byte row = 0; row < MAX; row++) {
-			sb.append("| ");
-			for (byte column = 0; column < MAX; column++) {
-				String value = " ";
-				if (field[row][column] > EMPTY) {
-					value = String.valueOf(field[row][column]);
-				}
+			System.arraycopy(field[row], 0, cells, row * MAX, MAX);
+		}
 
-				if ((row == highlightRow) && (column == highlightColumn)) {
-					sb.append("*" + value + "*");
-				} else {
-					sb.append(" " + value + " ");
-				}
-				if ((column + 1) % 3 == 0) {
-					sb.append(" | ");
-				}
-			}
-			sb.append(System.lineSeparator());
-			if ((row + 1) % 3 == 0) {
-				sb.append("+-----------+-----------+-----------+");
-				sb.append(System.lineSeparator());
-			}
+		final byte[] grid = new byte[SudokuFormat.GRID.getLength()];
+		boolean highlighted = highlightRow >= 0 && highlightRow < MAX && highlightColumn >= 0 && highlightColumn < MAX;
+		int highlight = highlighted ? highlightRow * MAX + highlightColumn : -1;
+		int length = SudokuFormat.renderGrid(cells, highlight, grid, 0);
+
+		StringBuilder sb = new StringBuilder(length + 64);
+		for (int i = 0; i < length; i++) {
+			sb.append((char) grid[i]);
 		}
 		if (showInfoText) {
-			sb.append("Remaining: " + numRemainingEmptyCells() + ", Options: " + numRemainingOptionsTotal());
+			sb.append("Remaining: ").append(numRemainingEmptyCells());
+			sb.append(", Options: ").append(numRemainingOptionsTotal());
 			sb.append(System.lineSeparator());
 		}
 
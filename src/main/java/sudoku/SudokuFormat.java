@@ -0,0 +1,183 @@
+package sudoku;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Text formats of a 9x9 game. Games are rendered from their values in row
+ * order directly into a byte array, a ByteBuffer or an Appendable without
+ * creating objects per cell, so writing millions of games is limited by the
+ * output and not by garbage.
+ */
+public enum SudokuFormat {
+
+	/**
+	 * Grid with borders around the sectors and 13 lines, as printed by
+	 * SudokuField.toString() and loaded by SudokuField.loadFromString().
+	 */
+	GRID {
+		@Override
+		public int getLength() {
+			return 4 * BORDER.length + 9 * ROW_LENGTH + 13 * SEPARATOR.length;
+		}
+
+		@Override
+		public int render(final @NonNull byte[] cells, final @NonNull byte[] out, final int offset) {
+			return renderGrid(cells, -1, out, offset);
+		}
+	},
+
+	/**
+	 * Single line with 81 characters, empty cells as '.', as printed by
+	 * PackedSudoku.toString() and loaded by SudokuGrid.loadFromString().
+	 */
+	LINE {
+		@Override
+		public int getLength() {
+			return SudokuField.CELLS;
+		}
+
+		@Override
+		public int render(final @NonNull byte[] cells, final @NonNull byte[] out, final int offset) {
+			for (int cell = 0; cell < SudokuField.CELLS; cell++) {
+				byte value = cells[cell];
+				out[offset + cell] = (value == SudokuField.EMPTY) ? (byte) '.' : (byte) ('0' + value);
+			}
+
+			return offset + SudokuField.CELLS;
+		}
+	};
+
+	/**
+	 * Line separator of the system.
+	 */
+	static final byte[] SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+
+	private static final byte[] BORDER = "+-----------+-----------+-----------+".getBytes(StandardCharsets.US_ASCII);
+
+	/**
+	 * "| " followed by three times three cells of three characters and " | ".
+	 */
+	private static final int ROW_LENGTH = 2 + 3 * (3 * 3 + 3);
+
+	/**
+	 * Copy a line separator.
+	 *
+	 * @param out
+	 * @param offset
+	 * @return offset after the separator
+	 */
+	private static int putSeparator(final @NonNull byte[] out, final int offset) {
+		System.arraycopy(SEPARATOR, 0, out, offset, SEPARATOR.length);
+		return offset + SEPARATOR.length;
+	}
+
+	/**
+	 * Render the grid format with an optionally highlighted cell.
+	 *
+	 * @param cells
+	 *            81 values in row order
+	 * @param highlight
+	 *            cell [0-80] surrounded by '*' or -1
+	 * @param out
+	 * @param offset
+	 *            index of the first byte in out
+	 * @return offset after the grid
+	 */
+	static int renderGrid(final @NonNull byte[] cells, final int highlight, final @NonNull byte[] out,
+			final int offset) {
+		int pos = offset;
+		System.arraycopy(BORDER, 0, out, pos, BORDER.length);
+		pos = putSeparator(out, pos + BORDER.length);
+
+		for (int row = 0; row < SudokuField.MAX; row++) {
+			out[pos++] = '|';
+			out[pos++] = ' ';
+			for (int column = 0; column < SudokuField.MAX; column++) {
+				int cell = row * SudokuField.MAX + column;
+				byte value = cells[cell];
+				byte frame = (cell == highlight) ? (byte) '*' : (byte) ' ';
+
+				out[pos++] = frame;
+				out[pos++] = (value > SudokuField.EMPTY) ? (byte) ('0' + value) : (byte) ' ';
+				out[pos++] = frame;
+				if ((column + 1) % 3 == 0) {
+					out[pos++] = ' ';
+					out[pos++] = '|';
+					out[pos++] = ' ';
+				}
+			}
+			pos = putSeparator(out, pos);
+
+			if ((row + 1) % 3 == 0) {
+				System.arraycopy(BORDER, 0, out, pos, BORDER.length);
+				pos = putSeparator(out, pos + BORDER.length);
+			}
+		}
+
+		return pos;
+	}
+
+	/**
+	 * Max amount of bytes of a rendered game.
+	 *
+	 * @return
+	 */
+	public abstract int getLength();
+
+	/**
+	 * Render a game into a byte array.
+	 *
+	 * @param cells
+	 *            81 values in row order
+	 * @param out
+	 *            array with at least getLength() bytes after offset
+	 * @param offset
+	 *            index of the first byte in out
+	 * @return offset after the rendered game
+	 */
+	public abstract int render(@NonNull byte[] cells, @NonNull byte[] out, int offset);
+
+	/**
+	 * Render a game to the position of a buffer. Buffers backed by an array
+	 * are rendered in place, other buffers through a temporary array.
+	 *
+	 * @param cells
+	 *            81 values in row order
+	 * @param buffer
+	 *            buffer with at least getLength() bytes remaining
+	 */
+	public void render(final @NonNull byte[] cells, final @NonNull ByteBuffer buffer) {
+		if (buffer.remaining() < getLength())
+			throw new IllegalArgumentException("buffer needs " + getLength() + " bytes remaining");
+
+		if (buffer.hasArray()) {
+			int start = buffer.arrayOffset() + buffer.position();
+			int end = render(cells, buffer.array(), start);
+			buffer.position(buffer.position() + end - start);
+		} else {
+			byte[] out = new byte[getLength()];
+			buffer.put(out, 0, render(cells, out, 0));
+		}
+	}
+
+	/**
+	 * Render a game to an Appendable, e.g. a StringBuilder or a Writer.
+	 *
+	 * @param cells
+	 *            81 values in row order
+	 * @param out
+	 * @throws IOException
+	 *             if the Appendable fails
+	 */
+	public void render(final @NonNull byte[] cells, final @NonNull Appendable out) throws IOException {
+		byte[] bytes = new byte[getLength()];
+		int length = render(cells, bytes, 0);
+		for (int i = 0; i < length; i++) {
+			out.append((char) bytes[i]);
+		}
+	}
+}
@@ -0,0 +1,350 @@
+package sudoku;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Values of a Sudoku grid with a variable size (4x4, 9x9, 16x16 or 25x25).
+ * Numbers above 9 are written as letters, A for 10 up to P for 25.
+ */
+public final class SudokuGrid {
+
+	/**
+	 * Value "0" for empty cell.
+	 */
+	public static final byte EMPTY = 0;
+
+	/**
+	 * Returns the character of a number.
+	 *
+	 * @param value
+	 * @return '.' for an empty cell, '1' - '9' or 'A' - 'P'
+	 */
+	public static char toChar(final int value) {
+		if (value == EMPTY)
+			return '.';
+		else if (value <= 9)
+			return (char) ('0' + value);
+		else
+			return (char) ('A' + value - 10);
+	}
+
+	/**
+	 * Returns the number of a character.
+	 *
+	 * @param c
+	 * @return number or EMPTY (0) for '.', '0' and ' '
+	 */
+	public static byte toValue(final char c) {
+		if (c == '.' || c == '0' || c == ' ')
+			return EMPTY;
+		else if (c >= '1' && c <= '9')
+			return (byte) (c - '0');
+		else if (c >= 'A' && c <= 'Z')
+			return (byte) (c - 'A' + 10);
+		else if (c >= 'a' && c <= 'z')
+			return (byte) (c - 'a' + 10);
+		else
+			throw new IllegalArgumentException("invalid character '" + c + "'");
+	}
+
+	/**
+	 * Load grid from String. Supports a single line with one character per
+	 * cell and the multi-line format created by toString().
+	 *
+	 * @param grid
+	 * @return grid with the size matching the amount of cells
+	 */
+	public static @NonNull SudokuGrid loadFromString(final @NonNull String grid) {
+		String line = grid.trim();
+		if (line.startsWith("+") || line.startsWith("|"))
+			return loadFromGridString(line);
+
+		SudokuGrid sudokuGrid = new SudokuGrid(SudokuGridLayout.ofSize((int) Math.round(Math.sqrt(line.length()))));
+		if (line.length() != sudokuGrid.getCells())
+			throw new IllegalArgumentException("invalid amount of cells: " + line.length());
+
+		for (int cell = 0; cell < line.length(); cell++) {
+			sudokuGrid.setValue(cell, toValue(line.charAt(cell)));
+		}
+
+		return sudokuGrid;
+	}
+
+	/**
+	 * Load grid of a Sudoku variant from String. Supports the same formats as
+	 * loadFromString(String).
+	 *
+	 * @param grid
+	 * @param layout
+	 *            layout of the variant
+	 * @return grid with the specified layout
+	 */
+	public static @NonNull SudokuGrid loadFromString(final @NonNull String grid,
+			final @NonNull SudokuGridLayout layout) {
+		SudokuGrid standardGrid = loadFromString(grid);
+		if (standardGrid.getSize() != layout.getSize())
+			throw new IllegalArgumentException("grid must have " + layout.getSize() + " rows");
+
+		SudokuGrid sudokuGrid = new SudokuGrid(layout);
+		System.arraycopy(standardGrid.values, 0, sudokuGrid.values, 0, sudokuGrid.values.length);
+		return sudokuGrid;
+	}
+
+	/**
+	 * Load grid from the multi-line format created by toString().
+	 *
+	 * @param grid
+	 * @return
+	 */
+	private static @NonNull SudokuGrid loadFromGridString(final @NonNull String grid) {
+		final List<String> rows = new ArrayList<String>();
+		for (String line : grid.split("\\r?\\n")) {
+			if (line.startsWith("|")) {
+				rows.add(line);
+			}
+		}
+
+		SudokuGrid sudokuGrid = new SudokuGrid(SudokuGridLayout.ofSize(rows.size()));
+		int size = sudokuGrid.getSize();
+		int sectorSize = sudokuGrid.layout.getSectorSize();
+
+		for (int row = 0; row < size; row++) {
+			String line = rows.get(row);
+			for (int column = 0; column < size; column++) {
+				// | 1 2 3 | 4 5 6 |
+				int columnIndex = 3 + (column * 3) + (column / sectorSize * 3);
+				sudokuGrid.setValue(row, column, toValue(line.charAt(columnIndex)));
+			}
+		}
+
+		return sudokuGrid;
+	}
+
+	private final SudokuGridLayout layout;
+
+	/**
+	 * Store the grid in row order. Empty cells contain a 0 as number.
+	 */
+	private final byte[] values;
+
+	/**
+	 * Create an empty grid.
+	 *
+	 * @param layout
+	 */
+	public SudokuGrid(final @NonNull SudokuGridLayout layout) {
+		this.layout = layout;
+		this.values = new byte[layout.getCells()];
+	}
+
+	/**
+	 * Create a copy of a grid.
+	 *
+	 * @param fromGrid
+	 */
+	public SudokuGrid(final @NonNull SudokuGrid fromGrid) {
+		this.layout = fromGrid.layout;
+		this.values = fromGrid.values.clone();
+	}
+
+	/**
+	 * Create a 9x9 grid from a field.
+	 *
+	 * @param field
+	 */
+	public SudokuGrid(final @NonNull SudokuField field) {
+		this(SudokuGridLayout.of(3));
+		for (byte row = 0; row < SudokuField.MAX; row++) {
+			for (byte column = 0; column < SudokuField.MAX; column++) {
+				values[row * SudokuField.MAX + column] = field.getValue(row, column);
+			}
+		}
+	}
+
+	/**
+	 * Number of cells.
+	 *
+	 * @return
+	 */
+	public int getCells() {
+		return values.length;
+	}
+
+	public @NonNull SudokuGridLayout getLayout() {
+		return layout;
+	}
+
+	/**
+	 * Number of rows, columns and the highest number.
+	 *
+	 * @return
+	 */
+	public int getSize() {
+		return layout.getSize();
+	}
+
+	/**
+	 *
+	 * @param cell
+	 *            index of the cell in row order
+	 * @return
+	 */
+	public byte getValue(final int cell) {
+		return values[cell];
+	}
+
+	/**
+	 *
+	 * @param row
+	 * @param column
+	 * @return
+	 */
+	public byte getValue(final int row, final int column) {
+		return values[row * layout.getSize() + column];
+	}
+
+	/**
+	 * Values of all cells in row order.
+	 *
+	 * @return shared array, changes are visible in the grid
+	 */
+	byte[] getValues() {
+		return values;
+	}
+
+	/**
+	 * Check if all units contain each number at most once and all rules of the
+	 * constraints of the layout are met.
+	 *
+	 * @param checkIfFinished
+	 *            if set, the method will also check whether all numbers are
+	 *            found.
+	 * @return True if grid is correct.
+	 */
+	public boolean isValid(final boolean checkIfFinished) {
+		int[] unitCells = layout.getUnitCells();
+		int[] unitStart = layout.getUnitStart();
+
+		for (int unit = 0; unit < layout.getUnits(); unit++) {
+			int mask = 0;
+			for (int i = unitStart[unit]; i < unitStart[unit + 1]; i++) {
+				byte value = values[unitCells[i]];
+				if (value == EMPTY) {
+					if (checkIfFinished)
+						return false;
+				} else {
+					int bit = 1 << (value - 1);
+					if (value > layout.getSize() || (mask & bit) != 0)
+						return false;
+					mask |= bit;
+				}
+			}
+		}
+
+		for (SudokuConstraint constraint : layout.getConstraints()) {
+			if (!constraint.isValid(this, checkIfFinished))
+				return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns amount of cells that are already filled out.
+	 *
+	 * @return
+	 */
+	public int numCellsFilled() {
+		int num = 0;
+		for (byte value : values) {
+			if (value != EMPTY) {
+				num++;
+			}
+		}
+
+		return num;
+	}
+
+	/**
+	 *
+	 * @param cell
+	 *            index of the cell in row order
+	 * @param value
+	 *            the number or EMPTY (0)
+	 */
+	public void setValue(final int cell, final byte value) {
+		if (value < EMPTY || value > layout.getSize())
+			throw new IllegalArgumentException("value has to be between 0 and " + layout.getSize());
+
+		values[cell] = value;
+	}
+
+	/**
+	 *
+	 * @param row
+	 * @param column
+	 * @param value
+	 *            the number or EMPTY (0)
+	 */
+	public void setValue(final int row, final int column, final byte value) {
+		setValue(row * layout.getSize() + column, value);
+	}
+
+	/**
+	 * Print grid as single line with one character per cell.
+	 *
+	 * @return
+	 */
+	public @NonNull String toLine() {
+		char[] line = new char[values.length];
+		for (int cell = 0; cell < values.length; cell++) {
+			line[cell] = toChar(values[cell]);
+		}
+
+		return new String(line);
+	}
+
+	/**
+	 * Print grid to String, in the same format as SudokuField.
+	 */
+	@Override
+	public String toString() {
+		int size = layout.getSize();
+		int sectorSize = layout.getSectorSize();
+
+		StringBuilder separator = new StringBuilder(size * 4 + 1);
+		separator.append('+');
+		for (int sector = 0; sector < sectorSize; sector++) {
+			for (int i = 0; i < sectorSize * 3 + 2; i++) {
+				separator.append('-');
+			}
+			separator.append('+');
+		}
+
+		StringBuilder sb = new StringBuilder((size + sectorSize + 1) * (separator.length() + 2));
+		sb.append(separator);
+		sb.append(System.lineSeparator());
+		for (int row = 0; row < size; row++) {
+			sb.append("| ");
+			for (int column = 0; column < size; column++) {
+				byte value = getValue(row, column);
+				sb.append(' ');
+				sb.append(value == EMPTY ? ' ' : toChar(value));
+				sb.append(' ');
+				if ((column + 1) % sectorSize == 0) {
+					sb.append(" | ");
+				}
+			}
+			sb.append(System.lineSeparator());
+			if ((row + 1) % sectorSize == 0) {
+				sb.append(separator);
+				sb.append(System.lineSeparator());
+			}
+		}
+
+		return sb.toString();
+	}
+}
@@ -0,0 +1,400 @@
+package sudoku;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Describes the rows, columns and sectors of a Sudoku grid with a variable
+ * size. A grid with sectors of n x n cells has n * n rows and columns, so the
+ * supported sector sizes 2 to 5 result in 4x4, 9x9, 16x16 and 25x25 grids.
+ * Variants add units or replace the sectors with a SudokuConstraint. All
+ * tables are calculated once and stored as flat arrays.
+ */
+public final class SudokuGridLayout {
+
+	/**
+	 * Max sector size = 5 for a 25x25 grid.
+	 */
+	public static final int MAX_SECTOR_SIZE = 5;
+
+	/**
+	 * Min sector size = 2 for a 4x4 grid.
+	 */
+	public static final int MIN_SECTOR_SIZE = 2;
+
+	/**
+	 * Standard layouts of all sector sizes, created when the class is loaded,
+	 * so of() needs no lock on the path of every solve.
+	 */
+	private static final SudokuGridLayout[] LAYOUTS = new SudokuGridLayout[MAX_SECTOR_SIZE + 1];
+
+	static {
+		for (int sectorSize = MIN_SECTOR_SIZE; sectorSize <= MAX_SECTOR_SIZE; sectorSize++) {
+			LAYOUTS[sectorSize] = new SudokuGridLayout(sectorSize, createStandardUnits(sectorSize),
+					new SudokuConstraint[0]);
+		}
+	}
+
+	/**
+	 * Create the units of a standard grid: all rows, then all columns, then all
+	 * sectors.
+	 *
+	 * @param sectorSize
+	 * @return list of units, each unit contains the indexes of its cells
+	 */
+	private static @NonNull List<int[]> createStandardUnits(final int sectorSize) {
+		final int size = sectorSize * sectorSize;
+		final List<int[]> units = new ArrayList<int[]>(3 * size);
+
+		for (int row = 0; row < size; row++) {
+			int[] unit = new int[size];
+			for (int column = 0; column < size; column++) {
+				unit[column] = row * size + column;
+			}
+			units.add(unit);
+		}
+
+		for (int column = 0; column < size; column++) {
+			int[] unit = new int[size];
+			for (int row = 0; row < size; row++) {
+				unit[row] = row * size + column;
+			}
+			units.add(unit);
+		}
+
+		for (int sector = 0; sector < size; sector++) {
+			int[] unit = new int[size];
+			int firstRow = (sector / sectorSize) * sectorSize;
+			int firstColumn = (sector % sectorSize) * sectorSize;
+			for (int pos = 0; pos < size; pos++) {
+				unit[pos] = (firstRow + pos / sectorSize) * size + firstColumn + pos % sectorSize;
+			}
+			units.add(unit);
+		}
+
+		return units;
+	}
+
+	/**
+	 * Returns the standard layout for a sector size.
+	 *
+	 * @param sectorSize
+	 *            number of rows and columns of a sector [2-5]
+	 * @return layout with rows, columns and sectors
+	 */
+	public static @NonNull SudokuGridLayout of(final int sectorSize) {
+		checkSectorSize(sectorSize);
+
+		return LAYOUTS[sectorSize];
+	}
+
+	/**
+	 * Returns a layout for a Sudoku variant.
+	 *
+	 * @param sectorSize
+	 *            number of rows and columns of a sector [2-5]
+	 * @param constraints
+	 *            rules of the variant
+	 * @return layout with rows, columns, sectors or regions and the units of
+	 *         all constraints
+	 */
+	public static @NonNull SudokuGridLayout of(final int sectorSize, final SudokuConstraint... constraints) {
+		if (constraints.length == 0)
+			return of(sectorSize);
+
+		checkSectorSize(sectorSize);
+
+		final int size = sectorSize * sectorSize;
+		final List<int[]> units = createStandardUnits(sectorSize);
+		boolean regionsReplaced = false;
+
+		for (SudokuConstraint constraint : constraints) {
+			int[][] regions = constraint.getRegions(size);
+			if (regions != null) {
+				if (regionsReplaced)
+					throw new IllegalArgumentException("only one constraint can replace the sectors");
+
+				// sectors are the last standard units
+				units.subList(2 * size, 3 * size).clear();
+				for (int[] region : regions) {
+					if (region.length != size)
+						throw new IllegalArgumentException("every region must contain " + size + " cells");
+					units.add(region.clone());
+				}
+				regionsReplaced = true;
+			}
+		}
+
+		for (SudokuConstraint constraint : constraints) {
+			for (int[] unit : constraint.getUnits(size)) {
+				units.add(unit.clone());
+			}
+		}
+
+		return new SudokuGridLayout(sectorSize, units, constraints.clone());
+	}
+
+	/**
+	 *
+	 * @param sectorSize
+	 */
+	private static void checkSectorSize(final int sectorSize) {
+		if (sectorSize < MIN_SECTOR_SIZE || sectorSize > MAX_SECTOR_SIZE)
+			throw new IndexOutOfBoundsException("sectorSize has to be between 2 and 5");
+	}
+
+	/**
+	 * Returns the standard layout for a grid with the specified number of
+	 * rows.
+	 *
+	 * @param size
+	 *            number of rows and columns (4, 9, 16 or 25)
+	 * @return layout with rows, columns and sectors
+	 */
+	public static @NonNull SudokuGridLayout ofSize(final int size) {
+		int sectorSize = (int) Math.round(Math.sqrt(size));
+		if (sectorSize * sectorSize != size)
+			throw new IllegalArgumentException("size has to be 4, 9, 16 or 25");
+
+		return of(sectorSize);
+	}
+
+	/**
+	 * Units of all cells, the units of a cell are stored from
+	 * cellUnitStart[cell] to cellUnitStart[cell + 1] - 1.
+	 */
+	private final int[] cellUnits;
+	private final int[] cellUnitStart;
+
+	private final int cells;
+
+	/**
+	 * Amount of units that must contain every number. These units are stored
+	 * before all other units.
+	 */
+	private final int completeUnits;
+
+	private final SudokuConstraint[] constraints;
+
+	/**
+	 * Peers of all cells, the peers of a cell are stored from peerStart[cell]
+	 * to peerStart[cell + 1] - 1.
+	 */
+	private final int[] peers;
+	private final int[] peerStart;
+	private final int sectorSize;
+	private final int size;
+
+	/**
+	 * Cells of all units, the cells of a unit are stored from unitStart[unit]
+	 * to unitStart[unit + 1] - 1.
+	 */
+	private final int[] unitCells;
+	private final int[] unitStart;
+
+	/**
+	 * Create a layout from its units. Units with as many cells as the grid has
+	 * rows must contain each number exactly once, all other units must contain
+	 * different numbers.
+	 *
+	 * @param sectorSize
+	 * @param allUnits
+	 * @param constraints
+	 */
+	private SudokuGridLayout(final int sectorSize, final @NonNull List<int[]> allUnits,
+			final @NonNull SudokuConstraint[] constraints) {
+		this.sectorSize = sectorSize;
+		this.size = sectorSize * sectorSize;
+		this.cells = size * size;
+		this.constraints = constraints;
+
+		// store complete units first
+		final List<int[]> units = new ArrayList<int[]>(allUnits.size());
+		for (int[] unit : allUnits) {
+			if (unit.length == size) {
+				units.add(unit);
+			}
+		}
+		completeUnits = units.size();
+		for (int[] unit : allUnits) {
+			if (unit.length != size) {
+				units.add(unit);
+			}
+		}
+
+		unitStart = new int[units.size() + 1];
+		int numUnitCells = 0;
+		for (int unit = 0; unit < units.size(); unit++) {
+			unitStart[unit] = numUnitCells;
+			numUnitCells += units.get(unit).length;
+		}
+		unitStart[units.size()] = numUnitCells;
+
+		unitCells = new int[numUnitCells];
+		for (int unit = 0; unit < units.size(); unit++) {
+			System.arraycopy(units.get(unit), 0, unitCells, unitStart[unit], units.get(unit).length);
+		}
+
+		cellUnitStart = new int[cells + 1];
+		for (int cell : unitCells) {
+			if (cell < 0 || cell >= cells)
+				throw new IndexOutOfBoundsException("cell has to be between 0 and " + (cells - 1));
+
+			cellUnitStart[cell + 1]++;
+		}
+		for (int cell = 0; cell < cells; cell++) {
+			cellUnitStart[cell + 1] += cellUnitStart[cell];
+		}
+
+		cellUnits = new int[unitCells.length];
+		final int[] numCellUnits = new int[cells];
+		for (int unit = 0; unit < units.size(); unit++) {
+			for (int cell : units.get(unit)) {
+				cellUnits[cellUnitStart[cell] + numCellUnits[cell]++] = unit;
+			}
+		}
+
+		// collect all cells sharing a unit with a cell, every peer only once
+		final boolean[][] isPeer = new boolean[cells][cells];
+		final int[] numPeers = new int[cells];
+		for (int[] unit : units) {
+			for (int cell : unit) {
+				for (int peer : unit) {
+					if (peer != cell && !isPeer[cell][peer]) {
+						isPeer[cell][peer] = true;
+						numPeers[cell]++;
+					}
+				}
+			}
+		}
+
+		peerStart = new int[cells + 1];
+		for (int cell = 0; cell < cells; cell++) {
+			peerStart[cell + 1] = peerStart[cell] + numPeers[cell];
+		}
+
+		peers = new int[peerStart[cells]];
+		for (int cell = 0; cell < cells; cell++) {
+			int index = peerStart[cell];
+			for (int peer = 0; peer < cells; peer++) {
+				if (isPeer[cell][peer]) {
+					peers[index++] = peer;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Units of all cells. Use getCellUnitStart to find the units of a cell.
+	 *
+	 * @return shared table, must not be changed
+	 */
+	int[] getCellUnits() {
+		return cellUnits;
+	}
+
+	/**
+	 * Index of the first unit of each cell in getCellUnits, with an additional
+	 * element for the end of the last cell.
+	 *
+	 * @return shared table, must not be changed
+	 */
+	int[] getCellUnitStart() {
+		return cellUnitStart;
+	}
+
+	/**
+	 * Number of cells.
+	 *
+	 * @return
+	 */
+	public int getCells() {
+		return cells;
+	}
+
+	/**
+	 * Amount of units that must contain every number. These are the units
+	 * from 0 to getCompleteUnits() - 1.
+	 *
+	 * @return
+	 */
+	public int getCompleteUnits() {
+		return completeUnits;
+	}
+
+	/**
+	 * Constraints of the variant.
+	 *
+	 * @return shared array, must not be changed
+	 */
+	SudokuConstraint[] getConstraints() {
+		return constraints;
+	}
+
+	/**
+	 * Peers of all cells. Use getPeerStart to find the peers of a cell.
+	 *
+	 * @return shared table, must not be changed
+	 */
+	int[] getPeers() {
+		return peers;
+	}
+
+	/**
+	 * Index of the first peer of each cell in getPeers, with an additional
+	 * element for the end of the last cell.
+	 *
+	 * @return shared table, must not be changed
+	 */
+	int[] getPeerStart() {
+		return peerStart;
+	}
+
+	/**
+	 * Number of rows and columns of a sector.
+	 *
+	 * @return
+	 */
+	public int getSectorSize() {
+		return sectorSize;
+	}
+
+	/**
+	 * Number of rows, columns and the highest number.
+	 *
+	 * @return
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Cells of all units. Use getUnitStart to find the cells of a unit.
+	 *
+	 * @return shared table, must not be changed
+	 */
+	int[] getUnitCells() {
+		return unitCells;
+	}
+
+	/**
+	 * Index of the first cell of each unit in getUnitCells, with an additional
+	 * element for the end of the last unit.
+	 *
+	 * @return shared table, must not be changed
+	 */
+	int[] getUnitStart() {
+		return unitStart;
+	}
+
+	/**
+	 * Number of units.
+	 *
+	 * @return
+	 */
+	public int getUnits() {
+		return unitStart.length - 1;
+	}
+}
@@ -0,0 +1,221 @@
+package sudoku;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Solves grids of one layout with constraint propagation (naked and hidden
+ * singles plus the rules of the constraints of the layout) and depth-first
+ * search on the cell with the least options. The options of all cells are
+ * stored as bit masks; create() chooses an engine with short masks for grids
+ * up to 16x16 and int masks for 25x25 grids. Instances keep their search stack
+ * between calls and are not thread-safe.
+ */
+public abstract class SudokuGridSolver {
+
+	/**
+	 * Create a solver for a layout.
+	 *
+	 * @param layout
+	 * @return solver with the smallest mask type for the layout
+	 */
+	public static @NonNull SudokuGridSolver create(final @NonNull SudokuGridLayout layout) {
+		if (layout.getSize() <= 16)
+			return new ShortMaskGridSolver(layout);
+		else
+			return new IntMaskGridSolver(layout);
+	}
+
+	/**
+	 * Number of guesses taken back during the last call.
+	 */
+	protected long backtracks = 0;
+
+	/**
+	 * Budget of the current call and the node count of its next check.
+	 */
+	protected @NonNull SudokuBudget budget = SudokuBudget.UNLIMITED;
+	protected long nextCheck = 0;
+
+	protected final int cells;
+	protected final int completeUnits;
+	protected final SudokuGridLayout layout;
+
+	/**
+	 * Registry that counts the solve calls of 9x9 grids, can be null.
+	 */
+	protected SudokuMetrics metrics = SudokuMetrics.GLOBAL;
+
+	/**
+	 * Number of placed values during the last call, including guesses.
+	 */
+	protected long nodes = 0;
+
+	protected final int[] peers;
+	protected final int[] peerStart;
+
+	/**
+	 * Constraints that restrict options beyond the units of the layout.
+	 */
+	protected final SudokuConstraint[] propagators;
+
+	/**
+	 * Cells with exactly one option whose peers still have to be updated.
+	 */
+	protected final int[] queue;
+	protected int queueSize = 0;
+
+	/**
+	 * Set if the last call stopped because its budget was exhausted.
+	 */
+	protected boolean timeout = false;
+
+	protected final int[] unitCells;
+	protected final int[] unitStart;
+	protected final int units;
+
+	protected SudokuGridSolver(final @NonNull SudokuGridLayout layout) {
+		this.layout = layout;
+		this.cells = layout.getCells();
+		this.units = layout.getUnits();
+		this.completeUnits = layout.getCompleteUnits();
+		this.peers = layout.getPeers();
+		this.peerStart = layout.getPeerStart();
+		this.unitCells = layout.getUnitCells();
+		this.unitStart = layout.getUnitStart();
+		this.queue = new int[cells];
+
+		int numPropagators = 0;
+		for (SudokuConstraint constraint : layout.getConstraints()) {
+			if (constraint.hasPropagation()) {
+				numPropagators++;
+			}
+		}
+
+		propagators = new SudokuConstraint[numPropagators];
+		numPropagators = 0;
+		for (SudokuConstraint constraint : layout.getConstraints()) {
+			if (constraint.hasPropagation()) {
+				propagators[numPropagators++] = constraint;
+			}
+		}
+	}
+
+	/**
+	 * Count the solutions of a grid. The grid is not changed.
+	 *
+	 * @param grid
+	 * @param limit
+	 *            stop counting as soon as this amount is reached
+	 * @return amount of solutions, at most limit
+	 */
+	public int countSolutions(final @NonNull SudokuGrid grid, final int limit) {
+		return countSolutions(grid, limit, SudokuBudget.UNLIMITED);
+	}
+
+	/**
+	 * Count the solutions of a grid within a budget. The grid is not changed.
+	 *
+	 * @param grid
+	 * @param limit
+	 *            stop counting as soon as this amount is reached
+	 * @param budget
+	 *            max time and nodes, use isTimeout() to check if it was
+	 *            exhausted
+	 * @return amount of solutions, at most limit
+	 */
+	public abstract int countSolutions(@NonNull SudokuGrid grid, int limit, @NonNull SudokuBudget budget);
+
+	/**
+	 * Returns the amount of guesses taken back during the last call.
+	 *
+	 * @return
+	 */
+	public long getBacktracks() {
+		return backtracks;
+	}
+
+	public @NonNull SudokuGridLayout getLayout() {
+		return layout;
+	}
+
+	/**
+	 * Returns the amount of values placed during the last call.
+	 *
+	 * @return
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * Returns true if the last call stopped because its budget was exhausted
+	 * or the thread was interrupted.
+	 *
+	 * @return
+	 */
+	public boolean isTimeout() {
+		return timeout;
+	}
+
+	/**
+	 * Set the registry that counts the solve calls of 9x9 grids.
+	 *
+	 * @param metrics
+	 *            registry, SudokuMetrics.GLOBAL by default, or null if the
+	 *            solves are internal steps of the caller, e.g. of a generator
+	 */
+	public void setMetrics(final SudokuMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Solve a grid. If a solution is found, all empty cells of the grid are
+	 * filled.
+	 *
+	 * @param grid
+	 * @return true if solved or false if not solvable
+	 */
+	public boolean solve(final @NonNull SudokuGrid grid) {
+		return solve(grid, SudokuBudget.UNLIMITED) == SudokuStatus.SOLVED;
+	}
+
+	/**
+	 * Solve a grid within a budget. If a solution is found, all empty cells of
+	 * the grid are filled.
+	 *
+	 * @param grid
+	 * @param budget
+	 *            max time and nodes of the search
+	 * @return SOLVED, UNSOLVABLE or TIMEOUT, the grid is unchanged unless
+	 *         solved
+	 */
+	public abstract @NonNull SudokuStatus solve(@NonNull SudokuGrid grid, @NonNull SudokuBudget budget);
+
+	/**
+	 * Check the layout of a grid and reset the counters for a new call.
+	 *
+	 * @param grid
+	 * @param budget
+	 */
+	protected void start(final @NonNull SudokuGrid grid, final @NonNull SudokuBudget budget) {
+		if (grid.getLayout() != layout)
+			throw new IllegalArgumentException("grid does not match the layout of the solver");
+
+		this.budget = budget;
+		this.nodes = 0;
+		this.backtracks = 0;
+		this.nextCheck = budget.nextCheck(0);
+		this.timeout = false;
+	}
+
+	/**
+	 * Check the budget of the current call, called when the next check is due.
+	 *
+	 * @return true if the search has to stop
+	 */
+	protected boolean isBudgetExhausted() {
+		nextCheck = budget.nextCheck(nodes);
+		timeout = budget.isExhausted(nodes);
+		return timeout;
+	}
+}
@@ -0,0 +1,108 @@
+package sudoku;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Built-in strategies of Sudoku.solve(). Use "Main benchmark" to compare the
+ * nodes they need per amount of predefined cells.
+ */
+public enum SudokuHeuristic implements SudokuStrategy {
+
+	/**
+	 * First cell with the least options (minimum remaining values), numbers in
+	 * ascending order.
+	 */
+	MRV {
+		@Override
+		public SudokuPosition selectPosition(final @NonNull SudokuField field) {
+			return field.getBestEmptyPosition();
+		}
+	},
+
+	/**
+	 * Cell with the least options; ties are broken by the most empty peers
+	 * (degree), so the guess restricts as many cells as possible.
+	 */
+	MRV_DEGREE {
+		@Override
+		public SudokuPosition selectPosition(final @NonNull SudokuField field) {
+			byte bestRow = -1;
+			byte bestColumn = -1;
+			int bestOptions = SudokuField.MAX + 1;
+			int bestDegree = -1;
+
+			for (byte row = 0; row < SudokuField.MAX; row++) {
+				for (byte column = 0; column < SudokuField.MAX; column++) {
+					if (field.getValue(row, column) != SudokuField.EMPTY) {
+						continue;
+					}
+
+					int options = field.numRemainingOptions(row, column);
+					if (options == 0)
+						return null;
+					else if (options == 1)
+						return new SudokuPosition(row, column);
+					else if (options <= bestOptions) {
+						int degree = numEmptyPeers(field, row, column);
+						if (options < bestOptions || degree > bestDegree) {
+							bestRow = row;
+							bestColumn = column;
+							bestOptions = options;
+							bestDegree = degree;
+						}
+					}
+				}
+			}
+
+			return (bestRow < 0) ? null : new SudokuPosition(bestRow, bestColumn);
+		}
+	},
+
+	/**
+	 * Cell with the least options, the number that is placed most often on
+	 * the field first because it has the fewest places left.
+	 */
+	DIGIT_FREQUENCY {
+		@Override
+		public SudokuPosition selectPosition(final @NonNull SudokuField field) {
+			return field.getBestEmptyPosition();
+		}
+
+		@Override
+		public byte selectValue(final @NonNull SudokuField field, final @NonNull SudokuPosition pos) {
+			byte bestValue = SudokuField.EMPTY;
+			int bestCount = -1;
+			for (byte value = SudokuField.MIN; value <= SudokuField.MAX; value++) {
+				if (field.isOption(pos.getRow(), pos.getColumn(), value) && field.numPlaced(value) > bestCount) {
+					bestValue = value;
+					bestCount = field.numPlaced(value);
+				}
+			}
+
+			return bestValue;
+		}
+	};
+
+	/**
+	 * Count the empty cells in the row, column and sector of a cell, without
+	 * the cell itself.
+	 *
+	 * @param field
+	 * @param row
+	 * @param column
+	 * @return
+	 */
+	private static int numEmptyPeers(final @NonNull SudokuField field, final byte row, final byte column) {
+		int num = 0;
+		int cell = SudokuTopology.getCell(row, column);
+
+		for (int i = cell * SudokuTopology.PEERS_PER_CELL; i < (cell + 1) * SudokuTopology.PEERS_PER_CELL; i++) {
+			byte peer = SudokuTopology.PEERS[i];
+			if (field.getValue(SudokuTopology.ROWS[peer], SudokuTopology.COLUMNS[peer]) == SudokuField.EMPTY) {
+				num++;
+			}
+		}
+
+		return num;
+	}
+}
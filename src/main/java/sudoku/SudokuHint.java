@@ -0,0 +1,161 @@
+package sudoku;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * A single logical step found by the SudokuHintEngine: either a number that
+ * can be placed in a cell or options that can be removed from cells.
+ */
+public final class SudokuHint {
+
+	/**
+	 * Techniques of the hint engine, from the easiest to the hardest.
+	 */
+	public enum Technique {
+		/**
+		 * A number has only one cell left in a unit.
+		 */
+		HIDDEN_SINGLE,
+
+		/**
+		 * A cell has only one option left.
+		 */
+		NAKED_SINGLE,
+
+		/**
+		 * All options of a number in a sector are in one row or column, or all
+		 * options of a number in a row or column are in one sector.
+		 */
+		LOCKED_CANDIDATES,
+
+		/**
+		 * Two cells of a unit have the same two options left.
+		 */
+		NAKED_PAIR
+	}
+
+	private final int cell;
+
+	/**
+	 * Removed options as (cell index * 16 + value).
+	 */
+	private final int[] eliminations;
+
+	private final Technique technique;
+	private final int unit;
+	private final byte value;
+
+	/**
+	 * Create a hint.
+	 *
+	 * @param technique
+	 * @param unit
+	 *            unit [0-26] the hint was found in or -1
+	 * @param cell
+	 *            cell [0-80] to place the number in or -1
+	 * @param value
+	 *            the number [1-9] of the hint or EMPTY (0)
+	 * @param eliminations
+	 *            removed options as (cell index * 16 + value)
+	 */
+	SudokuHint(final @NonNull Technique technique, final int unit, final int cell, final byte value,
+			final @NonNull int[] eliminations) {
+		this.technique = technique;
+		this.unit = unit;
+		this.cell = cell;
+		this.value = value;
+		this.eliminations = eliminations;
+	}
+
+	/**
+	 * Cell to place the number in.
+	 *
+	 * @return index of the cell in row order or -1 if the hint only removes
+	 *         options
+	 */
+	public int getCell() {
+		return cell;
+	}
+
+	/**
+	 * Returns the cell of a removed option.
+	 *
+	 * @param index
+	 *            [0 - numEliminations() - 1]
+	 * @return index of the cell in row order
+	 */
+	public int getEliminatedCell(final int index) {
+		return eliminations[index] >>> 4;
+	}
+
+	/**
+	 * Returns the number of a removed option.
+	 *
+	 * @param index
+	 *            [0 - numEliminations() - 1]
+	 * @return the number [1-9]
+	 */
+	public byte getEliminatedValue(final int index) {
+		return (byte) (eliminations[index] & 0xF);
+	}
+
+	public @NonNull Technique getTechnique() {
+		return technique;
+	}
+
+	/**
+	 * Unit the hint was found in: rows 0-8, columns 9-17 and sectors 18-26.
+	 *
+	 * @return index of the unit or -1 if the hint is bound to a single cell
+	 */
+	public int getUnit() {
+		return unit;
+	}
+
+	/**
+	 * Number of the hint.
+	 *
+	 * @return the number to place or the removed number, EMPTY (0) if the
+	 *         hint removes different numbers
+	 */
+	public byte getValue() {
+		return value;
+	}
+
+	/**
+	 * Returns true if the hint places a number.
+	 *
+	 * @return
+	 */
+	public boolean isPlacement() {
+		return cell >= 0;
+	}
+
+	/**
+	 * Amount of options removed by the hint.
+	 *
+	 * @return
+	 */
+	public int numEliminations() {
+		return eliminations.length;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder(64);
+		sb.append(technique.name().toLowerCase().replace('_', ' '));
+		if (isPlacement()) {
+			sb.append(": ").append(value).append(" at ");
+			sb.append(new SudokuPosition(cell / SudokuField.MAX, cell % SudokuField.MAX));
+		} else {
+			sb.append(": remove");
+			for (int i = 0; i < eliminations.length; i++) {
+				int eliminatedCell = getEliminatedCell(i);
+				sb.append(' ').append(getEliminatedValue(i)).append(" at ");
+				sb.append(new SudokuPosition(eliminatedCell / SudokuField.MAX, eliminatedCell % SudokuField.MAX));
+			}
+		}
+
+		return sb.toString();
+	}
+}
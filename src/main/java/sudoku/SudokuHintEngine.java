@@ -0,0 +1,346 @@
+package sudoku;
+
+import java.util.Arrays;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Finds the easiest next logical step for the current board of a game. One
+ * engine belongs to one game session: it keeps a SudokuField with the options
+ * of all cells and only applies the cells that changed since the last call,
+ * so a hint costs a few microseconds instead of rebuilding the field.
+ *
+ * Options removed by hints are remembered, so the next call continues with
+ * the next step even if the board did not change. They are dropped as soon
+ * as a number is removed from the board, because they might depend on it.
+ * Instances are not thread-safe.
+ */
+public final class SudokuHintEngine {
+
+	private final int[] candidates = new int[SudokuField.CELLS];
+
+	/**
+	 * Options removed by previous hints as (cell index * 16 + value).
+	 */
+	private int[] eliminations = new int[SudokuField.CELLS];
+	private int numEliminations = 0;
+
+	private final SudokuField field = new SudokuField();
+
+	/**
+	 * Temporary list of options removed by the current hint.
+	 */
+	private final int[] found = new int[SudokuField.CELLS * SudokuField.MAX];
+	private int numFound = 0;
+
+	private final byte[] unitCells = SudokuTopology.UNIT_CELLS;
+
+	/**
+	 * Remember an option removed by the current hint.
+	 *
+	 * @param cell
+	 * @param value
+	 */
+	private void addFound(final int cell, final int value) {
+		found[numFound++] = (cell << 4) | value;
+	}
+
+	/**
+	 * Create a hint from the options found by the current technique and
+	 * remove them from the field.
+	 *
+	 * @param technique
+	 * @param unit
+	 * @param value
+	 * @return
+	 */
+	private @NonNull SudokuHint createEliminationHint(final @NonNull SudokuHint.Technique technique, final int unit,
+			final int value) {
+		int[] removed = Arrays.copyOf(found, numFound);
+		for (int elimination : removed) {
+			int cell = elimination >>> 4;
+			field.removeOption((byte) (cell / SudokuField.MAX), (byte) (cell % SudokuField.MAX),
+					(byte) (elimination & 0xF));
+
+			if (numEliminations == eliminations.length) {
+				eliminations = Arrays.copyOf(eliminations, eliminations.length * 2);
+			}
+			eliminations[numEliminations++] = elimination;
+		}
+
+		return new SudokuHint(technique, unit, -1, (byte) value, removed);
+	}
+
+	/**
+	 * Search a number that has only one cell left in a unit, sectors first.
+	 *
+	 * @return
+	 */
+	private SudokuHint findHiddenSingle() {
+		for (int i = 0; i < SudokuField.UNITS; i++) {
+			int unit = (i + 2 * SudokuField.MAX) % SudokuField.UNITS;
+			int first = unit * SudokuField.MAX;
+
+			int once = 0;
+			int twice = 0;
+			for (int j = first; j < first + SudokuField.MAX; j++) {
+				int mask = candidates[unitCells[j]];
+				twice |= once & mask;
+				once |= mask;
+			}
+
+			int hidden = once & ~twice;
+			if (hidden != 0) {
+				int bit = hidden & -hidden;
+				for (int j = first; j < first + SudokuField.MAX; j++) {
+					if ((candidates[unitCells[j]] & bit) != 0)
+						return new SudokuHint(SudokuHint.Technique.HIDDEN_SINGLE, unit, unitCells[j],
+								(byte) (Integer.numberOfTrailingZeros(bit) + 1), new int[0]);
+				}
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Search a number whose options in a unit all share a second unit, then
+	 * it can be removed from the other cells of the second unit.
+	 *
+	 * @return
+	 */
+	private SudokuHint findLockedCandidates() {
+		for (int unit = 0; unit < SudokuField.UNITS; unit++) {
+			int first = unit * SudokuField.MAX;
+
+			for (int value = SudokuField.MIN; value <= SudokuField.MAX; value++) {
+				int bit = 1 << (value - 1);
+
+				// units shared by all cells with the option: row, column and
+				// sector of the first cell until a cell does not match
+				int row = -1;
+				int column = -1;
+				int sector = -1;
+				int count = 0;
+				for (int j = first; j < first + SudokuField.MAX; j++) {
+					int cell = unitCells[j];
+					if ((candidates[cell] & bit) != 0) {
+						int cellRow = SudokuTopology.ROWS[cell];
+						int cellColumn = SudokuTopology.COLUMNS[cell];
+						int cellSector = SudokuTopology.SECTORS[cell];
+						if (count++ == 0) {
+							row = cellRow;
+							column = cellColumn;
+							sector = cellSector;
+						} else {
+							row = (row == cellRow) ? row : -1;
+							column = (column == cellColumn) ? column : -1;
+							sector = (sector == cellSector) ? sector : -1;
+						}
+					}
+				}
+
+				if (count < 2) {
+					continue;
+				}
+
+				// a sector points to a row or column, a row or column claims a
+				// sector
+				int target = -1;
+				if (unit >= 2 * SudokuField.MAX) {
+					target = (row >= 0) ? row : (column >= 0) ? SudokuField.MAX + column : -1;
+				} else if (sector >= 0) {
+					target = 2 * SudokuField.MAX + sector;
+				}
+
+				if (target < 0) {
+					continue;
+				}
+
+				numFound = 0;
+				int targetFirst = target * SudokuField.MAX;
+				for (int j = targetFirst; j < targetFirst + SudokuField.MAX; j++) {
+					int cell = unitCells[j];
+					if ((candidates[cell] & bit) != 0 && !isInUnit(cell, unit)) {
+						addFound(cell, value);
+					}
+				}
+
+				if (numFound > 0)
+					return createEliminationHint(SudokuHint.Technique.LOCKED_CANDIDATES, unit, value);
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Search a cell that has only one option left.
+	 *
+	 * @return
+	 */
+	private SudokuHint findNakedSingle() {
+		for (int cell = 0; cell < SudokuField.CELLS; cell++) {
+			int mask = candidates[cell];
+			if (mask != 0 && (mask & (mask - 1)) == 0)
+				return new SudokuHint(SudokuHint.Technique.NAKED_SINGLE, -1, cell,
+						(byte) (Integer.numberOfTrailingZeros(mask) + 1), new int[0]);
+		}
+
+		return null;
+	}
+
+	/**
+	 * Search two cells of a unit with the same two options, which can be
+	 * removed from all other cells of the unit.
+	 *
+	 * @return
+	 */
+	private SudokuHint findNakedPair() {
+		for (int unit = 0; unit < SudokuField.UNITS; unit++) {
+			int first = unit * SudokuField.MAX;
+
+			for (int i = first; i < first + SudokuField.MAX; i++) {
+				int pair = candidates[unitCells[i]];
+				if (Integer.bitCount(pair) != 2) {
+					continue;
+				}
+
+				for (int j = i + 1; j < first + SudokuField.MAX; j++) {
+					if (candidates[unitCells[j]] != pair) {
+						continue;
+					}
+
+					numFound = 0;
+					for (int k = first; k < first + SudokuField.MAX; k++) {
+						int cell = unitCells[k];
+						int common = candidates[cell] & pair;
+						if (k != i && k != j && common != 0) {
+							for (int bits = common; bits != 0; bits &= bits - 1) {
+								addFound(cell, Integer.numberOfTrailingZeros(bits) + 1);
+							}
+						}
+					}
+
+					if (numFound > 0)
+						return createEliminationHint(SudokuHint.Technique.NAKED_PAIR, unit, SudokuField.EMPTY);
+				}
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Check if a cell belongs to a unit.
+	 *
+	 * @param cell
+	 * @param unit
+	 * @return
+	 */
+	private boolean isInUnit(final int cell, final int unit) {
+		int first = unit * SudokuField.MAX;
+		for (int j = first; j < first + SudokuField.MAX; j++) {
+			if (unitCells[j] == cell)
+				return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Returns the easiest next step for a board.
+	 *
+	 * @param board
+	 *            current values of the game
+	 * @return hint or null if the board is finished, contains conflicts or
+	 *         none of the techniques applies
+	 */
+	public SudokuHint nextHint(final @NonNull PackedSudoku board) {
+		update(board);
+
+		if (field.hasConflicts() || field.numRemainingEmptyCells() == 0)
+			return null;
+
+		for (int cell = 0; cell < SudokuField.CELLS; cell++) {
+			byte row = (byte) (cell / SudokuField.MAX);
+			byte column = (byte) (cell % SudokuField.MAX);
+			candidates[cell] = field.getOptionMask(row, column);
+
+			// an empty cell without options can not be fixed by a hint
+			if (candidates[cell] == 0 && field.getValue(row, column) == SudokuField.EMPTY)
+				return null;
+		}
+
+		SudokuHint hint = findHiddenSingle();
+		if (hint == null) {
+			hint = findNakedSingle();
+		}
+		if (hint == null) {
+			hint = findLockedCandidates();
+		}
+		if (hint == null) {
+			hint = findNakedPair();
+		}
+
+		return hint;
+	}
+
+	/**
+	 * Returns the easiest next step for a board.
+	 *
+	 * @param board
+	 *            current values of the game
+	 * @return hint or null if the board is finished, contains conflicts or
+	 *         none of the techniques applies
+	 */
+	public SudokuHint nextHint(final @NonNull byte[][] board) {
+		return nextHint(PackedSudoku.of(board));
+	}
+
+	/**
+	 * Forget the cached board and all removed options, e.g. when a new game
+	 * starts.
+	 */
+	public void reset() {
+		update(PackedSudoku.EMPTY);
+		restoreEliminations();
+	}
+
+	/**
+	 * Add all options removed by previous hints again.
+	 */
+	private void restoreEliminations() {
+		while (numEliminations > 0) {
+			int elimination = eliminations[--numEliminations];
+			int cell = elimination >>> 4;
+			field.addOption((byte) (cell / SudokuField.MAX), (byte) (cell % SudokuField.MAX),
+					(byte) (elimination & 0xF));
+		}
+	}
+
+	/**
+	 * Apply all cells of the board that differ from the cached field.
+	 *
+	 * @param board
+	 */
+	private void update(final @NonNull PackedSudoku board) {
+		boolean removed = false;
+
+		for (int cell = 0; cell < SudokuField.CELLS; cell++) {
+			byte row = (byte) (cell / SudokuField.MAX);
+			byte column = (byte) (cell % SudokuField.MAX);
+			byte value = board.getValue(cell);
+			byte current = field.getValue(row, column);
+
+			if (value != current) {
+				removed |= current != SudokuField.EMPTY;
+				field.setValue(row, column, value);
+			}
+		}
+
+		if (removed) {
+			restoreEliminations();
+		}
+	}
+}
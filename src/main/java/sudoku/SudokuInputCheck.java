@@ -0,0 +1,240 @@
+package sudoku;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Fast screening of a puzzle before it is solved. It finds duplicate givens,
+ * empty cells without any candidate and numbers without a place in a unit
+ * with three passes over the units of the layout and a mask per unit, so
+ * contradictory inputs are rejected in microseconds instead of after a
+ * complete failed search. Passing the check does not mean the puzzle is
+ * solvable.
+ */
+public final class SudokuInputCheck {
+
+	/**
+	 * Why a puzzle was rejected.
+	 */
+	public enum Reason {
+		/**
+		 * A number is given twice in a unit.
+		 */
+		DUPLICATE_GIVEN,
+
+		/**
+		 * An empty cell has no candidate left.
+		 */
+		NO_CANDIDATES,
+
+		/**
+		 * A number has no cell left in a unit.
+		 */
+		NO_PLACE_FOR_NUMBER
+	}
+
+	/**
+	 * Result of a puzzle that passed the check.
+	 */
+	public static final @NonNull SudokuInputCheck VALID = new SudokuInputCheck(null, -1, -1, SudokuGrid.EMPTY);
+
+	/**
+	 * Check the values of a grid.
+	 *
+	 * @param grid
+	 * @return VALID or the first problem found
+	 */
+	public static @NonNull SudokuInputCheck check(final @NonNull SudokuGrid grid) {
+		final SudokuGridLayout layout = grid.getLayout();
+		final byte[] values = grid.getValues();
+		final int[] unitCells = layout.getUnitCells();
+		final int[] unitStart = layout.getUnitStart();
+		final int[] cellUnits = layout.getCellUnits();
+		final int[] cellUnitStart = layout.getCellUnitStart();
+		final int allOptions = (1 << layout.getSize()) - 1;
+
+		// numbers given per unit
+		final int[] unitMasks = new int[layout.getUnits()];
+		for (int unit = 0; unit < unitMasks.length; unit++) {
+			int mask = 0;
+			for (int i = unitStart[unit]; i < unitStart[unit + 1]; i++) {
+				byte value = values[unitCells[i]];
+				if (value != SudokuGrid.EMPTY) {
+					int bit = 1 << (value - 1);
+					if ((mask & bit) != 0)
+						return new SudokuInputCheck(Reason.DUPLICATE_GIVEN, unitCells[i], unit, value);
+					mask |= bit;
+				}
+			}
+			unitMasks[unit] = mask;
+		}
+
+		// numbers given in the units of a cell are no candidates
+		final int[] candidates = new int[layout.getCells()];
+		for (int cell = 0; cell < candidates.length; cell++) {
+			if (values[cell] != SudokuGrid.EMPTY) {
+				candidates[cell] = 1 << (values[cell] - 1);
+			} else {
+				int used = 0;
+				for (int i = cellUnitStart[cell]; i < cellUnitStart[cell + 1]; i++) {
+					used |= unitMasks[cellUnits[i]];
+				}
+
+				candidates[cell] = allOptions & ~used;
+				if (candidates[cell] == 0)
+					return new SudokuInputCheck(Reason.NO_CANDIDATES, cell, -1, SudokuGrid.EMPTY);
+			}
+		}
+
+		for (int unit = 0; unit < layout.getCompleteUnits(); unit++) {
+			int mask = 0;
+			for (int i = unitStart[unit]; i < unitStart[unit + 1]; i++) {
+				mask |= candidates[unitCells[i]];
+			}
+
+			if (mask != allOptions) {
+				byte value = (byte) (Integer.numberOfTrailingZeros(allOptions & ~mask) + 1);
+				return new SudokuInputCheck(Reason.NO_PLACE_FOR_NUMBER, -1, unit, value);
+			}
+		}
+
+		return VALID;
+	}
+
+	/**
+	 * Check the values of a 9x9 game.
+	 *
+	 * @param sudoku
+	 * @return VALID or the first problem found
+	 */
+	public static @NonNull SudokuInputCheck check(final @NonNull PackedSudoku sudoku) {
+		SudokuGrid grid = new SudokuGrid(SudokuGridLayout.of(3));
+		sudoku.toBytes(grid.getValues());
+		return check(grid);
+	}
+
+	/**
+	 * Check the values of a field. Uses the conflicts and unit masks the field
+	 * keeps up to date, so the check before every solve allocates nothing.
+	 * The result is the same as for the grid of the field.
+	 *
+	 * @param field
+	 * @return VALID or the first problem found
+	 */
+	public static @NonNull SudokuInputCheck check(final @NonNull SudokuField field) {
+		// finding the first duplicate in unit order needs the values
+		if (field.numConflicts() > 0)
+			return check(new SudokuGrid(field));
+
+		final int allOptions = (1 << SudokuField.MAX) - 1;
+		for (int cell = 0; cell < SudokuField.CELLS; cell++) {
+			if (getCandidates(field, cell) == 0)
+				return new SudokuInputCheck(Reason.NO_CANDIDATES, cell, -1, SudokuGrid.EMPTY);
+		}
+
+		for (int unit = 0; unit < SudokuField.UNITS; unit++) {
+			int mask = 0;
+			for (int i = unit * SudokuTopology.CELLS_PER_UNIT; i < (unit + 1) * SudokuTopology.CELLS_PER_UNIT; i++) {
+				mask |= getCandidates(field, SudokuTopology.UNIT_CELLS[i]);
+			}
+
+			if (mask != allOptions) {
+				byte value = (byte) (Integer.numberOfTrailingZeros(allOptions & ~mask) + 1);
+				return new SudokuInputCheck(Reason.NO_PLACE_FOR_NUMBER, -1, unit, value);
+			}
+		}
+
+		return VALID;
+	}
+
+	/**
+	 * Returns the candidates of a cell of a field by its givens.
+	 *
+	 * @param field
+	 * @param cell
+	 * @return bit mask, only the bit of the number for a filled cell
+	 */
+	private static int getCandidates(final @NonNull SudokuField field, final int cell) {
+		byte value = field.getValue(SudokuTopology.ROWS[cell], SudokuTopology.COLUMNS[cell]);
+		if (value != SudokuField.EMPTY)
+			return 1 << (value - 1);
+
+		int units = cell * SudokuTopology.UNITS_PER_CELL;
+		int used = field.getUnitMask(SudokuTopology.CELL_UNITS[units])
+				| field.getUnitMask(SudokuTopology.CELL_UNITS[units + 1])
+				| field.getUnitMask(SudokuTopology.CELL_UNITS[units + 2]);
+		return ((1 << SudokuField.MAX) - 1) & ~used;
+	}
+
+	private final int cell;
+	private final Reason reason;
+	private final int unit;
+	private final byte value;
+
+	private SudokuInputCheck(final Reason reason, final int cell, final int unit, final byte value) {
+		this.reason = reason;
+		this.cell = cell;
+		this.unit = unit;
+		this.value = value;
+	}
+
+	/**
+	 * Cell of the problem.
+	 *
+	 * @return index of the cell in row order or -1 if the problem is not
+	 *         bound to a cell
+	 */
+	public int getCell() {
+		return cell;
+	}
+
+	/**
+	 * Why the puzzle was rejected.
+	 *
+	 * @return null if the puzzle passed the check
+	 */
+	public Reason getReason() {
+		return reason;
+	}
+
+	/**
+	 * Unit of the problem, see SudokuGridLayout for the order of the units.
+	 *
+	 * @return index of the unit or -1 if the problem is not bound to a unit
+	 */
+	public int getUnit() {
+		return unit;
+	}
+
+	/**
+	 * Number of the problem.
+	 *
+	 * @return the number or EMPTY (0) if the problem is not bound to a number
+	 */
+	public byte getValue() {
+		return value;
+	}
+
+	/**
+	 * Returns true if the puzzle passed the check.
+	 *
+	 * @return
+	 */
+	public boolean isValid() {
+		return reason == null;
+	}
+
+	@Override
+	public String toString() {
+		if (reason == null)
+			return "valid";
+
+		switch (reason) {
+		case DUPLICATE_GIVEN:
+			return "number " + value + " is given twice in unit " + unit + " (cell " + cell + ")";
+		case NO_CANDIDATES:
+			return "cell " + cell + " has no candidates";
+		default:
+			return "number " + value + " has no place in unit " + unit;
+		}
+	}
+}
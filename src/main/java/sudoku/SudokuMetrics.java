@@ -0,0 +1,307 @@
+package sudoku;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Registry of the counters and histograms of all solvers and the generator
+ * in this process, exported in the Prometheus text format. Solves are
+ * counted per difficulty, the band of given cells around the levels of the
+ * generator (Sudoku.PREDEFINED_*). Every counter and histogram bucket is a
+ * LongAdder, which spreads concurrent updates over several cells, so solver
+ * threads do not contend even on many cores; reading sums up the cells and
+ * is only exact when no update is running. Instances are thread-safe.
+ */
+public final class SudokuMetrics {
+
+	/**
+	 * Histogram with buckets of powers of two: bucket b counts values up to
+	 * and including 2^b, like the inclusive "le" label of Prometheus, the
+	 * last bucket all larger values.
+	 */
+	private static final class Histogram {
+		private final LongAdder[] buckets = new LongAdder[HISTOGRAM_BUCKETS];
+		private final LongAdder sum = new LongAdder();
+
+		private Histogram() {
+			for (int bucket = 0; bucket < buckets.length; bucket++) {
+				buckets[bucket] = new LongAdder();
+			}
+		}
+
+		private void add(final long value) {
+			buckets[Math.min(HISTOGRAM_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(Math.max(0, value - 1)))]
+					.increment();
+			sum.add(value);
+		}
+	}
+
+	/**
+	 * Names of the difficulties, from the least to the most given cells.
+	 */
+	private static final String[] DIFFICULTIES = { "extreme", "very_hard", "hard", "medium", "easy", "very_easy" };
+
+	/**
+	 * Lowest amount of given cells of every difficulty except the first.
+	 */
+	private static final int[] DIFFICULTY_CLUES = { Sudoku.PREDEFINED_VERY_HARD, Sudoku.PREDEFINED_HARD,
+			Sudoku.PREDEFINED_MEDIUM, Sudoku.PREDEFINED_EASY, Sudoku.PREDEFINED_VERY_EASY };
+
+	/**
+	 * Amount of SudokuStatus values.
+	 */
+	private static final int STATUSES = SudokuStatus.values().length;
+
+	/**
+	 * Registry of all solvers of this process.
+	 */
+	public static final SudokuMetrics GLOBAL = new SudokuMetrics();
+
+	/**
+	 * Buckets per histogram including the last one for all larger values.
+	 */
+	public static final int HISTOGRAM_BUCKETS = 25;
+
+	/**
+	 * Returns the difficulty of a game.
+	 *
+	 * @param clues
+	 *            given cells
+	 * @return index of the difficulty [0 - numDifficulties() - 1]
+	 */
+	public static int getDifficulty(final int clues) {
+		int difficulty = 0;
+		while (difficulty < DIFFICULTY_CLUES.length && clues >= DIFFICULTY_CLUES[difficulty]) {
+			difficulty++;
+		}
+		return difficulty;
+	}
+
+	/**
+	 * Returns the name of a difficulty.
+	 *
+	 * @param difficulty
+	 *            [0 - numDifficulties() - 1]
+	 * @return
+	 */
+	public static @NonNull String getDifficultyName(final int difficulty) {
+		return DIFFICULTIES[difficulty];
+	}
+
+	/**
+	 * Returns the amount of difficulties.
+	 *
+	 * @return
+	 */
+	public static int numDifficulties() {
+		return DIFFICULTIES.length;
+	}
+
+	/**
+	 * Add a new array of adders.
+	 *
+	 * @param length
+	 * @return
+	 */
+	private static @NonNull LongAdder[] newAdders(final int length) {
+		LongAdder[] adders = new LongAdder[length];
+		for (int i = 0; i < length; i++) {
+			adders[i] = new LongAdder();
+		}
+		return adders;
+	}
+
+	private final LongAdder cacheHits = new LongAdder();
+	private final LongAdder cacheMisses = new LongAdder();
+	private final Histogram[] durations = new Histogram[DIFFICULTIES.length];
+	private final LongAdder generated = new LongAdder();
+	private final LongAdder generationFailures = new LongAdder();
+	private final LongAdder generationRetries = new LongAdder();
+	private final Histogram[] nodes = new Histogram[DIFFICULTIES.length];
+
+	/**
+	 * Per difficulty and status: solves.
+	 */
+	private final LongAdder[] solves = newAdders(DIFFICULTIES.length * STATUSES);
+
+	/**
+	 * Create an empty registry, e.g. for tests. Solvers record to GLOBAL.
+	 */
+	public SudokuMetrics() {
+		for (int difficulty = 0; difficulty < DIFFICULTIES.length; difficulty++) {
+			durations[difficulty] = new Histogram();
+			nodes[difficulty] = new Histogram();
+		}
+	}
+
+	/**
+	 * Returns amount of solves of a difficulty with a status.
+	 *
+	 * @param difficulty
+	 * @param status
+	 * @return
+	 */
+	public long getSolves(final int difficulty, final @NonNull SudokuStatus status) {
+		return solves[difficulty * STATUSES + status.ordinal()].sum();
+	}
+
+	/**
+	 * Count a lookup of a cached solver.
+	 *
+	 * @param hit
+	 *            true if the cache had a solver
+	 */
+	public void recordCache(final boolean hit) {
+		if (hit) {
+			cacheHits.increment();
+		} else {
+			cacheMisses.increment();
+		}
+	}
+
+	/**
+	 * Count a generated game.
+	 *
+	 * @param success
+	 *            false if the generator gave up
+	 * @param retries
+	 *            values the generator had to take back
+	 */
+	public void recordGeneration(final boolean success, final long retries) {
+		if (success) {
+			generated.increment();
+		} else {
+			generationFailures.increment();
+		}
+		generationRetries.add(retries);
+	}
+
+	/**
+	 * Count a solved game.
+	 *
+	 * @param clues
+	 *            given cells
+	 * @param status
+	 * @param nodes
+	 * @param nanos
+	 *            duration, rounded up to whole microseconds, so it is never
+	 *            counted in a bucket below it
+	 */
+	public void recordSolve(final int clues, final @NonNull SudokuStatus status, final long nodes,
+			final long nanos) {
+		final int difficulty = getDifficulty(clues);
+		solves[difficulty * STATUSES + status.ordinal()].increment();
+		this.nodes[difficulty].add(nodes);
+		durations[difficulty].add((nanos + 999) / 1000);
+	}
+
+	/**
+	 * Save the export atomically, e.g. for the textfile collector of the
+	 * node exporter, which must never see a partial file.
+	 *
+	 * @param filename
+	 * @throws IOException
+	 */
+	public void save(final @NonNull String filename) throws IOException {
+		final File file = new File(filename);
+		final File temp = new File(file.getPath() + ".tmp");
+
+		try (Writer writer = new OutputStreamWriter(new FileOutputStream(temp), StandardCharsets.UTF_8)) {
+			writer.write(toPrometheus());
+		}
+
+		Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Export all metrics in the Prometheus text format.
+	 *
+	 * @return
+	 */
+	public @NonNull String toPrometheus() {
+		final StringBuilder sb = new StringBuilder(16384);
+
+		sb.append("# HELP sudoku_solves_total Solved games by difficulty and status.\n");
+		sb.append("# TYPE sudoku_solves_total counter\n");
+		for (int difficulty = 0; difficulty < DIFFICULTIES.length; difficulty++) {
+			for (SudokuStatus status : SudokuStatus.values()) {
+				sb.append("sudoku_solves_total{difficulty=\"").append(DIFFICULTIES[difficulty]);
+				sb.append("\",status=\"").append(status.name().toLowerCase()).append("\"} ");
+				sb.append(getSolves(difficulty, status)).append('\n');
+			}
+		}
+
+		writeHistogram(sb, "sudoku_solve_duration_seconds", "Duration of a solve by difficulty.", durations,
+				1000000.0);
+		writeHistogram(sb, "sudoku_solve_nodes", "Placed values of a solve by difficulty.", nodes, 1.0);
+
+		writeCounter(sb, "sudoku_solver_cache_hits_total", "Lookups that found a cached solver.", cacheHits);
+		writeCounter(sb, "sudoku_solver_cache_misses_total", "Lookups that had to create a solver.", cacheMisses);
+		writeCounter(sb, "sudoku_generated_total", "Generated games.", generated);
+		writeCounter(sb, "sudoku_generation_failures_total", "Generations that gave up.", generationFailures);
+		writeCounter(sb, "sudoku_generation_retries_total", "Values the generator had to take back.",
+				generationRetries);
+
+		return sb.toString();
+	}
+
+	/**
+	 * Append a counter without labels.
+	 *
+	 * @param sb
+	 * @param name
+	 * @param help
+	 * @param counter
+	 */
+	private static void writeCounter(final @NonNull StringBuilder sb, final @NonNull String name,
+			final @NonNull String help, final @NonNull LongAdder counter) {
+		sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+		sb.append("# TYPE ").append(name).append(" counter\n");
+		sb.append(name).append(' ').append(counter.sum()).append('\n');
+	}
+
+	/**
+	 * Append a histogram per difficulty with cumulative buckets.
+	 *
+	 * @param sb
+	 * @param name
+	 * @param help
+	 * @param histograms
+	 * @param divisor
+	 *            converts the recorded values to the unit of the name
+	 */
+	private static void writeHistogram(final @NonNull StringBuilder sb, final @NonNull String name,
+			final @NonNull String help, final @NonNull Histogram[] histograms, final double divisor) {
+		sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+		sb.append("# TYPE ").append(name).append(" histogram\n");
+
+		for (int difficulty = 0; difficulty < DIFFICULTIES.length; difficulty++) {
+			final Histogram histogram = histograms[difficulty];
+			final String label = "difficulty=\"" + DIFFICULTIES[difficulty] + "\"";
+
+			long count = 0;
+			for (int bucket = 0; bucket < HISTOGRAM_BUCKETS; bucket++) {
+				count += histogram.buckets[bucket].sum();
+				sb.append(name).append("_bucket{").append(label).append(",le=\"");
+				if (bucket == HISTOGRAM_BUCKETS - 1) {
+					sb.append("+Inf");
+				} else {
+					sb.append((1L << bucket) / divisor);
+				}
+				sb.append("\"} ").append(count).append('\n');
+			}
+			sb.append(name).append("_sum{").append(label).append("} ").append(histogram.sum.sum() / divisor)
+					.append('\n');
+			sb.append(name).append("_count{").append(label).append("} ").append(count).append('\n');
+		}
+	}
+}
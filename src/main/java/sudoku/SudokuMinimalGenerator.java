@@ -0,0 +1,279 @@
+package sudoku;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Generates minimal games: games with a unique solution that lose it when
+ * any given is removed, with at most a max amount of givens. An attempt fills
+ * the three boxes on the diagonal with random permutations, which never
+ * conflict, completes the grid with a SudokuGridSolver and removes the givens
+ * in random order as long as countSolutions(grid, 2) stays 1. A given whose
+ * removal breaks the uniqueness can not be removed later either, so an
+ * attempt is abandoned as soon as more givens are kept than allowed instead
+ * of searching the sparse grids at the end. Random games rarely end below 22
+ * givens and never below 17, the least givens of any unique 9x9 game, so most
+ * attempts fail and run() spreads them over several threads. The counters
+ * are thread-safe, run() can be used for one run at a time.
+ */
+public final class SudokuMinimalGenerator {
+
+	/**
+	 * Search state of one thread.
+	 */
+	private final class Worker {
+		private final byte[] digits = new byte[SudokuField.MAX];
+		private final SudokuGrid grid = new SudokuGrid(LAYOUT);
+		private final int[] order = new int[SudokuField.CELLS];
+		private final Random random;
+		private final SudokuGridSolver solver = SudokuGridSolver.create(LAYOUT);
+
+		private Worker(final @NonNull Random random) {
+			this.random = random;
+			// attempts are no solves of games, they must not change the
+			// metrics of the process
+			solver.setMetrics(null);
+			for (int cell = 0; cell < order.length; cell++) {
+				order[cell] = cell;
+			}
+			for (int i = 0; i < digits.length; i++) {
+				digits[i] = (byte) (i + 1);
+			}
+		}
+
+		/**
+		 * Generate a random solution and remove as many givens as possible.
+		 *
+		 * @return minimal game or null if it needs more than maxClues givens
+		 */
+		private PackedSudoku attempt() {
+			final byte[] values = grid.getValues();
+			Arrays.fill(values, SudokuGrid.EMPTY);
+			for (int box = 0; box < SECTOR_SIZE; box++) {
+				shuffle(digits);
+				// sectors 0, 4 and 8
+				int first = (SudokuTopology.FIRST_SECTOR_UNIT + box * (SECTOR_SIZE + 1)) * SudokuTopology.CELLS_PER_UNIT;
+				for (int i = 0; i < SudokuField.MAX; i++) {
+					values[SudokuTopology.UNIT_CELLS[first + i]] = digits[i];
+				}
+			}
+
+			long attemptNodes = 0;
+			boolean solved = solver.solve(grid);
+			attemptNodes += solver.getNodes();
+
+			int kept = 0;
+			if (solved) {
+				shuffle(order);
+				for (int i = 0; i < order.length && kept <= maxClues; i++) {
+					int cell = order[i];
+					byte value = values[cell];
+					values[cell] = SudokuGrid.EMPTY;
+					if (solver.countSolutions(grid, 2) != 1) {
+						values[cell] = value;
+						kept++;
+					}
+					attemptNodes += solver.getNodes();
+				}
+			}
+
+			attempts.increment();
+			nodes.add(attemptNodes);
+			if (!solved || kept > maxClues)
+				return null;
+
+			generated.increment();
+			return PackedSudoku.of(values);
+		}
+
+		/**
+		 * Repeat attempts until one succeeds.
+		 *
+		 * @return
+		 * @throws InterruptedException
+		 *             if the thread was interrupted before a game was found
+		 */
+		private @NonNull PackedSudoku next() throws InterruptedException {
+			PackedSudoku sudoku;
+			while ((sudoku = attempt()) == null) {
+				if (Thread.interrupted())
+					throw new InterruptedException();
+			}
+			return sudoku;
+		}
+
+		private void shuffle(final @NonNull byte[] array) {
+			for (int i = array.length - 1; i > 0; i--) {
+				int j = random.nextInt(i + 1);
+				byte swap = array[i];
+				array[i] = array[j];
+				array[j] = swap;
+			}
+		}
+
+		private void shuffle(final @NonNull int[] array) {
+			for (int i = array.length - 1; i > 0; i--) {
+				int j = random.nextInt(i + 1);
+				int swap = array[i];
+				array[i] = array[j];
+				array[j] = swap;
+			}
+		}
+	}
+
+	/**
+	 * Default max givens.
+	 */
+	public static final int DEFAULT_MAX_CLUES = 22;
+
+	/**
+	 * Least givens of a 9x9 game with a unique solution.
+	 */
+	public static final int MIN_CLUES = 17;
+
+	/**
+	 * Games per thread that may wait for the writer.
+	 */
+	private static final int GAMES_AHEAD_PER_THREAD = 16;
+
+	private static final int SECTOR_SIZE = 3;
+
+	private static final SudokuGridLayout LAYOUT = SudokuGridLayout.of(SECTOR_SIZE);
+
+	private final LongAdder attempts = new LongAdder();
+	private final LongAdder generated = new LongAdder();
+	private final int maxClues;
+	private final LongAdder nodes = new LongAdder();
+	private final int threads;
+
+	/**
+	 * Create a generator.
+	 *
+	 * @param threads
+	 *            amount of search threads of run()
+	 * @param maxClues
+	 *            max givens of a game [MIN_CLUES - 81]
+	 */
+	public SudokuMinimalGenerator(final int threads, final int maxClues) {
+		if (threads < 1)
+			throw new IllegalArgumentException("threads must be at least 1");
+		if (maxClues < MIN_CLUES || maxClues > SudokuField.CELLS)
+			throw new IllegalArgumentException("maxClues has to be between " + MIN_CLUES + " and " + SudokuField.CELLS);
+
+		this.threads = threads;
+		this.maxClues = maxClues;
+	}
+
+	/**
+	 * Generate a single game on the calling thread.
+	 *
+	 * @param random
+	 *            the same seed generates the same game
+	 * @return minimal game with at most maxClues givens
+	 * @throws InterruptedException
+	 *             if the thread was interrupted before a game was found
+	 */
+	public @NonNull PackedSudoku generate(final @NonNull Random random) throws InterruptedException {
+		return new Worker(random).next();
+	}
+
+	/**
+	 * Returns amount of attempts since the generator was created.
+	 *
+	 * @return
+	 */
+	public long numAttempts() {
+		return attempts.sum();
+	}
+
+	/**
+	 * Returns amount of generated games since the generator was created.
+	 *
+	 * @return
+	 */
+	public long numGenerated() {
+		return generated.sum();
+	}
+
+	/**
+	 * Returns amount of values placed by the grid solver for all attempts,
+	 * mostly for the uniqueness checks.
+	 *
+	 * @return
+	 */
+	public long numNodes() {
+		return nodes.sum();
+	}
+
+	/**
+	 * Generate games with all threads and write them on the calling thread.
+	 * Every thread has a random generator of its own, so the games depend on
+	 * the seed, but their order depends on the timing of the threads.
+	 *
+	 * @param count
+	 *            amount of games
+	 * @param seed
+	 * @param writer
+	 * @throws IOException
+	 *             if writing or a search thread failed
+	 * @throws InterruptedException
+	 *             if the calling thread was interrupted, all threads are
+	 *             stopped
+	 */
+	public void run(final long count, final long seed, final @NonNull SudokuWriter writer)
+			throws IOException, InterruptedException {
+		final BlockingQueue<PackedSudoku> output = new ArrayBlockingQueue<PackedSudoku>(
+				threads * GAMES_AHEAD_PER_THREAD);
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+		final Random seeds = new Random(seed);
+		final List<Thread> workers = new ArrayList<Thread>(threads);
+		for (int i = 0; i < threads; i++) {
+			final Worker worker = new Worker(new Random(seeds.nextLong()));
+			workers.add(new Thread(() -> {
+				try {
+					try {
+						while (true) {
+							output.put(worker.next());
+						}
+					} catch (RuntimeException e) {
+						failure.compareAndSet(null, e);
+						output.put(PackedSudoku.EMPTY);
+					}
+				} catch (InterruptedException e) {
+					// enough games
+				}
+			}, "sudoku-minimal-generator-" + i));
+		}
+		for (Thread thread : workers) {
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		try {
+			for (long i = 0; i < count; i++) {
+				PackedSudoku sudoku = output.take();
+				if (sudoku == PackedSudoku.EMPTY)
+					throw new IOException("generator failed", failure.get());
+
+				writer.write(sudoku);
+			}
+		} finally {
+			for (Thread thread : workers) {
+				thread.interrupt();
+			}
+			for (Thread thread : workers) {
+				thread.join();
+			}
+		}
+	}
+}
@@ -0,0 +1,28 @@
+package sudoku;
+
+/**
+ * Options of all cells during a search of a SudokuGridSolver, as seen by a
+ * SudokuConstraint. Bit 0 of a mask stands for number 1.
+ */
+public interface SudokuOptions {
+
+	/**
+	 * Returns the options of a cell.
+	 *
+	 * @param cell
+	 *            index of the cell in row order
+	 * @return bit mask of the options
+	 */
+	int getOptions(int cell);
+
+	/**
+	 * Keep only the specified options of a cell.
+	 *
+	 * @param cell
+	 *            index of the cell in row order
+	 * @param mask
+	 *            bit mask of the options that are still allowed
+	 * @return false if the cell has no option left
+	 */
+	boolean retainOptions(int cell, int mask);
+}
@@ -0,0 +1,352 @@
+package sudoku;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Solves a stream of games in three overlapping stages: a reader thread
+ * parses games into chunks, worker threads solve the chunks with a
+ * SudokuBatchSolver each and the calling thread writes the results in the
+ * order of the input. Chunks circulate between a pool and the stages, so the
+ * amount of chunks in flight is limited: a slow writer stops the reader
+ * instead of filling the memory, and the reorder buffer of the writer never
+ * holds more than all chunks. Waiting times and queue depths of the stages
+ * are available as metrics. Instances can be used for one run at a time.
+ */
+public final class SudokuPipeline {
+
+	/**
+	 * Games of a stage, reused for the whole run.
+	 */
+	private static final class Chunk {
+		private final SudokuResult[] results;
+		private long sequence;
+		private final List<PackedSudoku> sudokus;
+
+		private Chunk(final int size) {
+			this.sudokus = new ArrayList<PackedSudoku>(size);
+			this.results = new SudokuResult[size];
+			for (int i = 0; i < size; i++) {
+				results[i] = new SudokuResult();
+			}
+		}
+	}
+
+	/**
+	 * Games per chunk by default.
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = SudokuBatchSolver.DEFAULT_BATCH_SIZE;
+
+	/**
+	 * Chunks per worker in flight by default.
+	 */
+	public static final int DEFAULT_CHUNKS_PER_WORKER = 4;
+
+	/**
+	 * Marks the end of the input in the queues.
+	 */
+	private static final Chunk END = new Chunk(0);
+
+	private final int chunkSize;
+	private final int chunks;
+	private final int workers;
+
+	private final AtomicLong chunksWritten = new AtomicLong();
+	private final AtomicLong inputDepthMax = new AtomicLong();
+	private final AtomicLong inputDepthSum = new AtomicLong();
+	private final AtomicLong outputDepthMax = new AtomicLong();
+	private final AtomicLong outputDepthSum = new AtomicLong();
+	private final AtomicLong readerBlockedNanos = new AtomicLong();
+	private final AtomicLong reorderDepthMax = new AtomicLong();
+	private final AtomicLong workerBlockedNanos = new AtomicLong();
+	private final AtomicLong workerIdleNanos = new AtomicLong();
+	private final AtomicLong writerIdleNanos = new AtomicLong();
+
+	/**
+	 * Create a pipeline with the default chunk size and one worker per
+	 * processor.
+	 */
+	public SudokuPipeline() {
+		this(Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_SIZE,
+				Runtime.getRuntime().availableProcessors() * DEFAULT_CHUNKS_PER_WORKER);
+	}
+
+	/**
+	 * Create a pipeline.
+	 *
+	 * @param workers
+	 *            amount of solver threads
+	 * @param chunkSize
+	 *            games per chunk
+	 * @param chunks
+	 *            max chunks in flight, at least one per worker
+	 */
+	public SudokuPipeline(final int workers, final int chunkSize, final int chunks) {
+		if (workers < 1)
+			throw new IllegalArgumentException("workers must be at least 1");
+		if (chunkSize < 1)
+			throw new IllegalArgumentException("chunkSize must be at least 1");
+		if (chunks < workers)
+			throw new IllegalArgumentException("chunks must be at least " + workers);
+
+		this.workers = workers;
+		this.chunkSize = chunkSize;
+		this.chunks = chunks;
+	}
+
+	/**
+	 * Metrics of the last or current run as lines of a name and a value:
+	 * average and max depth of the queues in chunks, max chunks waiting for
+	 * an earlier chunk in the writer and milliseconds the stages spent
+	 * waiting. A reader that is blocked often means the writer or the workers
+	 * are the bottleneck, idle workers mean the reader is.
+	 *
+	 * @return
+	 */
+	public @NonNull String getMetrics() {
+		long written = Math.max(1, chunksWritten.get());
+		String separator = System.lineSeparator();
+
+		StringBuilder sb = new StringBuilder(512);
+		sb.append("pipeline_chunks ").append(chunksWritten.get()).append(separator);
+		sb.append("pipeline_input_queue_depth_avg ").append(inputDepthSum.get() / written).append(separator);
+		sb.append("pipeline_input_queue_depth_max ").append(inputDepthMax.get()).append(separator);
+		sb.append("pipeline_output_queue_depth_avg ").append(outputDepthSum.get() / written).append(separator);
+		sb.append("pipeline_output_queue_depth_max ").append(outputDepthMax.get()).append(separator);
+		sb.append("pipeline_reorder_depth_max ").append(reorderDepthMax.get()).append(separator);
+		sb.append("pipeline_reader_blocked_ms ").append(readerBlockedNanos.get() / 1000000).append(separator);
+		sb.append("pipeline_worker_idle_ms ").append(workerIdleNanos.get() / 1000000).append(separator);
+		sb.append("pipeline_worker_blocked_ms ").append(workerBlockedNanos.get() / 1000000).append(separator);
+		sb.append("pipeline_writer_idle_ms ").append(writerIdleNanos.get() / 1000000).append(separator);
+
+		return sb.toString();
+	}
+
+	/**
+	 * Read a chunk from the pool, fill it and pass it to the workers until
+	 * the input ends.
+	 *
+	 * @param reader
+	 * @param pool
+	 * @param input
+	 * @param failure
+	 */
+	private void read(final @NonNull SudokuReader reader, final @NonNull BlockingQueue<Chunk> pool,
+			final @NonNull BlockingQueue<Chunk> input, final @NonNull AtomicReference<Throwable> failure) {
+		try {
+			try {
+				long sequence = 0;
+				boolean finished = false;
+				while (!finished) {
+					long start = System.nanoTime();
+					Chunk chunk = pool.take();
+					readerBlockedNanos.addAndGet(System.nanoTime() - start);
+
+					chunk.sequence = sequence++;
+					chunk.sudokus.clear();
+					while (chunk.sudokus.size() < chunkSize && !finished) {
+						PackedSudoku sudoku = reader.read();
+						if (sudoku == null) {
+							finished = true;
+						} else {
+							chunk.sudokus.add(sudoku);
+						}
+					}
+
+					if (chunk.sudokus.isEmpty()) {
+						pool.put(chunk);
+					} else {
+						input.put(chunk);
+						inputDepthSum.addAndGet(input.size());
+						updateMax(inputDepthMax, input.size());
+					}
+				}
+			} catch (IOException | RuntimeException e) {
+				failure.compareAndSet(null, e);
+			}
+			input.put(END);
+		} catch (InterruptedException e) {
+			// writer failed
+		}
+	}
+
+	/**
+	 * Solve all games of a stream and write them in the same order: the
+	 * solution or the unchanged game if it was not solved.
+	 *
+	 * @param reader
+	 * @param writer
+	 * @param budget
+	 *            node limit per game; its deadline is absolute and ends the
+	 *            whole run, later games time out and are written unchanged
+	 * @return statistics of all games
+	 * @throws IOException
+	 *             if reading, solving or writing failed
+	 * @throws InterruptedException
+	 *             if the calling thread was interrupted, all stages are
+	 *             stopped
+	 */
+	public @NonNull SudokuStats run(final @NonNull SudokuReader reader, final @NonNull SudokuWriter writer,
+			final @NonNull SudokuBudget budget) throws IOException, InterruptedException {
+		final BlockingQueue<Chunk> pool = new ArrayBlockingQueue<Chunk>(chunks);
+		final BlockingQueue<Chunk> input = new ArrayBlockingQueue<Chunk>(chunks + 1);
+		final BlockingQueue<Chunk> output = new ArrayBlockingQueue<Chunk>(chunks + workers);
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		for (int i = 0; i < chunks; i++) {
+			pool.add(new Chunk(chunkSize));
+		}
+
+		final List<Thread> threads = new ArrayList<Thread>(workers + 1);
+		threads.add(new Thread(() -> read(reader, pool, input, failure), "sudoku-pipeline-reader"));
+		for (int i = 0; i < workers; i++) {
+			threads.add(new Thread(() -> solve(input, output, budget, failure), "sudoku-pipeline-worker-" + i));
+		}
+		for (Thread thread : threads) {
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		try {
+			SudokuStats stats = write(writer, pool, output);
+
+			Throwable cause = failure.get();
+			if (cause != null)
+				throw new IOException("pipeline failed", cause);
+
+			return stats;
+		} finally {
+			for (Thread thread : threads) {
+				thread.interrupt();
+			}
+			for (Thread thread : threads) {
+				thread.join();
+			}
+		}
+	}
+
+	/**
+	 * Solve chunks until the end of the input.
+	 *
+	 * @param input
+	 * @param output
+	 * @param budget
+	 * @param failure
+	 */
+	private void solve(final @NonNull BlockingQueue<Chunk> input, final @NonNull BlockingQueue<Chunk> output,
+			final @NonNull SudokuBudget budget, final @NonNull AtomicReference<Throwable> failure) {
+		final SudokuBatchSolver batchSolver = new SudokuBatchSolver(chunkSize);
+
+		try {
+			while (true) {
+				long start = System.nanoTime();
+				Chunk chunk = input.take();
+				workerIdleNanos.addAndGet(System.nanoTime() - start);
+
+				if (chunk == END) {
+					// leave the end for the other workers
+					input.put(END);
+					output.put(END);
+					return;
+				}
+
+				try {
+					batchSolver.solve(chunk.sudokus, budget, chunk.results);
+				} catch (RuntimeException e) {
+					failure.compareAndSet(null, e);
+					for (int i = 0; i < chunk.sudokus.size(); i++) {
+						chunk.results[i].set(SudokuStatus.UNSOLVABLE, 0, 0);
+					}
+				}
+
+				start = System.nanoTime();
+				output.put(chunk);
+				workerBlockedNanos.addAndGet(System.nanoTime() - start);
+			}
+		} catch (InterruptedException e) {
+			// writer failed
+		}
+	}
+
+	/**
+	 * Set a maximum if a value is greater.
+	 *
+	 * @param max
+	 * @param value
+	 */
+	private static void updateMax(final @NonNull AtomicLong max, final long value) {
+		long current;
+		while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+		}
+	}
+
+	/**
+	 * Write the chunks in the order of their sequence and return them to the
+	 * pool, until all workers are finished.
+	 *
+	 * @param writer
+	 * @param pool
+	 * @param output
+	 * @return statistics of all games
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private @NonNull SudokuStats write(final @NonNull SudokuWriter writer, final @NonNull BlockingQueue<Chunk> pool,
+			final @NonNull BlockingQueue<Chunk> output) throws IOException, InterruptedException {
+		final SudokuStats stats = new SudokuStats();
+
+		// chunks in flight have different sequences modulo the amount of
+		// chunks
+		final Chunk[] reorder = new Chunk[chunks];
+		int waiting = 0;
+		long next = 0;
+		int finishedWorkers = 0;
+
+		while (finishedWorkers < workers) {
+			long start = System.nanoTime();
+			Chunk chunk = output.take();
+			writerIdleNanos.addAndGet(System.nanoTime() - start);
+
+			if (chunk == END) {
+				finishedWorkers++;
+				continue;
+			}
+
+			outputDepthSum.addAndGet(output.size());
+			updateMax(outputDepthMax, output.size());
+
+			reorder[(int) (chunk.sequence % chunks)] = chunk;
+			updateMax(reorderDepthMax, ++waiting);
+
+			Chunk ready;
+			while ((ready = reorder[(int) (next % chunks)]) != null && ready.sequence == next) {
+				reorder[(int) (next % chunks)] = null;
+				waiting--;
+
+				for (int i = 0; i < ready.sudokus.size(); i++) {
+					PackedSudoku sudoku = ready.sudokus.get(i);
+					SudokuResult result = ready.results[i];
+					if (result.isSolved()) {
+						writer.write(result);
+					} else {
+						writer.write(sudoku);
+					}
+					stats.add(sudoku.numCellsFilled(), result);
+				}
+
+				chunksWritten.incrementAndGet();
+				next++;
+				pool.put(ready);
+			}
+		}
+
+		writer.flush();
+		return stats;
+	}
+}
@@ -0,0 +1,160 @@
+package sudoku;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Reads 9x9 games one at a time from a text stream, so corpora of any size
+ * can be processed without loading them completely. Supports the formats of
+ * SudokuFormat: grids with borders as written by SudokuField.toString() and
+ * single lines with 81 characters. Other lines, e.g. empty lines between
+ * grids, are skipped. Files opened by open() can also be compressed corpora
+ * of SudokuCorpusWriter, they are decompressed in parallel by a
+ * SudokuCorpusReader. Instances are not thread-safe.
+ */
+public final class SudokuReader implements Closeable {
+
+	/**
+	 * Open a text file or a compressed corpus with one decompression thread
+	 * per processor.
+	 *
+	 * @param filename
+	 * @return
+	 * @throws IOException
+	 *             if the file can not be opened
+	 */
+	public static @NonNull SudokuReader open(final @NonNull String filename) throws IOException {
+		final BufferedInputStream in = new BufferedInputStream(new FileInputStream(filename),
+				SudokuWriter.DEFAULT_BUFFER_SIZE);
+		try {
+			if (SudokuCorpusReader.isCorpus(in))
+				return new SudokuReader(new SudokuCorpusReader(in, Runtime.getRuntime().availableProcessors()));
+		} catch (IOException | RuntimeException e) {
+			in.close();
+			throw e;
+		}
+
+		return new SudokuReader(new InputStreamReader(in, StandardCharsets.US_ASCII));
+	}
+
+	private final byte[] cells = new byte[SudokuField.CELLS];
+	private final SudokuCorpusReader corpus;
+	private final BufferedReader in;
+	private long lineNumber = 0;
+	private long read = 0;
+
+	/**
+	 * Create a reader.
+	 *
+	 * @param in
+	 *            stream that is closed by close()
+	 */
+	public SudokuReader(final @NonNull Reader in) {
+		this.in = (in instanceof BufferedReader) ? (BufferedReader) in
+				: new BufferedReader(in, SudokuWriter.DEFAULT_BUFFER_SIZE);
+		this.corpus = null;
+	}
+
+	/**
+	 * Create a reader of a compressed corpus.
+	 *
+	 * @param corpus
+	 *            reader that is closed by close()
+	 */
+	public SudokuReader(final @NonNull SudokuCorpusReader corpus) {
+		this.in = null;
+		this.corpus = corpus;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (corpus != null) {
+			corpus.close();
+		} else {
+			in.close();
+		}
+	}
+
+	/**
+	 * Returns amount of games read since the reader was created.
+	 *
+	 * @return
+	 */
+	public long numRead() {
+		return (corpus != null) ? corpus.numRead() : read;
+	}
+
+	/**
+	 * Read the next game.
+	 *
+	 * @return game or null at the end of the stream
+	 * @throws IOException
+	 *             if the stream fails or contains an invalid or incomplete
+	 *             game
+	 */
+	public PackedSudoku read() throws IOException {
+		if (corpus != null)
+			return corpus.read();
+
+		int rows = 0;
+		String line;
+
+		while ((line = in.readLine()) != null) {
+			lineNumber++;
+
+			if (line.startsWith("|")) {
+				// |  1  2  3  |  4  5  6  |  7  8  9  |
+				for (int column = 0; column < SudokuField.MAX; column++) {
+					int index = 3 + (column * 3) + (column / 3 * 3);
+					cells[rows * SudokuField.MAX + column] = toValue(line, index);
+				}
+
+				if (++rows == SudokuField.MAX) {
+					read++;
+					return PackedSudoku.of(cells);
+				}
+			} else if (rows == 0 && line.length() == SudokuField.CELLS) {
+				for (int cell = 0; cell < SudokuField.CELLS; cell++) {
+					cells[cell] = toValue(line, cell);
+				}
+
+				read++;
+				return PackedSudoku.of(cells);
+			}
+		}
+
+		if (rows > 0)
+			throw new IOException("incomplete grid at line " + lineNumber);
+
+		return null;
+	}
+
+	/**
+	 * Convert a character of the current line to a value.
+	 *
+	 * @param line
+	 * @param index
+	 * @return
+	 * @throws IOException
+	 *             if the character is missing or no value [0-9]
+	 */
+	private byte toValue(final @NonNull String line, final int index) throws IOException {
+		if (index < line.length()) {
+			char c = line.charAt(index);
+			if (c == '.' || c == ' ')
+				return SudokuField.EMPTY;
+			if (c >= '0' && c <= '9')
+				return (byte) (c - '0');
+		}
+
+		throw new IOException("invalid cell in line " + lineNumber + ", column " + (index + 1));
+	}
+}
@@ -0,0 +1,113 @@
+package sudoku;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Result of solving a 9x9 game: status, solution and search statistics.
+ * Results are mutable and can be passed to the solvers again, so a loop over
+ * many games can reuse one result and its solution buffer instead of
+ * allocating per game. Instances are not thread-safe.
+ */
+public final class SudokuResult {
+
+	private long nanos = 0;
+	private long nodes = 0;
+	private final byte[] solution;
+	private SudokuStatus status = SudokuStatus.UNSOLVABLE;
+
+	/**
+	 * Create a result with its own solution buffer.
+	 */
+	public SudokuResult() {
+		this(new byte[SudokuField.CELLS]);
+	}
+
+	/**
+	 * Create a result that writes the solution into a buffer of the caller.
+	 *
+	 * @param solution
+	 *            array with 81 elements
+	 */
+	public SudokuResult(final @NonNull byte[] solution) {
+		if (solution.length != SudokuField.CELLS)
+			throw new IllegalArgumentException("solution must contain exactly " + SudokuField.CELLS + " values");
+
+		this.solution = solution;
+	}
+
+	/**
+	 * Time spent to solve the game.
+	 *
+	 * @return
+	 */
+	public long getNanos() {
+		return nanos;
+	}
+
+	/**
+	 * Work counted by the engine that solved the game. Sudoku.solve() counts
+	 * every value it placed, including naked singles; the grid solvers also
+	 * count the givens and the singles of their propagation and every tried
+	 * value; the batch solver counts 0 for games finished by its propagation
+	 * and the values placed by Sudoku.solve() after it otherwise. The counts
+	 * are only comparable between solves of the same engine.
+	 *
+	 * @return
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * Values of all cells in row order. The content is only defined if the
+	 * game was solved.
+	 *
+	 * @return the buffer of the result, not a copy
+	 */
+	public @NonNull byte[] getSolution() {
+		return solution;
+	}
+
+	public @NonNull SudokuStatus getStatus() {
+		return status;
+	}
+
+	/**
+	 * Returns true if the game was solved.
+	 *
+	 * @return
+	 */
+	public boolean isSolved() {
+		return status == SudokuStatus.SOLVED;
+	}
+
+	/**
+	 * Store the outcome of a solve.
+	 *
+	 * @param status
+	 * @param nodes
+	 * @param nanos
+	 * @return this result
+	 */
+	@NonNull
+	SudokuResult set(final @NonNull SudokuStatus status, final long nodes, final long nanos) {
+		this.status = status;
+		this.nodes = nodes;
+		this.nanos = nanos;
+		return this;
+	}
+
+	/**
+	 * Pack the solution.
+	 *
+	 * @return solution or null if the game was not solved
+	 */
+	public PackedSudoku toPackedSudoku() {
+		return isSolved() ? PackedSudoku.of(solution) : null;
+	}
+
+	@Override
+	public String toString() {
+		return status.name().toLowerCase() + " with " + nodes + " nodes in " + (nanos / 1000) + " us";
+	}
+}
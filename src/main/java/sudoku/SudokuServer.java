@@ -0,0 +1,755 @@
+package sudoku;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Local HTTP server for solving, counting, validating and generating games.
+ * Puzzles are sent as request body (single line or the multi-line format of
+ * SudokuField.toString()), as JSON object {"puzzle": "..."} or as query
+ * parameter "puzzle". All answers are JSON objects, except /metrics which
+ * returns one "name value" line per counter of the server followed by the
+ * SudokuMetrics of the process in the Prometheus text format.
+ *
+ * The server listens on the loopback address unless another address is
+ * specified. Every request is handled by a thread of a bounded pool and waits
+ * for its job, requests beyond the max amount of pending jobs are rejected
+ * with 503. A dispatcher collects all jobs that arrived concurrently into one batch for
+ * the bounded solver pool, so standard 9x9 games are propagated together by
+ * the SudokuBatchSolver. Every job gets a SudokuBudget of its own from its
+ * timeout (query parameter "timeout" in milliseconds, at most
+ * MAX_TIMEOUT_MILLIS) and MAX_NODES, so requests that do not get an answer in
+ * time get the status "timeout" and their search or generation is stopped as
+ * well.
+ */
+public final class SudokuServer {
+
+	/**
+	 * Jobs of the server, each with the path of its endpoint.
+	 */
+	private enum Endpoint {
+		COUNT("/count"), GENERATE("/generate"), SOLVE("/solve"), VALIDATE("/validate");
+
+		private final String path;
+
+		private Endpoint(final String path) {
+			this.path = path;
+		}
+	}
+
+	/**
+	 * A request waiting for the solver pool.
+	 */
+	private static final class Job {
+		private final SudokuBudget budget;
+		private final Endpoint endpoint;
+		private final SudokuGrid grid;
+		private final int parameter;
+		private final CompletableFuture<String> response = new CompletableFuture<String>();
+
+		private Job(final Endpoint endpoint, final SudokuGrid grid, final int parameter, final SudokuBudget budget) {
+			this.endpoint = endpoint;
+			this.grid = grid;
+			this.parameter = parameter;
+			// a response is only completed early if it was cancelled
+			this.budget = budget.withCancel(response::isDone);
+		}
+	}
+
+	/**
+	 * Default max amount of jobs waiting for or being handled by the solver
+	 * pool, further requests are rejected.
+	 */
+	public static final int DEFAULT_MAX_PENDING_JOBS = 1024;
+
+	/**
+	 * Default port of the server.
+	 */
+	public static final int DEFAULT_PORT = 8080;
+
+	/**
+	 * Default time a request waits for its answer.
+	 */
+	public static final long DEFAULT_TIMEOUT_MILLIS = 10000;
+
+	/**
+	 * Highest limit accepted by /count.
+	 */
+	public static final int MAX_COUNT_LIMIT = 1000;
+
+	/**
+	 * Max nodes of the search of a job.
+	 */
+	public static final long MAX_NODES = 10000000;
+
+	/**
+	 * Highest timeout of a request, larger timeouts are reduced to it.
+	 */
+	public static final long MAX_TIMEOUT_MILLIS = 60000;
+
+	/**
+	 * Handler threads in addition to one per pending job, they answer
+	 * /metrics, rejected and screened requests while all others wait.
+	 */
+	private static final int EXTRA_HANDLERS = 4;
+
+	/**
+	 * Create the JSON answer of a solve job.
+	 *
+	 * @param status
+	 * @param solution
+	 *            solution as single line, only used if solved
+	 * @return
+	 */
+	private static @NonNull String createSolveResponse(final @NonNull SudokuStatus status, final String solution) {
+		if (status == SudokuStatus.SOLVED)
+			return "{\"status\":\"solved\",\"solution\":" + quote(solution) + "}";
+		else
+			return "{\"status\":\"" + status.name().toLowerCase() + "\"}";
+	}
+
+	/**
+	 * Create the JSON answer of a puzzle rejected by the SudokuInputCheck.
+	 *
+	 * @param endpoint
+	 * @param check
+	 * @return
+	 */
+	private static @NonNull String createRejectResponse(final @NonNull Endpoint endpoint,
+			final @NonNull SudokuInputCheck check) {
+		StringBuilder sb = new StringBuilder(128);
+		sb.append(endpoint == Endpoint.COUNT ? "{\"solutions\":0" : "{\"status\":\"unsolvable\"");
+		sb.append(",\"reason\":\"").append(check.getReason().name().toLowerCase()).append('"');
+		if (check.getCell() >= 0) {
+			sb.append(",\"cell\":").append(check.getCell());
+		}
+		if (check.getUnit() >= 0) {
+			sb.append(",\"unit\":").append(check.getUnit());
+		}
+		if (check.getValue() != SudokuGrid.EMPTY) {
+			sb.append(",\"value\":").append(check.getValue());
+		}
+		sb.append(",\"message\":").append(quote(check.toString())).append('}');
+		return sb.toString();
+	}
+
+	/**
+	 * Read a flat JSON object with string, number and boolean values.
+	 *
+	 * @param json
+	 * @param parameters
+	 *            map to add all values to, numbers and booleans are stored as
+	 *            written
+	 */
+	private static void parseJson(final @NonNull String json, final @NonNull Map<String, String> parameters) {
+		int pos = json.indexOf('{') + 1;
+		while (pos > 0 && pos < json.length()) {
+			int keyStart = json.indexOf('"', pos);
+			if (keyStart < 0)
+				break;
+
+			StringBuilder key = new StringBuilder();
+			pos = readJsonString(json, keyStart, key);
+			pos = json.indexOf(':', pos) + 1;
+			if (pos <= 0)
+				throw new IllegalArgumentException("invalid JSON");
+
+			while (pos < json.length() && Character.isWhitespace(json.charAt(pos))) {
+				pos++;
+			}
+
+			if (pos < json.length() && json.charAt(pos) == '"') {
+				StringBuilder value = new StringBuilder();
+				pos = readJsonString(json, pos, value);
+				parameters.put(key.toString(), value.toString());
+			} else {
+				int end = pos;
+				while (end < json.length() && json.charAt(end) != ',' && json.charAt(end) != '}') {
+					end++;
+				}
+				parameters.put(key.toString(), json.substring(pos, end).trim());
+				pos = end;
+			}
+
+			pos = json.indexOf(',', pos) + 1;
+		}
+	}
+
+	/**
+	 * Returns an integer parameter.
+	 *
+	 * @param parameters
+	 * @param name
+	 * @param defaultValue
+	 *            value if the parameter is missing
+	 * @param min
+	 * @param max
+	 * @return
+	 */
+	private static int parseParameter(final @NonNull Map<String, String> parameters, final @NonNull String name,
+			final int defaultValue, final int min, final int max) {
+		String value = parameters.get(name);
+		if (value == null || value.isEmpty())
+			return defaultValue;
+
+		int number;
+		try {
+			number = Integer.parseInt(value);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException(name + " must be a number");
+		}
+
+		if (number < min || number > max)
+			throw new IllegalArgumentException(name + " has to be between " + min + " and " + max);
+
+		return number;
+	}
+
+	/**
+	 * Read the parameters of the query and a JSON body.
+	 *
+	 * @param exchange
+	 * @param body
+	 * @return all parameters, a body which is not JSON is stored as "puzzle"
+	 * @throws UnsupportedEncodingException
+	 */
+	private static @NonNull Map<String, String> parseParameters(final @NonNull HttpExchange exchange,
+			final @NonNull String body) throws UnsupportedEncodingException {
+		final Map<String, String> parameters = new HashMap<String, String>();
+
+		String query = exchange.getRequestURI().getRawQuery();
+		if (query != null) {
+			for (String parameter : query.split("&")) {
+				int separator = parameter.indexOf('=');
+				if (separator > 0) {
+					parameters.put(URLDecoder.decode(parameter.substring(0, separator), "UTF-8"),
+							URLDecoder.decode(parameter.substring(separator + 1), "UTF-8"));
+				}
+			}
+		}
+
+		String text = body.trim();
+		if (text.startsWith("{")) {
+			parseJson(text, parameters);
+		} else if (!text.isEmpty()) {
+			parameters.put("puzzle", body);
+		}
+
+		return parameters;
+	}
+
+	/**
+	 * Write a String as JSON string.
+	 *
+	 * @param value
+	 * @return
+	 */
+	private static @NonNull String quote(final @NonNull String value) {
+		StringBuilder sb = new StringBuilder(value.length() + 2);
+		sb.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\') {
+				sb.append('\\').append(c);
+			} else if (c == '\n') {
+				sb.append("\\n");
+			} else if (c == '\r') {
+				sb.append("\\r");
+			} else if (c < ' ') {
+				sb.append(String.format("\\u%04x", (int) c));
+			} else {
+				sb.append(c);
+			}
+		}
+		sb.append('"');
+		return sb.toString();
+	}
+
+	/**
+	 * Read the request body.
+	 *
+	 * @param exchange
+	 * @return
+	 * @throws IOException
+	 */
+	private static @NonNull String readBody(final @NonNull HttpExchange exchange) throws IOException {
+		ByteArrayOutputStream body = new ByteArrayOutputStream(1024);
+		byte[] buffer = new byte[1024];
+		try (InputStream in = exchange.getRequestBody()) {
+			int read;
+			while ((read = in.read(buffer)) > 0) {
+				body.write(buffer, 0, read);
+			}
+		}
+
+		return new String(body.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Read a JSON string.
+	 *
+	 * @param json
+	 * @param start
+	 *            position of the opening quote
+	 * @param value
+	 *            StringBuilder to add the unescaped value to
+	 * @return position after the closing quote
+	 */
+	private static int readJsonString(final @NonNull String json, final int start, final @NonNull StringBuilder value) {
+		int pos = start + 1;
+		while (pos < json.length()) {
+			char c = json.charAt(pos++);
+			if (c == '"')
+				return pos;
+
+			if (c == '\\' && pos < json.length()) {
+				char escaped = json.charAt(pos++);
+				if (escaped == 'n') {
+					value.append('\n');
+				} else if (escaped == 'r') {
+					value.append('\r');
+				} else if (escaped == 't') {
+					value.append('\t');
+				} else if (escaped == 'u' && pos + 4 <= json.length()) {
+					value.append((char) Integer.parseInt(json.substring(pos, pos + 4), 16));
+					pos += 4;
+				} else {
+					value.append(escaped);
+				}
+			} else {
+				value.append(c);
+			}
+		}
+
+		throw new IllegalArgumentException("unterminated JSON string");
+	}
+
+	/**
+	 * Send an answer and close the exchange.
+	 *
+	 * @param exchange
+	 * @param status
+	 *            HTTP status code
+	 * @param contentType
+	 * @param body
+	 * @throws IOException
+	 */
+	private static void send(final @NonNull HttpExchange exchange, final int status, final @NonNull String contentType,
+			final @NonNull String body) throws IOException {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", contentType);
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	private final AtomicLong batches = new AtomicLong();
+	private final AtomicLong batchedJobs = new AtomicLong();
+
+	/**
+	 * Solvers and results per pool thread, they are not thread-safe.
+	 */
+	private final ThreadLocal<SudokuResult[]> batchResults = new ThreadLocal<SudokuResult[]>();
+	private final ThreadLocal<SudokuBatchSolver> batchSolvers = new ThreadLocal<SudokuBatchSolver>();
+	private final ThreadLocal<SudokuGridSolver[]> gridSolvers = new ThreadLocal<SudokuGridSolver[]>();
+
+	private final Thread dispatcher;
+	private final AtomicLong errors = new AtomicLong();
+	private final ThreadPoolExecutor handlers;
+	private final AtomicInteger jobs = new AtomicInteger();
+	private final int maxBatchSize;
+	private final int maxPendingJobs;
+	private final BlockingQueue<Job> pending;
+	private final AtomicLong rejected = new AtomicLong();
+	private final AtomicLong[] requests = new AtomicLong[Endpoint.values().length];
+	private volatile boolean running = false;
+	private final AtomicLong screened = new AtomicLong();
+	private final HttpServer server;
+	private final ThreadPoolExecutor solvers;
+	private final AtomicLong timeouts = new AtomicLong();
+
+	/**
+	 * Create a server on the loopback address with one solver thread per
+	 * processor.
+	 *
+	 * @param port
+	 *            port to listen on, 0 for any free port
+	 * @throws IOException
+	 */
+	public SudokuServer(final int port) throws IOException {
+		this(port, Runtime.getRuntime().availableProcessors(), SudokuBatchSolver.DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * Create a server on the loopback address.
+	 *
+	 * @param port
+	 *            port to listen on, 0 for any free port
+	 * @param solverThreads
+	 *            size of the solver pool
+	 * @param maxBatchSize
+	 *            max amount of jobs handled by one solver thread at once
+	 * @throws IOException
+	 */
+	public SudokuServer(final int port, final int solverThreads, final int maxBatchSize) throws IOException {
+		this(InetAddress.getLoopbackAddress(), port, solverThreads, maxBatchSize, DEFAULT_MAX_PENDING_JOBS);
+	}
+
+	/**
+	 * Create a server.
+	 *
+	 * @param address
+	 *            address to listen on, e.g. InetAddress.getLoopbackAddress()
+	 * @param port
+	 *            port to listen on, 0 for any free port
+	 * @param solverThreads
+	 *            size of the solver pool
+	 * @param maxBatchSize
+	 *            max amount of jobs handled by one solver thread at once
+	 * @param maxPendingJobs
+	 *            max amount of jobs waiting for or being handled by the solver
+	 *            pool, further requests are rejected
+	 * @throws IOException
+	 */
+	public SudokuServer(final @NonNull InetAddress address, final int port, final int solverThreads,
+			final int maxBatchSize, final int maxPendingJobs) throws IOException {
+		if (solverThreads < 1)
+			throw new IllegalArgumentException("solverThreads must be at least 1");
+		if (maxBatchSize < 1)
+			throw new IllegalArgumentException("maxBatchSize must be at least 1");
+		if (maxPendingJobs < 1)
+			throw new IllegalArgumentException("maxPendingJobs must be at least 1");
+
+		this.maxBatchSize = maxBatchSize;
+		this.maxPendingJobs = maxPendingJobs;
+		this.pending = new ArrayBlockingQueue<Job>(maxPendingJobs);
+
+		for (int i = 0; i < requests.length; i++) {
+			requests[i] = new AtomicLong();
+		}
+
+		// bounded pool, a full queue lets the dispatcher solve the batch itself
+		// and so slows down accepting new jobs
+		solvers = new ThreadPoolExecutor(solverThreads, solverThreads, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(solverThreads), new ThreadPoolExecutor.CallerRunsPolicy());
+		// every pending job blocks its handler thread, connections beyond the
+		// pool wait in the queue without a thread
+		handlers = new ThreadPoolExecutor(maxPendingJobs + EXTRA_HANDLERS, maxPendingJobs + EXTRA_HANDLERS, 60,
+				TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+		handlers.allowCoreThreadTimeOut(true);
+
+		server = HttpServer.create(new InetSocketAddress(address, port), 0);
+		server.setExecutor(handlers);
+		for (final Endpoint endpoint : Endpoint.values()) {
+			server.createContext(endpoint.path, exchange -> handle(exchange, endpoint));
+		}
+		server.createContext("/metrics", exchange -> send(exchange, 200, "text/plain; version=0.0.4; charset=utf-8",
+				getMetrics() + SudokuMetrics.GLOBAL.toPrometheus()));
+
+		dispatcher = new Thread(this::dispatch, "sudoku-dispatcher");
+		dispatcher.setDaemon(true);
+	}
+
+	/**
+	 * Create the job of a request.
+	 *
+	 * @param endpoint
+	 * @param parameters
+	 * @param budget
+	 * @return
+	 */
+	private @NonNull Job createJob(final @NonNull Endpoint endpoint, final @NonNull Map<String, String> parameters,
+			final @NonNull SudokuBudget budget) {
+		if (endpoint == Endpoint.GENERATE)
+			return new Job(endpoint, null, parseParameter(parameters, "cells", Sudoku.PREDEFINED_MEDIUM, 0, 60),
+					budget);
+
+		String puzzle = parameters.get("puzzle");
+		if (puzzle == null || puzzle.trim().isEmpty())
+			throw new IllegalArgumentException("puzzle is missing");
+
+		SudokuGrid grid = SudokuGrid.loadFromString(puzzle);
+		int limit = (endpoint == Endpoint.COUNT) ? parseParameter(parameters, "limit", 2, 1, MAX_COUNT_LIMIT) : 0;
+		return new Job(endpoint, grid, limit, budget);
+	}
+
+	/**
+	 * Collect all waiting jobs into batches for the solver pool.
+	 */
+	private void dispatch() {
+		while (running) {
+			Job job;
+			try {
+				job = pending.poll(100, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				break;
+			}
+
+			if (job != null) {
+				final List<Job> batch = new ArrayList<Job>(Math.min(maxBatchSize, pending.size() + 1));
+				batch.add(job);
+				pending.drainTo(batch, maxBatchSize - 1);
+
+				batches.incrementAndGet();
+				batchedJobs.addAndGet(batch.size());
+				solvers.execute(() -> runBatch(batch));
+			}
+		}
+	}
+
+	/**
+	 * Run a job that is not solved by the batch solver.
+	 *
+	 * @param job
+	 * @return JSON answer
+	 * @throws Exception
+	 */
+	private @NonNull String execute(final @NonNull Job job) throws Exception {
+		switch (job.endpoint) {
+		case COUNT:
+			SudokuGridSolver solver = getGridSolver(job.grid);
+			int solutions = solver.countSolutions(job.grid, job.parameter, job.budget);
+			if (solver.isTimeout())
+				return "{\"status\":\"timeout\",\"solutions\":" + solutions + "}";
+			else
+				return "{\"solutions\":" + solutions + "}";
+		case GENERATE:
+			try {
+				return "{\"puzzle\":"
+						+ quote(new Sudoku(job.parameter, ThreadLocalRandom.current(), job.budget).pack().toString())
+						+ "}";
+			} catch (TimeoutException e) {
+				return "{\"status\":\"timeout\"}";
+			}
+		case SOLVE:
+			SudokuGrid solution = new SudokuGrid(job.grid);
+			return createSolveResponse(getGridSolver(job.grid).solve(solution, job.budget), solution.toLine());
+		case VALIDATE:
+			return "{\"valid\":" + job.grid.isValid(false) + ",\"finished\":" + job.grid.isValid(true) + "}";
+		default:
+			throw new IllegalStateException("unknown endpoint " + job.endpoint);
+		}
+	}
+
+	/**
+	 * Returns the grid solver of the current thread for the size of a grid.
+	 *
+	 * @param grid
+	 * @return
+	 */
+	private @NonNull SudokuGridSolver getGridSolver(final @NonNull SudokuGrid grid) {
+		SudokuGridSolver[] solvers = gridSolvers.get();
+		if (solvers == null) {
+			solvers = new SudokuGridSolver[SudokuGridLayout.MAX_SECTOR_SIZE + 1];
+			gridSolvers.set(solvers);
+		}
+
+		int sectorSize = grid.getLayout().getSectorSize();
+		SudokuMetrics.GLOBAL.recordCache(solvers[sectorSize] != null);
+		if (solvers[sectorSize] == null) {
+			solvers[sectorSize] = SudokuGridSolver.create(grid.getLayout());
+		}
+
+		return solvers[sectorSize];
+	}
+
+	/**
+	 * Returns all counters of the server, one "name value" line per counter.
+	 *
+	 * @return
+	 */
+	public @NonNull String getMetrics() {
+		StringBuilder sb = new StringBuilder(512);
+		for (Endpoint endpoint : Endpoint.values()) {
+			sb.append("requests_").append(endpoint.name().toLowerCase()).append(' ')
+					.append(requests[endpoint.ordinal()].get()).append('\n');
+		}
+		sb.append("requests_rejected ").append(rejected.get()).append('\n');
+		sb.append("requests_screened ").append(screened.get()).append('\n');
+		sb.append("requests_timeout ").append(timeouts.get()).append('\n');
+		sb.append("requests_error ").append(errors.get()).append('\n');
+		sb.append("batches ").append(batches.get()).append('\n');
+		sb.append("batched_jobs ").append(batchedJobs.get()).append('\n');
+		sb.append("pending_jobs ").append(pending.size()).append('\n');
+		sb.append("unanswered_jobs ").append(jobs.get()).append('\n');
+		sb.append("active_solvers ").append(solvers.getActiveCount()).append('\n');
+		return sb.toString();
+	}
+
+	/**
+	 * Port the server is listening on.
+	 *
+	 * @return
+	 */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * Handle a request of an endpoint.
+	 *
+	 * @param exchange
+	 * @param endpoint
+	 * @throws IOException
+	 */
+	private void handle(final @NonNull HttpExchange exchange, final @NonNull Endpoint endpoint) throws IOException {
+		requests[endpoint.ordinal()].incrementAndGet();
+
+		final Job job;
+		final long timeout;
+		try {
+			Map<String, String> parameters = parseParameters(exchange, readBody(exchange));
+			timeout = Math.min(parseParameter(parameters, "timeout", (int) DEFAULT_TIMEOUT_MILLIS, 1, Integer.MAX_VALUE),
+					MAX_TIMEOUT_MILLIS);
+			job = createJob(endpoint, parameters, SudokuBudget.of(timeout, MAX_NODES));
+		} catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+			errors.incrementAndGet();
+			send(exchange, 400, "application/json", "{\"error\":" + quote(String.valueOf(e.getMessage())) + "}");
+			return;
+		}
+
+		// contradictory puzzles are answered without using the solver pool
+		if (endpoint == Endpoint.SOLVE || endpoint == Endpoint.COUNT) {
+			SudokuInputCheck check = SudokuInputCheck.check(job.grid);
+			if (!check.isValid()) {
+				screened.incrementAndGet();
+				send(exchange, 200, "application/json", createRejectResponse(endpoint, check));
+				return;
+			}
+		}
+
+		if (jobs.incrementAndGet() > maxPendingJobs || !pending.offer(job)) {
+			jobs.decrementAndGet();
+			rejected.incrementAndGet();
+			send(exchange, 503, "application/json", "{\"error\":\"too many pending requests\"}");
+			return;
+		}
+
+		try {
+			String response;
+			try {
+				response = job.response.get(timeout, TimeUnit.MILLISECONDS);
+			} finally {
+				jobs.decrementAndGet();
+			}
+			send(exchange, 200, "application/json", response);
+		} catch (TimeoutException e) {
+			// the solver pool skips the job if it has not been started yet and
+			// its budget stops the search otherwise
+			job.response.cancel(false);
+			timeouts.incrementAndGet();
+			send(exchange, 200, "application/json", "{\"status\":\"timeout\"}");
+		} catch (InterruptedException | ExecutionException e) {
+			errors.incrementAndGet();
+			send(exchange, 500, "application/json", "{\"error\":" + quote(String.valueOf(e.getMessage())) + "}");
+		}
+	}
+
+	/**
+	 * Run all jobs of a batch. Standard 9x9 games are propagated together,
+	 * the search of every game is limited by the budget of its job.
+	 *
+	 * @param batch
+	 */
+	private void runBatch(final @NonNull List<Job> batch) {
+		final List<Job> solveJobs = new ArrayList<Job>(batch.size());
+		final List<PackedSudoku> puzzles = new ArrayList<PackedSudoku>(batch.size());
+		final SudokuBudget[] budgets = new SudokuBudget[batch.size()];
+
+		for (Job job : batch) {
+			if (job.response.isDone()) {
+				continue;
+			}
+
+			if (job.endpoint == Endpoint.SOLVE && job.grid.getLayout() == SudokuGridLayout.of(3)) {
+				budgets[solveJobs.size()] = job.budget;
+				solveJobs.add(job);
+				puzzles.add(PackedSudoku.of(job.grid.getValues()));
+			} else {
+				try {
+					job.response.complete(execute(job));
+				} catch (Exception e) {
+					job.response.completeExceptionally(e);
+				}
+			}
+		}
+
+		if (!puzzles.isEmpty()) {
+			SudokuBatchSolver batchSolver = batchSolvers.get();
+			if (batchSolver == null) {
+				batchSolver = new SudokuBatchSolver(maxBatchSize);
+				batchSolvers.set(batchSolver);
+			}
+
+			SudokuResult[] results = batchResults.get();
+			if (results == null) {
+				results = new SudokuResult[maxBatchSize];
+				for (int i = 0; i < results.length; i++) {
+					results[i] = new SudokuResult();
+				}
+				batchResults.set(results);
+			}
+
+			batchSolver.solve(puzzles, budgets, results);
+			for (int i = 0; i < solveJobs.size(); i++) {
+				PackedSudoku solution = results[i].toPackedSudoku();
+				solveJobs.get(i).response.complete(createSolveResponse(results[i].getStatus(),
+						solution == null ? null : solution.toString()));
+			}
+		}
+	}
+
+	/**
+	 * Start listening for requests.
+	 */
+	public void start() {
+		running = true;
+		dispatcher.start();
+		server.start();
+	}
+
+	/**
+	 * Stop the server. Waiting requests are answered with an error, running
+	 * searches are interrupted.
+	 */
+	public void stop() {
+		running = false;
+		server.stop(0);
+		dispatcher.interrupt();
+		solvers.shutdownNow();
+		handlers.shutdownNow();
+
+		Job job;
+		while ((job = pending.poll()) != null) {
+			job.response.completeExceptionally(new IllegalStateException("server stopped"));
+		}
+	}
+}
@@ -0,0 +1,271 @@
+package sudoku;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Solves a corpus in shards, every shard in its own JVM. Game i of the
+ * corpus belongs to shard (i % count). Shard n writes one line per game to
+ * "output.n", the solution or the unchanged puzzle if it was not solved, and
+ * its SudokuStats to "output.n.stats". merge() combines the shards into
+ * "output" in the order of the corpus and "output.stats". Shards save a
+ * SudokuCheckpoint periodically, a resumed shard continues after the last
+ * one.
+ */
+public final class SudokuShards {
+
+	/**
+	 * Max nodes per game.
+	 */
+	public static final long MAX_NODES = 10000000;
+
+	/**
+	 * Returns the result file of a shard.
+	 *
+	 * @param output
+	 * @param index
+	 * @return
+	 */
+	public static @NonNull String getShardFile(final @NonNull String output, final int index) {
+		return output + "." + index;
+	}
+
+	/**
+	 * Returns the statistics file of a result file.
+	 *
+	 * @param output
+	 * @return
+	 */
+	public static @NonNull String getStatsFile(final @NonNull String output) {
+		return output + ".stats";
+	}
+
+	/**
+	 * Combine the result and statistics files of all shards.
+	 *
+	 * @param output
+	 * @param count
+	 *            amount of shards
+	 * @return statistics of all shards
+	 * @throws IOException
+	 *             if a file is missing or the shards do not fit together
+	 */
+	public static @NonNull SudokuStats merge(final @NonNull String output, final int count) throws IOException {
+		checkShard(0, count);
+
+		SudokuStats stats = new SudokuStats();
+		for (int index = 0; index < count; index++) {
+			stats.merge(SudokuStats.load(getStatsFile(getShardFile(output, index))));
+		}
+
+		final List<BufferedReader> readers = new ArrayList<BufferedReader>(count);
+		long lines = 0;
+		try (BufferedWriter writer = new BufferedWriter(new FileWriter(output), SudokuWriter.DEFAULT_BUFFER_SIZE)) {
+			for (int index = 0; index < count; index++) {
+				readers.add(new BufferedReader(new FileReader(getShardFile(output, index)),
+						SudokuWriter.DEFAULT_BUFFER_SIZE));
+			}
+
+			// the shards take turns, only the last round can be incomplete
+			boolean finished = false;
+			while (!finished) {
+				for (BufferedReader reader : readers) {
+					String line = reader.readLine();
+					if (line == null) {
+						finished = true;
+					} else if (finished) {
+						throw new IOException("shards of \"" + output + "\" do not fit together");
+					} else {
+						writer.write(line);
+						writer.newLine();
+						lines++;
+					}
+				}
+			}
+		} finally {
+			for (BufferedReader reader : readers) {
+				reader.close();
+			}
+		}
+
+		if (lines != stats.numSudokus())
+			throw new IOException("shards of \"" + output + "\" contain " + lines + " sudokus, statistics "
+					+ stats.numSudokus());
+
+		stats.save(getStatsFile(output));
+		return stats;
+	}
+
+	/**
+	 * Solve all shards of a corpus, each in a new JVM with the class path of
+	 * this JVM, and merge them afterwards.
+	 *
+	 * @param input
+	 *            corpus in a format of SudokuReader
+	 * @param output
+	 * @param count
+	 *            amount of shards and processes
+	 * @param resume
+	 *            continue the shards after their last checkpoint
+	 * @return statistics of all shards
+	 * @throws IOException
+	 *             if a process can not be started or fails
+	 * @throws InterruptedException
+	 *             if the thread was interrupted while waiting, all processes
+	 *             are stopped
+	 */
+	public static @NonNull SudokuStats run(final @NonNull String input, final @NonNull String output, final int count,
+			final boolean resume) throws IOException, InterruptedException {
+		checkShard(0, count);
+
+		final String java = System.getProperty("java.home") + "/bin/java";
+		final List<Process> processes = new ArrayList<Process>(count);
+		try {
+			for (int index = 0; index < count; index++) {
+				List<String> command = new ArrayList<String>();
+				command.addAll(Arrays.asList(java, "-cp", System.getProperty("java.class.path"), Main.class.getName(),
+						"shard", input, output, String.valueOf(index), String.valueOf(count)));
+				if (resume) {
+					command.add(Main.RESUME);
+				}
+				processes.add(new ProcessBuilder(command).inheritIO().start());
+			}
+
+			for (int index = 0; index < count; index++) {
+				int exitCode = processes.get(index).waitFor();
+				if (exitCode != 0)
+					throw new IOException("shard " + index + " failed with exit code " + exitCode);
+			}
+		} finally {
+			for (Process process : processes) {
+				process.destroy();
+			}
+		}
+
+		return merge(output, count);
+	}
+
+	/**
+	 * Solve one shard of a corpus in this JVM.
+	 *
+	 * @param input
+	 *            corpus in a format of SudokuReader
+	 * @param output
+	 * @param index
+	 *            [0 - count - 1]
+	 * @param count
+	 *            amount of shards
+	 * @param resume
+	 *            continue after the last checkpoint of the shard, start
+	 *            from the beginning if there is none
+	 * @return statistics of the shard
+	 * @throws IOException
+	 *             if the corpus can not be read or the files can not be
+	 *             written
+	 */
+	public static @NonNull SudokuStats runShard(final @NonNull String input, final @NonNull String output,
+			final int index, final int count, final boolean resume) throws IOException {
+		checkShard(index, count);
+
+		final SudokuBudget budget = SudokuBudget.ofNodes(MAX_NODES);
+		final SudokuBatchSolver batchSolver = new SudokuBatchSolver();
+		final List<PackedSudoku> batch = new ArrayList<PackedSudoku>(SudokuBatchSolver.DEFAULT_BATCH_SIZE);
+		final SudokuResult[] results = new SudokuResult[SudokuBatchSolver.DEFAULT_BATCH_SIZE];
+		for (int i = 0; i < results.length; i++) {
+			results[i] = new SudokuResult();
+		}
+
+		final String shardFile = getShardFile(output, index);
+		final SudokuCheckpoint checkpoint = resume ? SudokuCheckpoint.load(shardFile) : null;
+		final long skip = (checkpoint == null) ? 0 : checkpoint.getGames();
+		final long offset = (checkpoint == null) ? 0 : checkpoint.getBytes();
+		final SudokuStats stats = (checkpoint == null) ? new SudokuStats() : checkpoint.getStats();
+
+		try (FileOutputStream out = SudokuCheckpoint.openOutput(shardFile, checkpoint);
+				SudokuReader reader = SudokuReader.open(input);
+				SudokuWriter writer = new SudokuWriter(out, SudokuFormat.LINE)) {
+			final long interval = SudokuCheckpoint.DEFAULT_INTERVAL_MILLIS * 1000000;
+			long nextCheckpoint = System.nanoTime() + interval;
+			long game = 0;
+
+			PackedSudoku sudoku;
+			while ((sudoku = reader.read()) != null) {
+				if (game >= skip && game % count == index) {
+					batch.add(sudoku);
+				}
+				game++;
+
+				if (batch.size() == results.length) {
+					solveBatch(batchSolver, batch, budget, results, writer, stats);
+
+					if (System.nanoTime() - nextCheckpoint >= 0) {
+						SudokuCheckpoint.sync(writer, out);
+						new SudokuCheckpoint(game, offset + writer.numBytes(), stats).save(shardFile);
+						nextCheckpoint = System.nanoTime() + interval;
+					}
+				}
+			}
+			solveBatch(batchSolver, batch, budget, results, writer, stats);
+		}
+
+		stats.save(getStatsFile(shardFile));
+		SudokuCheckpoint.delete(shardFile);
+		return stats;
+	}
+
+	/**
+	 * Check the index and count of a shard.
+	 *
+	 * @param index
+	 * @param count
+	 */
+	private static void checkShard(final int index, final int count) {
+		if (count < 1)
+			throw new IllegalArgumentException("count must be at least 1");
+		if (index < 0 || index >= count)
+			throw new IndexOutOfBoundsException("index has to be between 0 and " + (count - 1));
+	}
+
+	/**
+	 * Solve a batch of games, write and count the results and clear the
+	 * batch.
+	 *
+	 * @param batchSolver
+	 * @param batch
+	 * @param budget
+	 * @param results
+	 * @param writer
+	 * @param stats
+	 * @throws IOException
+	 */
+	private static void solveBatch(final @NonNull SudokuBatchSolver batchSolver,
+			final @NonNull List<PackedSudoku> batch, final @NonNull SudokuBudget budget,
+			final @NonNull SudokuResult[] results, final @NonNull SudokuWriter writer,
+			final @NonNull SudokuStats stats) throws IOException {
+		batchSolver.solve(batch, budget, results);
+
+		for (int i = 0; i < batch.size(); i++) {
+			PackedSudoku sudoku = batch.get(i);
+			if (results[i].isSolved()) {
+				writer.write(results[i]);
+			} else {
+				writer.write(sudoku);
+			}
+			stats.add(sudoku.numCellsFilled(), results[i]);
+		}
+
+		batch.clear();
+	}
+
+	private SudokuShards() {
+	}
+}
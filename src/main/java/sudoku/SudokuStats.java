@@ -0,0 +1,303 @@
+package sudoku;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Counters and histograms of solved games that can be saved to a text file
+ * and merged exactly, so statistics of shards solved by different processes
+ * add up to the statistics of the whole corpus. Instances are not
+ * thread-safe.
+ */
+public final class SudokuStats {
+
+	/**
+	 * Buckets of the latency histogram: bucket 0 counts games below 1 us,
+	 * bucket b games below 2^b us.
+	 */
+	public static final int LATENCY_BUCKETS = 40;
+
+	/**
+	 * Load statistics saved by save().
+	 *
+	 * @param filename
+	 * @return
+	 * @throws IOException
+	 *             if the file can not be read or contains invalid lines
+	 */
+	public static @NonNull SudokuStats load(final @NonNull String filename) throws IOException {
+		try (BufferedReader br = new BufferedReader(new FileReader(filename))) {
+			return read(br, filename);
+		}
+	}
+
+	/**
+	 * Read statistics written by write() until the end of a stream.
+	 *
+	 * @param br
+	 * @param filename
+	 *            name of the stream for error messages
+	 * @return
+	 * @throws IOException
+	 *             if the stream fails or contains invalid lines
+	 */
+	static @NonNull SudokuStats read(final @NonNull BufferedReader br, final @NonNull String filename)
+			throws IOException {
+		SudokuStats stats = new SudokuStats();
+
+		String line;
+		while ((line = br.readLine()) != null) {
+			if (line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+
+			String[] columns = line.split(" ");
+			try {
+				stats.set(columns);
+			} catch (RuntimeException e) {
+				throw new IOException("invalid statistics line \"" + line + "\" in \"" + filename + "\"", e);
+			}
+		}
+
+		return stats;
+	}
+
+	/**
+	 * Per amount of given cells: games, nanos and nodes.
+	 */
+	private final long[] cluesCount = new long[SudokuField.CELLS + 1];
+	private final long[] cluesNanos = new long[SudokuField.CELLS + 1];
+	private final long[] cluesNodes = new long[SudokuField.CELLS + 1];
+
+	private final long[] latency = new long[LATENCY_BUCKETS];
+	private long nanos = 0;
+	private long nodes = 0;
+	private long solved = 0;
+	private long sudokus = 0;
+	private long timeouts = 0;
+	private long unsolvable = 0;
+
+	/**
+	 * Count a game.
+	 *
+	 * @param clues
+	 *            amount of given cells [0-81]
+	 * @param result
+	 */
+	public void add(final int clues, final @NonNull SudokuResult result) {
+		if (clues < 0 || clues > SudokuField.CELLS)
+			throw new IndexOutOfBoundsException("clues has to be between 0 and " + SudokuField.CELLS);
+
+		sudokus++;
+		switch (result.getStatus()) {
+		case SOLVED:
+			solved++;
+			break;
+		case TIMEOUT:
+			timeouts++;
+			break;
+		default:
+			unsolvable++;
+		}
+
+		nanos += result.getNanos();
+		nodes += result.getNodes();
+		cluesCount[clues]++;
+		cluesNanos[clues] += result.getNanos();
+		cluesNodes[clues] += result.getNodes();
+		latency[getLatencyBucket(result.getNanos())]++;
+	}
+
+	/**
+	 * Returns the histogram bucket of a duration.
+	 *
+	 * @param nanos
+	 * @return [0 - LATENCY_BUCKETS - 1]
+	 */
+	public static int getLatencyBucket(final long nanos) {
+		long micros = Math.max(0, nanos / 1000);
+		return Math.min(LATENCY_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+	}
+
+	/**
+	 * Returns amount of games with an amount of given cells.
+	 *
+	 * @param clues
+	 *            [0-81]
+	 * @return
+	 */
+	public long getCluesCount(final int clues) {
+		return cluesCount[clues];
+	}
+
+	/**
+	 * Returns amount of games in a bucket of the latency histogram.
+	 *
+	 * @param bucket
+	 *            [0 - LATENCY_BUCKETS - 1]
+	 * @return
+	 */
+	public long getLatencyCount(final int bucket) {
+		return latency[bucket];
+	}
+
+	public long getNanos() {
+		return nanos;
+	}
+
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * Add all counters and histograms of other statistics.
+	 *
+	 * @param other
+	 */
+	public void merge(final @NonNull SudokuStats other) {
+		sudokus += other.sudokus;
+		solved += other.solved;
+		timeouts += other.timeouts;
+		unsolvable += other.unsolvable;
+		nanos += other.nanos;
+		nodes += other.nodes;
+
+		for (int clues = 0; clues < cluesCount.length; clues++) {
+			cluesCount[clues] += other.cluesCount[clues];
+			cluesNanos[clues] += other.cluesNanos[clues];
+			cluesNodes[clues] += other.cluesNodes[clues];
+		}
+		for (int bucket = 0; bucket < LATENCY_BUCKETS; bucket++) {
+			latency[bucket] += other.latency[bucket];
+		}
+	}
+
+	public long numSolved() {
+		return solved;
+	}
+
+	public long numSudokus() {
+		return sudokus;
+	}
+
+	public long numTimeouts() {
+		return timeouts;
+	}
+
+	public long numUnsolvable() {
+		return unsolvable;
+	}
+
+	/**
+	 * Save the statistics as lines of a name and values. Histograms only
+	 * contain lines of buckets that are not empty.
+	 *
+	 * @param filename
+	 * @throws IOException
+	 */
+	public void save(final @NonNull String filename) throws IOException {
+		try (PrintWriter writer = new PrintWriter(filename, "UTF-8")) {
+			write(writer);
+
+			if (writer.checkError())
+				throw new IOException("can not write \"" + filename + "\"");
+		}
+	}
+
+	/**
+	 * Write the statistics in the format of save().
+	 *
+	 * @param writer
+	 */
+	void write(final @NonNull PrintWriter writer) {
+		writer.println("sudokus " + sudokus);
+		writer.println("solved " + solved);
+		writer.println("unsolvable " + unsolvable);
+		writer.println("timeouts " + timeouts);
+		writer.println("nanos " + nanos);
+		writer.println("nodes " + nodes);
+
+		writer.println("# clues <given cells> <sudokus> <nanos> <nodes>");
+		for (int clues = 0; clues < cluesCount.length; clues++) {
+			if (cluesCount[clues] > 0) {
+				writer.println("clues " + clues + " " + cluesCount[clues] + " " + cluesNanos[clues] + " "
+						+ cluesNodes[clues]);
+			}
+		}
+
+		writer.println("# latency <bucket> <sudokus>, bucket b counts sudokus below 2^b us");
+		for (int bucket = 0; bucket < LATENCY_BUCKETS; bucket++) {
+			if (latency[bucket] > 0) {
+				writer.println("latency " + bucket + " " + latency[bucket]);
+			}
+		}
+	}
+
+	/**
+	 * Set a counter or histogram bucket from a saved line.
+	 *
+	 * @param columns
+	 */
+	private void set(final @NonNull String[] columns) {
+		switch (columns[0]) {
+		case "sudokus":
+			sudokus = Long.parseLong(columns[1]);
+			break;
+		case "solved":
+			solved = Long.parseLong(columns[1]);
+			break;
+		case "unsolvable":
+			unsolvable = Long.parseLong(columns[1]);
+			break;
+		case "timeouts":
+			timeouts = Long.parseLong(columns[1]);
+			break;
+		case "nanos":
+			nanos = Long.parseLong(columns[1]);
+			break;
+		case "nodes":
+			nodes = Long.parseLong(columns[1]);
+			break;
+		case "clues":
+			int clues = Integer.parseInt(columns[1]);
+			cluesCount[clues] = Long.parseLong(columns[2]);
+			cluesNanos[clues] = Long.parseLong(columns[3]);
+			cluesNodes[clues] = Long.parseLong(columns[4]);
+			break;
+		case "latency":
+			latency[Integer.parseInt(columns[1])] = Long.parseLong(columns[2]);
+			break;
+		default:
+			throw new IllegalArgumentException("unknown name " + columns[0]);
+		}
+	}
+
+	/**
+	 * Summary with one line per counter and amount of given cells.
+	 */
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder(1024);
+		String separator = System.lineSeparator();
+
+		sb.append("Finished all ").append(sudokus).append(" sudokus with ").append(nanos / 1000000);
+		sb.append(" ms in the solvers");
+		sb.append(separator);
+		sb.append("-> ").append(solved).append(" solved").append(separator);
+		sb.append("-> ").append(unsolvable).append(" not solvable").append(separator);
+		sb.append("-> ").append(timeouts).append(" timeouts").append(separator);
+		for (int clues = 0; clues < cluesCount.length; clues++) {
+			if (cluesCount[clues] > 0) {
+				sb.append("-> ").append(cluesCount[clues]).append(" sudokus with ").append(clues);
+				sb.append(" cells: ").append(cluesNanos[clues] / cluesCount[clues] / 1000).append(" us, ");
+				sb.append(cluesNodes[clues] / cluesCount[clues]).append(" nodes per sudoku").append(separator);
+			}
+		}
+
+		return sb.toString();
+	}
+}
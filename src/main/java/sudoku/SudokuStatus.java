@@ -0,0 +1,22 @@
+package sudoku;
+
+/**
+ * Result of a solve call with a SudokuBudget.
+ */
+public enum SudokuStatus {
+	/**
+	 * A solution was found.
+	 */
+	SOLVED,
+
+	/**
+	 * The budget was exhausted or the thread was interrupted before the search
+	 * finished.
+	 */
+	TIMEOUT,
+
+	/**
+	 * The search finished without a solution.
+	 */
+	UNSOLVABLE
+}
@@ -0,0 +1,33 @@
+package sudoku;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Branching heuristic of Sudoku.solve(): which empty cell is tried next and
+ * which of its options is placed first. After a wrong guess the option is
+ * removed from the cell and the strategy is asked again, so selectValue only
+ * has to return the preferred remaining option.
+ */
+public interface SudokuStrategy {
+
+	/**
+	 * Select the empty cell for the next guess.
+	 *
+	 * @param field
+	 *            field with at least one empty cell
+	 * @return cell or null if an empty cell has no options left
+	 */
+	SudokuPosition selectPosition(@NonNull SudokuField field);
+
+	/**
+	 * Select the option that is placed next.
+	 *
+	 * @param field
+	 * @param pos
+	 *            cell returned by selectPosition
+	 * @return the number or EMPTY (0) if the cell has no options left
+	 */
+	default byte selectValue(final @NonNull SudokuField field, final @NonNull SudokuPosition pos) {
+		return field.getNextOption(pos);
+	}
+}
@@ -0,0 +1,110 @@
+package sudoku;
+
+/**
+ * Rows, columns, sectors and peers of the cells of a 9x9 field, calculated
+ * once when the class is loaded and stored as flat byte arrays, so the field,
+ * the validators and the solvers look them up instead of calculating them
+ * for every placement. Cells are numbered row by row [0-80], units in the
+ * order of SudokuField.unitCounts and SudokuGridLayout: 9 rows, 9 columns and
+ * 9 sectors [0-26]. All tables are shared and must not be changed.
+ */
+final class SudokuTopology {
+
+	/**
+	 * Number of cells of a unit.
+	 */
+	static final int CELLS_PER_UNIT = SudokuField.MAX;
+
+	/**
+	 * Number of other cells in the row, column and sector of a cell.
+	 */
+	static final int PEERS_PER_CELL = 20;
+
+	/**
+	 * Number of units of a cell: its row, column and sector.
+	 */
+	static final int UNITS_PER_CELL = 3;
+
+	/**
+	 * Unit of the first column and the first sector.
+	 */
+	static final int FIRST_COLUMN_UNIT = SudokuField.MAX;
+	static final int FIRST_SECTOR_UNIT = 2 * SudokuField.MAX;
+
+	/**
+	 * Per cell: column [0-8].
+	 */
+	static final byte[] COLUMNS = new byte[SudokuField.CELLS];
+
+	/**
+	 * Per cell: units of its row, column and sector.
+	 */
+	static final byte[] CELL_UNITS = new byte[SudokuField.CELLS * UNITS_PER_CELL];
+
+	/**
+	 * Per cell: peers in ascending order.
+	 */
+	static final byte[] PEERS = new byte[SudokuField.CELLS * PEERS_PER_CELL];
+
+	/**
+	 * Per cell: row [0-8].
+	 */
+	static final byte[] ROWS = new byte[SudokuField.CELLS];
+
+	/**
+	 * Per cell: sector [0-8].
+	 */
+	static final byte[] SECTORS = new byte[SudokuField.CELLS];
+
+	/**
+	 * Per unit: cells in ascending order.
+	 */
+	static final byte[] UNIT_CELLS = new byte[SudokuField.UNITS * CELLS_PER_UNIT];
+
+	static {
+		final int[] numUnitCells = new int[SudokuField.UNITS];
+		for (int cell = 0; cell < SudokuField.CELLS; cell++) {
+			int row = cell / SudokuField.MAX;
+			int column = cell % SudokuField.MAX;
+			int sector = (row / 3) * 3 + column / 3;
+
+			ROWS[cell] = (byte) row;
+			COLUMNS[cell] = (byte) column;
+			SECTORS[cell] = (byte) sector;
+			CELL_UNITS[cell * UNITS_PER_CELL] = (byte) row;
+			CELL_UNITS[cell * UNITS_PER_CELL + 1] = (byte) (FIRST_COLUMN_UNIT + column);
+			CELL_UNITS[cell * UNITS_PER_CELL + 2] = (byte) (FIRST_SECTOR_UNIT + sector);
+
+			for (int i = 0; i < UNITS_PER_CELL; i++) {
+				int unit = CELL_UNITS[cell * UNITS_PER_CELL + i];
+				UNIT_CELLS[unit * CELLS_PER_UNIT + numUnitCells[unit]++] = (byte) cell;
+			}
+		}
+
+		for (int cell = 0; cell < SudokuField.CELLS; cell++) {
+			int index = cell * PEERS_PER_CELL;
+			for (int peer = 0; peer < SudokuField.CELLS; peer++) {
+				if (peer != cell && (ROWS[peer] == ROWS[cell] || COLUMNS[peer] == COLUMNS[cell]
+						|| SECTORS[peer] == SECTORS[cell])) {
+					PEERS[index++] = (byte) peer;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Return index of a cell.
+	 *
+	 * @param row
+	 *            [0-8]
+	 * @param column
+	 *            [0-8]
+	 * @return
+	 */
+	static int getCell(final int row, final int column) {
+		return row * SudokuField.MAX + column;
+	}
+
+	private SudokuTopology() {
+	}
+}
@@ -0,0 +1,119 @@
+package sudoku;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Checks rows, columns and sectors of a field in a single pass. Every unit
+ * keeps the numbers found so far in a 9-bit mask, so no arrays are allocated
+ * while checking.
+ */
+public final class SudokuValidator {
+
+	/**
+	 * Check if a field is correct and has no invalid values.
+	 *
+	 * @param field
+	 *            values of all cells, empty cells contain a 0 as number
+	 * @param checkIfFinished
+	 *            if set, the method will also check whether all numbers are
+	 *            found.
+	 * @return True if field is correct.
+	 */
+	public static boolean isValid(final @NonNull byte[][] field, final boolean checkIfFinished) {
+		for (int i = 0; i < SudokuTopology.UNIT_CELLS.length; i += SudokuTopology.CELLS_PER_UNIT) {
+			int mask = 0;
+
+			for (int j = i; j < i + SudokuTopology.CELLS_PER_UNIT; j++) {
+				byte cell = SudokuTopology.UNIT_CELLS[j];
+				int bit = getBit(field[SudokuTopology.ROWS[cell]][SudokuTopology.COLUMNS[cell]], checkIfFinished);
+				if (bit < 0 || (mask & bit) != 0)
+					return false;
+
+				mask |= bit;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Check if a field is correct and has no invalid values.
+	 *
+	 * @param field
+	 * @param checkIfFinished
+	 *            if set, the method will also check whether all numbers are
+	 *            found.
+	 * @return True if field is correct.
+	 */
+	public static boolean isValid(final @NonNull PackedSudoku field, final boolean checkIfFinished) {
+		for (int i = 0; i < SudokuTopology.UNIT_CELLS.length; i += SudokuTopology.CELLS_PER_UNIT) {
+			int mask = 0;
+
+			for (int j = i; j < i + SudokuTopology.CELLS_PER_UNIT; j++) {
+				byte cell = SudokuTopology.UNIT_CELLS[j];
+				int bit = getBit(field.getValue(cell), checkIfFinished);
+				if (bit < 0 || (mask & bit) != 0)
+					return false;
+
+				mask |= bit;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Check all fields of a corpus in parallel.
+	 *
+	 * @param fields
+	 *            fields to be checked
+	 * @param checkIfFinished
+	 *            if set, the method will also check whether all numbers are
+	 *            found.
+	 * @return result per field, true if the field at the same index is correct
+	 */
+	public static @NonNull boolean[] isValid(final @NonNull List<PackedSudoku> fields, final boolean checkIfFinished) {
+		final boolean[] result = new boolean[fields.size()];
+		IntStream.range(0, result.length).parallel()
+				.forEach(i -> result[i] = isValid(fields.get(i), checkIfFinished));
+		return result;
+	}
+
+	/**
+	 * Count the fields of a corpus that are not correct, checked in parallel.
+	 *
+	 * @param fields
+	 *            fields to be checked
+	 * @param checkIfFinished
+	 *            if set, the method will also check whether all numbers are
+	 *            found.
+	 * @return number of incorrect fields
+	 */
+	public static int numInvalid(final @NonNull List<PackedSudoku> fields, final boolean checkIfFinished) {
+		return (int) IntStream.range(0, fields.size()).parallel()
+				.filter(i -> !isValid(fields.get(i), checkIfFinished)).count();
+	}
+
+	/**
+	 * Returns the mask bit of a value, 0 for an empty cell that is allowed or
+	 * -1 if the value is not allowed.
+	 *
+	 * @param value
+	 * @param checkIfFinished
+	 * @return
+	 */
+	private static int getBit(final byte value, final boolean checkIfFinished) {
+		if (value > SudokuField.EMPTY && value <= SudokuField.MAX)
+			return 1 << value;
+		else if (value == SudokuField.EMPTY && !checkIfFinished)
+			return 0;
+		else
+			return -1;
+	}
+
+	private SudokuValidator() {
+	}
+}
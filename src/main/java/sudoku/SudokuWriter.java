@@ -0,0 +1,157 @@
+package sudoku;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+import org.eclipse.jdt.annotation.NonNull;
+
+/**
+ * Writes many games in a SudokuFormat to a stream. All games are rendered
+ * into one reusable buffer that is written out in large chunks when it is
+ * full, so writing a game neither creates objects nor calls the stream.
+ * Every game is followed by a line separator. Instances are not thread-safe.
+ */
+public final class SudokuWriter implements Closeable, Flushable {
+
+	/**
+	 * Default size of the buffer in bytes.
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+	private final ByteBuffer buffer;
+	private final byte[] cells = new byte[SudokuField.CELLS];
+	private final SudokuFormat format;
+	private final OutputStream out;
+	private long bytes = 0;
+	private long written = 0;
+
+	/**
+	 * Create a writer with the default buffer size.
+	 *
+	 * @param out
+	 *            stream that is closed by close()
+	 * @param format
+	 */
+	public SudokuWriter(final @NonNull OutputStream out, final @NonNull SudokuFormat format) {
+		this(out, format, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Create a writer.
+	 *
+	 * @param out
+	 *            stream that is closed by close()
+	 * @param format
+	 * @param bufferSize
+	 *            bytes per chunk, at least one game
+	 */
+	public SudokuWriter(final @NonNull OutputStream out, final @NonNull SudokuFormat format, final int bufferSize) {
+		if (bufferSize < format.getLength() + SudokuFormat.SEPARATOR.length)
+			throw new IllegalArgumentException(
+					"bufferSize must be at least " + (format.getLength() + SudokuFormat.SEPARATOR.length));
+
+		this.out = out;
+		this.format = format;
+		this.buffer = ByteBuffer.allocate(bufferSize);
+	}
+
+	/**
+	 * Write the buffered games and close the stream.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Write the buffered games to the stream.
+	 */
+	@Override
+	public void flush() throws IOException {
+		writeBuffer();
+		out.flush();
+	}
+
+	/**
+	 * Returns amount of bytes passed to the stream since the writer was
+	 * created, without the bytes still in the buffer.
+	 *
+	 * @return
+	 */
+	public long numBytes() {
+		return bytes;
+	}
+
+	/**
+	 * Returns amount of games written since the writer was created.
+	 *
+	 * @return
+	 */
+	public long numWritten() {
+		return written;
+	}
+
+	/**
+	 * Write a game.
+	 *
+	 * @param cells
+	 *            81 values in row order
+	 * @throws IOException
+	 *             if the buffer was full and could not be written
+	 */
+	public void write(final @NonNull byte[] cells) throws IOException {
+		if (buffer.remaining() < format.getLength() + SudokuFormat.SEPARATOR.length) {
+			writeBuffer();
+		}
+
+		format.render(cells, buffer);
+		buffer.put(SudokuFormat.SEPARATOR);
+		written++;
+	}
+
+	/**
+	 * Write a game.
+	 *
+	 * @param sudoku
+	 * @throws IOException
+	 *             if the buffer was full and could not be written
+	 */
+	public void write(final @NonNull PackedSudoku sudoku) throws IOException {
+		write(sudoku.toBytes(cells));
+	}
+
+	/**
+	 * Write the solution of a result.
+	 *
+	 * @param result
+	 *            solved result
+	 * @throws IOException
+	 *             if the buffer was full and could not be written
+	 */
+	public void write(final @NonNull SudokuResult result) throws IOException {
+		if (!result.isSolved())
+			throw new IllegalArgumentException("result is not solved");
+
+		write(result.getSolution());
+	}
+
+	/**
+	 * Write the buffered bytes as one chunk.
+	 *
+	 * @throws IOException
+	 */
+	private void writeBuffer() throws IOException {
+		if (buffer.position() > 0) {
+			out.write(buffer.array(), 0, buffer.position());
+			bytes += buffer.position();
+			buffer.clear();
+		}
+	}
+}
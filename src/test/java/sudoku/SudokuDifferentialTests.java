@@ -0,0 +1,274 @@
+package sudoku;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.junit.Test;
+
+/**
+ * Randomized differential tests of all engines. Every case generates a game
+ * with the seeded generator and changes it into one of three kinds: as
+ * generated, which often has several solutions, with one given replaced by
+ * another number, which is often unsolvable, or with a given copied into
+ * another cell of its row, which has to be rejected. The solutions counted by
+ * both grid solvers are the reference for the status and, for games with a
+ * unique solution, the solution of every engine. A failing game is shrunk to
+ * a minimal set of givens that still fails. Run with -Dsudoku.seed=n and
+ * -Dsudoku.cases=n to explore other games.
+ */
+public class SudokuDifferentialTests {
+
+	/**
+	 * Budget of every engine per game. Games that exhaust it are no
+	 * disagreement, so shrinking does not end at games that are just slow.
+	 */
+	private static final SudokuBudget BUDGET = SudokuBudget.ofNodes(1000000);
+
+	/**
+	 * Amount of random games.
+	 */
+	private static final int CASES = Integer.getInteger("sudoku.cases", 500);
+
+	/**
+	 * All engines by name.
+	 */
+	private static final Map<String, SudokuEngine> ENGINES = createEngines();
+
+	private static final SudokuGridLayout LAYOUT = SudokuGridLayout.of(3);
+
+	/**
+	 * Range of given cells of the generated games.
+	 */
+	private static final int MAX_CLUES = Sudoku.PREDEFINED_VERY_EASY;
+	private static final int MIN_CLUES = Sudoku.PREDEFINED_EXTREME;
+
+	/**
+	 * Seed of the seeds of all cases.
+	 */
+	private static final long SEED = Long.getLong("sudoku.seed", 1L);
+
+	/**
+	 * Count the solutions of a game with both grid solvers.
+	 *
+	 * @param puzzle
+	 * @return 0, 1 or 2 for more than one solution, -1 if the solvers do not
+	 *         agree
+	 */
+	private static int countSolutions(final @NonNull PackedSudoku puzzle) {
+		final SudokuGrid grid = new SudokuGrid(LAYOUT);
+		puzzle.toBytes(grid.getValues());
+
+		int solutions = new ShortMaskGridSolver(LAYOUT).countSolutions(grid, 2);
+		return (new IntMaskGridSolver(LAYOUT).countSolutions(grid, 2) == solutions) ? solutions : -1;
+	}
+
+	/**
+	 * All engines by name.
+	 *
+	 * @return
+	 */
+	private static @NonNull Map<String, SudokuEngine> createEngines() {
+		final Map<String, SudokuEngine> engines = new LinkedHashMap<String, SudokuEngine>();
+
+		for (final SudokuEngines engine : SudokuEngines.values()) {
+			engines.put(engine.name(), engine);
+		}
+
+		for (final SudokuHeuristic heuristic : SudokuHeuristic.values()) {
+			engines.put("SUDOKU_" + heuristic.name(), (puzzle, budget, result) -> {
+				Sudoku sudoku = new Sudoku(puzzle);
+				sudoku.setStrategy(heuristic);
+				return sudoku.solve(budget, result);
+			});
+		}
+
+		engines.put("SOLVE_A", (puzzle, budget, result) -> {
+			long start = System.nanoTime();
+			Sudoku sudoku = new Sudoku(puzzle);
+			SudokuStatus status = sudoku.solveA(budget);
+			if (status == SudokuStatus.SOLVED) {
+				sudoku.pack().toBytes(result.getSolution());
+			}
+			return result.set(status, sudoku.getNodes(), System.nanoTime() - start);
+		});
+
+		engines.put("BATCH", (puzzle, budget, result) -> {
+			new SudokuBatchSolver().solve(Collections.singletonList(puzzle), budget, new SudokuResult[] { result });
+			return result;
+		});
+
+		return engines;
+	}
+
+	/**
+	 * Create the game of a case.
+	 *
+	 * @param seed
+	 *            seed of the case
+	 * @return
+	 * @throws Exception
+	 */
+	private static @NonNull PackedSudoku createPuzzle(final long seed) throws Exception {
+		final Random random = new Random(seed);
+		final int clues = MIN_CLUES + random.nextInt(MAX_CLUES - MIN_CLUES + 1);
+		final byte[] cells = new Sudoku(clues, random).pack().toBytes(new byte[SudokuField.CELLS]);
+
+		int cell;
+		do {
+			cell = random.nextInt(SudokuField.CELLS);
+		} while (cells[cell] == SudokuField.EMPTY);
+
+		switch (random.nextInt(3)) {
+		case 0:
+			break;
+		case 1:
+			cells[cell] = (byte) (1 + (cells[cell] + random.nextInt(SudokuField.MAX - 1)) % SudokuField.MAX);
+			break;
+		default:
+			int row = cell / SudokuField.MAX;
+			int column = (cell % SudokuField.MAX + 1 + random.nextInt(SudokuField.MAX - 1)) % SudokuField.MAX;
+			cells[row * SudokuField.MAX + column] = cells[cell];
+			break;
+		}
+
+		return PackedSudoku.of(cells);
+	}
+
+	/**
+	 * Solve a game with all engines and compare them with the solutions
+	 * counted by the grid solvers. Engines that exhaust the budget are
+	 * skipped.
+	 *
+	 * @param puzzle
+	 * @return first disagreement or null if all engines agree
+	 */
+	private static String findDisagreement(final @NonNull PackedSudoku puzzle) {
+		final int solutions = countSolutions(puzzle);
+		if (solutions < 0)
+			return "grid solvers count different solutions";
+
+		PackedSudoku unique = null;
+		if (solutions == 1) {
+			SudokuGrid grid = new SudokuGrid(LAYOUT);
+			puzzle.toBytes(grid.getValues());
+			SudokuGridSolver.create(LAYOUT).solve(grid);
+			unique = PackedSudoku.of(grid.getValues());
+		}
+
+		final SudokuStatus expected = (solutions > 0) ? SudokuStatus.SOLVED : SudokuStatus.UNSOLVABLE;
+		for (Map.Entry<String, SudokuEngine> engine : ENGINES.entrySet()) {
+			SudokuResult result = engine.getValue().solve(puzzle, BUDGET);
+			if (result.getStatus() == SudokuStatus.TIMEOUT) {
+				continue;
+			}
+			if (result.getStatus() != expected)
+				return engine.getKey() + " returns " + result.getStatus() + " for " + solutions + " solutions";
+			if (expected != SudokuStatus.SOLVED) {
+				continue;
+			}
+
+			PackedSudoku solution = result.toPackedSudoku();
+			if (solution == null || !SudokuValidator.isValid(solution, true))
+				return engine.getKey() + " returns an invalid solution " + solution;
+			for (int cell = 0; cell < SudokuField.CELLS; cell++) {
+				if (puzzle.getValue(cell) != SudokuField.EMPTY && puzzle.getValue(cell) != solution.getValue(cell))
+					return engine.getKey() + " changes the given of cell " + cell;
+			}
+			if (unique != null && !unique.equals(solution))
+				return engine.getKey() + " returns " + solution + " instead of the unique solution " + unique;
+		}
+
+		return null;
+	}
+
+	/**
+	 * Remove givens of a failing game as long as it still fails.
+	 *
+	 * @param puzzle
+	 * @param fails
+	 * @return game from which no given can be removed without passing
+	 */
+	private static @NonNull PackedSudoku shrink(final @NonNull PackedSudoku puzzle,
+			final @NonNull Predicate<PackedSudoku> fails) {
+		final byte[] cells = puzzle.toBytes(new byte[SudokuField.CELLS]);
+
+		boolean shrunk = true;
+		while (shrunk) {
+			shrunk = false;
+			for (int cell = 0; cell < SudokuField.CELLS; cell++) {
+				byte value = cells[cell];
+				if (value == SudokuField.EMPTY) {
+					continue;
+				}
+
+				cells[cell] = SudokuField.EMPTY;
+				if (fails.test(PackedSudoku.of(cells))) {
+					shrunk = true;
+				} else {
+					cells[cell] = value;
+				}
+			}
+		}
+
+		return PackedSudoku.of(cells);
+	}
+
+	@Test
+	public void testEnginesAgree() throws Exception {
+		final Random random = new Random(SEED);
+		final int[] counted = new int[3];
+
+		for (int i = 0; i < CASES; i++) {
+			long seed = random.nextLong();
+			PackedSudoku puzzle = createPuzzle(seed);
+
+			String disagreement = findDisagreement(puzzle);
+			if (disagreement != null) {
+				PackedSudoku shrunk = shrink(puzzle, sudoku -> findDisagreement(sudoku) != null);
+				assertNull("case seed " + seed + ", game " + puzzle + ", shrunk to " + shrunk + ": "
+						+ findDisagreement(shrunk), disagreement);
+			}
+
+			counted[countSolutions(puzzle)]++;
+		}
+
+		// every kind of game was compared
+		if (CASES >= 100) {
+			assertTrue("no unsolvable games", counted[0] > 0);
+			assertTrue("no unique games", counted[1] > 0);
+			assertTrue("no games with several solutions", counted[2] > 0);
+		}
+	}
+
+	@Test
+	public void testSeededGenerator() throws Exception {
+		PackedSudoku sudoku = new Sudoku(Sudoku.PREDEFINED_HARD, new Random(42)).pack();
+		assertEquals(sudoku, new Sudoku(Sudoku.PREDEFINED_HARD, new Random(42)).pack());
+		assertEquals(Sudoku.PREDEFINED_HARD, sudoku.numCellsFilled());
+		assertTrue(SudokuValidator.isValid(sudoku, false));
+	}
+
+	@Test
+	public void testShrink() throws Exception {
+		PackedSudoku puzzle = createPuzzle(7);
+		int first = 0;
+		while (puzzle.getValue(first) == SudokuField.EMPTY) {
+			first++;
+		}
+		final int cell = first;
+
+		// fails as long as the first given is kept
+		PackedSudoku shrunk = shrink(puzzle, sudoku -> sudoku.getValue(cell) != SudokuField.EMPTY);
+		assertEquals(1, shrunk.numCellsFilled());
+		assertEquals(puzzle.getValue(cell), shrunk.getValue(cell));
+		assertNull(findDisagreement(shrunk));
+	}
+}
@@ -0,0 +1,234 @@
+package sudoku;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.junit.Test;
+
+/**
+ * Solves every game of the bundled test plans with every engine, checks each
+ * solution against the givens and compares the nodes of every engine with
+ * the baseline file. Some games of the plans have no solution, so the first
+ * engine decides the expected status of every game and all other engines
+ * have to agree. The nodes of the engines do not depend on timing, so a
+ * count above the baseline plus NODE_TOLERANCE means a heuristic or
+ * propagation got worse. Run with -Dsudoku.updateBaseline=true to record new
+ * baselines after an intended change.
+ */
+public class SudokuRegressionTests {
+
+	/**
+	 * Solves a list of games and stores the outcome of game i in result i.
+	 */
+	private interface Engine {
+		void solve(@NonNull List<PackedSudoku> sudokus, @NonNull SudokuBudget budget, @NonNull SudokuResult[] results);
+	}
+
+	/**
+	 * Lines "plan engine nodes" with the total nodes of an engine per plan.
+	 */
+	private static final String BASELINE_FILE = "sudoku_node_baseline.txt";
+
+	/**
+	 * Allowed increase of the nodes compared to the baseline.
+	 */
+	private static final double NODE_TOLERANCE = 0.05;
+
+	/**
+	 * All engines by name.
+	 *
+	 * @return
+	 */
+	private static @NonNull Map<String, Engine> createEngines() {
+		final Map<String, Engine> engines = new LinkedHashMap<String, Engine>();
+
+		for (final SudokuEngines engine : SudokuEngines.values()) {
+			engines.put(engine.name(), (sudokus, budget, results) -> {
+				for (int i = 0; i < sudokus.size(); i++) {
+					engine.solve(sudokus.get(i), budget, results[i]);
+				}
+			});
+		}
+
+		for (final SudokuHeuristic heuristic : SudokuHeuristic.values()) {
+			engines.put("SUDOKU_" + heuristic.name(), (sudokus, budget, results) -> {
+				for (int i = 0; i < sudokus.size(); i++) {
+					Sudoku sudoku = new Sudoku(sudokus.get(i));
+					sudoku.setStrategy(heuristic);
+					sudoku.solve(budget, results[i]);
+				}
+			});
+		}
+
+		engines.put("BATCH", (sudokus, budget, results) -> new SudokuBatchSolver().solve(sudokus, budget, results));
+		return engines;
+	}
+
+	/**
+	 * Load the baseline file.
+	 *
+	 * @return nodes by "plan engine"
+	 * @throws IOException
+	 */
+	private static @NonNull Map<String, Long> loadBaseline() throws IOException {
+		final Map<String, Long> baseline = new TreeMap<String, Long>();
+		if (!new File(BASELINE_FILE).exists())
+			return baseline;
+
+		try (BufferedReader br = new BufferedReader(new FileReader(BASELINE_FILE))) {
+			String line;
+			while ((line = br.readLine()) != null) {
+				if (line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+
+				String[] columns = line.split(" ");
+				baseline.put(columns[0] + " " + columns[1], Long.parseLong(columns[2]));
+			}
+		}
+
+		return baseline;
+	}
+
+	/**
+	 * Load all games of a test plan.
+	 *
+	 * @param plan
+	 * @return
+	 * @throws IOException
+	 */
+	private static @NonNull List<PackedSudoku> loadPlan(final @NonNull String plan) throws IOException {
+		final List<PackedSudoku> sudokus = new ArrayList<PackedSudoku>();
+		try (SudokuReader reader = SudokuReader.open(plan)) {
+			PackedSudoku sudoku;
+			while ((sudoku = reader.read()) != null) {
+				sudokus.add(sudoku);
+			}
+		}
+
+		return sudokus;
+	}
+
+	/**
+	 * Save the baseline file.
+	 *
+	 * @param baseline
+	 *            nodes by "plan engine"
+	 * @throws IOException
+	 */
+	private static void saveBaseline(final @NonNull Map<String, Long> baseline) throws IOException {
+		try (PrintWriter writer = new PrintWriter(BASELINE_FILE, "UTF-8")) {
+			writer.println("# <plan> <engine> <nodes>, written by SudokuRegressionTests");
+			for (Map.Entry<String, Long> entry : baseline.entrySet()) {
+				writer.println(entry.getKey() + " " + entry.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Solve a plan with all engines, check the solutions and compare the
+	 * nodes with the baseline.
+	 *
+	 * @param plan
+	 * @throws IOException
+	 */
+	private static void checkPlan(final @NonNull String plan) throws IOException {
+		final List<PackedSudoku> sudokus = loadPlan(plan);
+		assertTrue(plan + " is empty", !sudokus.isEmpty());
+
+		final boolean update = Boolean.getBoolean("sudoku.updateBaseline");
+		final Map<String, Long> baseline = loadBaseline();
+		final List<String> regressions = new ArrayList<String>();
+		SudokuStatus[] expected = null;
+
+		for (Map.Entry<String, Engine> engine : createEngines().entrySet()) {
+			// new results, so an engine that does not write its solution can
+			// not pass with the solution of the previous engine
+			final SudokuResult[] results = new SudokuResult[sudokus.size()];
+			for (int i = 0; i < results.length; i++) {
+				results[i] = new SudokuResult();
+			}
+
+			engine.getValue().solve(sudokus, SudokuBudget.ofNodes(SudokuShards.MAX_NODES), results);
+
+			if (expected == null) {
+				expected = new SudokuStatus[results.length];
+				for (int i = 0; i < results.length; i++) {
+					expected[i] = results[i].getStatus();
+				}
+			}
+
+			long nodes = 0;
+			for (int i = 0; i < sudokus.size(); i++) {
+				checkResult(plan + " game " + i + " " + engine.getKey(), sudokus.get(i), expected[i], results[i]);
+				nodes += results[i].getNodes();
+			}
+
+			String key = plan + " " + engine.getKey();
+			Long expectedNodes = baseline.get(key);
+			if (update) {
+				baseline.put(key, nodes);
+			} else if (expectedNodes == null) {
+				regressions.add(key + ": no baseline, run with -Dsudoku.updateBaseline=true");
+			} else if (nodes > expectedNodes * (1 + NODE_TOLERANCE)) {
+				regressions.add(key + ": " + nodes + " nodes, baseline " + expectedNodes);
+			}
+		}
+
+		if (update) {
+			saveBaseline(baseline);
+		}
+		assertTrue(String.join(System.lineSeparator(), regressions), regressions.isEmpty());
+	}
+
+	/**
+	 * Check that a result has the expected status and, if it is solved, is a
+	 * complete, valid grid that keeps all givens.
+	 *
+	 * @param name
+	 * @param puzzle
+	 * @param expected
+	 *            SOLVED or UNSOLVABLE
+	 * @param result
+	 */
+	private static void checkResult(final @NonNull String name, final @NonNull PackedSudoku puzzle,
+			final @NonNull SudokuStatus expected, final @NonNull SudokuResult result) {
+		assertTrue(name + " timed out", expected != SudokuStatus.TIMEOUT);
+		assertEquals(name, expected, result.getStatus());
+		if (expected != SudokuStatus.SOLVED)
+			return;
+
+		PackedSudoku solution = result.toPackedSudoku();
+		assertNotNull(name, solution);
+		assertTrue(name + " is invalid", SudokuValidator.isValid(solution, true));
+
+		for (int cell = 0; cell < SudokuField.CELLS; cell++) {
+			if (puzzle.getValue(cell) != SudokuField.EMPTY) {
+				assertEquals(name + " cell " + cell, puzzle.getValue(cell), solution.getValue(cell));
+			}
+		}
+	}
+
+	@Test
+	public void testPlan() throws IOException {
+		checkPlan("sudoku_test_plan.txt");
+	}
+
+	@Test
+	public void testPlan100() throws IOException {
+		checkPlan("sudoku_test_plan100.txt");
+	}
+}
@@ -0,0 +1,197 @@
+package sudoku;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import org.eclipse.jdt.annotation.NonNull;
+import org.junit.Test;
+
+/**
+ * Starts servers on a free port of the loopback address and sends requests
+ * to all endpoints with HttpURLConnection.
+ */
+public class SudokuServerTests {
+
+	/**
+	 * Unsolvable game whose search needs more than SudokuServer.MAX_NODES.
+	 */
+	private static final String HARD = "....................4.........65..47........8.....3..1.8.2.9.......4..26..9.8....";
+
+	private static final String PUZZLE = "4.....8.5.3..........7......2.....6.....8.4......1.......6.3.7.5..2.....1.4......";
+
+	/**
+	 * Answer of a request.
+	 */
+	private static final class Response {
+		private final String body;
+		private final int status;
+
+		private Response(final int status, final String body) {
+			this.status = status;
+			this.body = body;
+		}
+	}
+
+	/**
+	 * Send a request and read its answer.
+	 *
+	 * @param server
+	 * @param path
+	 *            path with query
+	 * @param body
+	 *            request body, null for GET
+	 * @return
+	 * @throws IOException
+	 */
+	private static @NonNull Response request(final @NonNull SudokuServer server, final @NonNull String path,
+			final String body) throws IOException {
+		final URL url = new URL("http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":" + server.getPort()
+				+ path);
+		final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+		try {
+			if (body != null) {
+				connection.setRequestMethod("POST");
+				connection.setDoOutput(true);
+				try (OutputStream out = connection.getOutputStream()) {
+					out.write(body.getBytes(StandardCharsets.UTF_8));
+				}
+			}
+
+			int status = connection.getResponseCode();
+			ByteArrayOutputStream answer = new ByteArrayOutputStream();
+			try (InputStream in = (status < 400) ? connection.getInputStream() : connection.getErrorStream()) {
+				byte[] buffer = new byte[1024];
+				int read;
+				while ((read = in.read(buffer)) > 0) {
+					answer.write(buffer, 0, read);
+				}
+			}
+			return new Response(status, new String(answer.toByteArray(), StandardCharsets.UTF_8));
+		} finally {
+			connection.disconnect();
+		}
+	}
+
+	/**
+	 * Check the answer of /solve for PUZZLE.
+	 *
+	 * @param response
+	 */
+	private static void checkSolved(final @NonNull Response response) {
+		assertEquals(response.body, 200, response.status);
+		assertTrue(response.body, response.body.startsWith("{\"status\":\"solved\",\"solution\":\""));
+
+		String line = response.body.substring(response.body.indexOf(":\"", 10) + 2, response.body.length() - 2);
+		PackedSudoku solution = PackedSudoku.of(SudokuGrid.loadFromString(line).getValues());
+		assertTrue(SudokuValidator.isValid(solution, true));
+		for (int cell = 0; cell < SudokuField.CELLS; cell++) {
+			if (PUZZLE.charAt(cell) != '.') {
+				assertEquals(PUZZLE.charAt(cell) - '0', solution.getValue(cell));
+			}
+		}
+	}
+
+	/**
+	 * Wait until the metrics of a server contain a line.
+	 *
+	 * @param server
+	 * @param line
+	 * @throws InterruptedException
+	 */
+	private static void waitForMetric(final @NonNull SudokuServer server, final @NonNull String line)
+			throws InterruptedException {
+		for (int i = 0; i < 500 && !server.getMetrics().contains(line + "\n"); i++) {
+			Thread.sleep(10);
+		}
+		assertTrue(server.getMetrics(), server.getMetrics().contains(line + "\n"));
+	}
+
+	@Test
+	public void testEndpoints() throws Exception {
+		final SudokuServer server = new SudokuServer(0, 2, 16);
+		server.start();
+		try {
+			checkSolved(request(server, "/solve", PUZZLE));
+			checkSolved(request(server, "/solve", SudokuGrid.loadFromString(PUZZLE).toString()));
+			checkSolved(request(server, "/solve", "{\"puzzle\": \"" + PUZZLE + "\"}"));
+
+			String empty = new String(new char[SudokuField.CELLS]).replace('\0', '.');
+			Response count = request(server, "/count?limit=5", empty);
+			assertEquals("{\"solutions\":5}", count.body);
+
+			Response validate = request(server, "/validate?puzzle=" + PUZZLE, null);
+			assertEquals("{\"valid\":true,\"finished\":false}", validate.body);
+
+			Response generate = request(server, "/generate?cells=30", null);
+			assertTrue(generate.body, generate.body.startsWith("{\"puzzle\":\""));
+			PackedSudoku generated = PackedSudoku
+					.of(SudokuGrid.loadFromString(generate.body.substring(11, generate.body.length() - 2)).getValues());
+			assertEquals(30, generated.numCellsFilled());
+			assertTrue(SudokuValidator.isValid(generated, false));
+
+			// malformed puzzles and parameters
+			Response malformed = request(server, "/solve", "12345");
+			assertEquals(400, malformed.status);
+			assertTrue(malformed.body, malformed.body.startsWith("{\"error\":"));
+			assertEquals(400, request(server, "/count?limit=0", PUZZLE).status);
+			assertEquals(400, request(server, "/solve", "").status);
+
+			// contradictory puzzles are screened
+			Response screened = request(server, "/solve", "11" + PUZZLE.substring(2));
+			assertTrue(screened.body, screened.body.startsWith("{\"status\":\"unsolvable\",\"reason\":"));
+
+			// the search of a timed out request stops as well, the answer
+			// comes from the handler or the exhausted budget, whichever is
+			// first
+			Response timeout = request(server, "/solve?timeout=50", HARD);
+			assertEquals("{\"status\":\"timeout\"}", timeout.body);
+			waitForMetric(server, "active_solvers 0");
+
+			Response metrics = request(server, "/metrics", null);
+			assertEquals(200, metrics.status);
+			assertTrue(metrics.body, metrics.body.contains("requests_solve 7\n"));
+			assertTrue(metrics.body, metrics.body.contains("requests_screened 1\n"));
+			assertTrue(metrics.body, metrics.body.contains("unanswered_jobs 0\n"));
+			assertTrue(metrics.body, metrics.body.contains("# TYPE sudoku_solves_total counter\n"));
+		} finally {
+			server.stop();
+		}
+	}
+
+	@Test
+	public void testFullQueue() throws Exception {
+		final SudokuServer server = new SudokuServer(InetAddress.getLoopbackAddress(), 0, 1, 1, 1);
+		server.start();
+
+		final Thread blocker = new Thread(() -> {
+			try {
+				request(server, "/solve?timeout=30000", HARD);
+			} catch (IOException e) {
+				// server stopped
+			}
+		});
+		blocker.start();
+		try {
+			waitForMetric(server, "unanswered_jobs 1");
+
+			Response rejected = request(server, "/validate", PUZZLE);
+			assertEquals(503, rejected.status);
+			assertTrue(server.getMetrics().contains("requests_rejected 1\n"));
+
+			// requests without a job are still answered
+			assertEquals(200, request(server, "/metrics", null).status);
+		} finally {
+			server.stop();
+			blocker.join();
+		}
+	}
+}
@@ -1,10 +1,36 @@
 package sudoku;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.Deflater;
 
 import org.junit.Test;
 
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
 public class SudokuTests {
 	private SudokuField createField() {
 		final SudokuField field = new SudokuField();
@@ -191,4 +217,877 @@ public class SudokuTests {
 
 		assertEquals(fieldAsText1, field2.toString());
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testPackedField() {
+		SudokuField field = createField();
+		PackedSudoku packed = PackedSudoku.of(field);
+
+		assertEquals(field.toString(), packed.toField().toString());
+		assertEquals(PackedSudoku.of(field.getField()), packed);
+		assertEquals(PackedSudoku.of(field.getField()).hashCode(), packed.hashCode());
+		assertEquals(9, packed.numCellsFilled());
+		assertTrue(packed.getValue(8, 8) == 9);
+		assertTrue(packed.getValue(8, 7) == SudokuField.EMPTY);
+		assertEquals(PackedSudoku.EMPTY, PackedSudoku.of(new SudokuField()));
+		assertFalse(PackedSudoku.EMPTY.equals(packed));
+	}
+
+	@Test
+	public void testValidateSectors() {
+		SudokuField field = createField();
+		assertTrue(field.isValid());
+		assertFalse(field.isFinished());
+
+		byte[][] values = field.getField();
+		values[0][2] = 2;
+		assertFalse(SudokuValidator.isValid(values, false));
+		assertFalse(new SudokuField(values).isValid());
+
+		List<PackedSudoku> fields = new ArrayList<PackedSudoku>();
+		fields.add(PackedSudoku.of(field));
+		fields.add(PackedSudoku.of(values));
+		boolean[] result = SudokuValidator.isValid(fields, false);
+		assertTrue(result[0]);
+		assertFalse(result[1]);
+		assertEquals(1, SudokuValidator.numInvalid(fields, false));
+		assertEquals(2, SudokuValidator.numInvalid(fields, true));
+	}
+
+	@Test
+	public void testConflictTracking() {
+		SudokuField field = createField();
+		int options = field.numRemainingOptionsTotal();
+
+		assertTrue(field.setValue((byte) 0, (byte) 4, (byte) 7));
+		assertFalse(field.hasConflicts());
+		assertFalse(field.setValue((byte) 0, (byte) 5, (byte) 7));
+		assertTrue(field.hasConflicts());
+		assertTrue(field.isConflict((byte) 0, (byte) 4));
+		assertTrue(field.isConflict((byte) 0, (byte) 5));
+		assertFalse(field.isConflict((byte) 0, (byte) 0));
+		assertEquals(2, field.numConflicts());
+
+		field.clearValue((byte) 0, (byte) 5);
+		assertFalse(field.hasConflicts());
+		assertFalse(field.isOption((byte) 0, (byte) 5, (byte) 7));
+
+		assertTrue(field.setValue((byte) 0, (byte) 4, SudokuField.EMPTY));
+		assertEquals(9, field.numCellsFilled());
+		assertEquals(options, field.numRemainingOptionsTotal());
+		assertTrue(field.isOption((byte) 0, (byte) 5, (byte) 7));
+		assertEquals(createField().toString(true), field.toString(true));
+	}
+
+	@Test
+	public void testClearValueKeepsRemovedOptions() {
+		SudokuField field = createField();
+		String fieldAsText = field.toString(true);
+
+		field.removeOption((byte) 0, (byte) 5, (byte) 7);
+		field.setValue((byte) 0, (byte) 4, (byte) 7);
+		field.clearValue((byte) 0, (byte) 4);
+		assertFalse(field.isOption((byte) 0, (byte) 5, (byte) 7));
+		assertTrue(field.isOption((byte) 0, (byte) 3, (byte) 7));
+
+		field.addOption((byte) 0, (byte) 5, (byte) 7);
+		assertTrue(field.isOption((byte) 0, (byte) 5, (byte) 7));
+		assertEquals(fieldAsText, field.toString(true));
+	}
+
+	/**
+	 * Create a grid with a valid pattern solution and keep a part of its
+	 * cells.
+	 */
+	private SudokuGrid createGrid(final int sectorSize, final double predefined, final long seed) {
+		final SudokuGrid grid = new SudokuGrid(SudokuGridLayout.of(sectorSize));
+		final int size = grid.getSize();
+		final Random random = new Random(seed);
+
+		for (int row = 0; row < size; row++) {
+			for (int column = 0; column < size; column++) {
+				if (random.nextDouble() < predefined) {
+					int value = (sectorSize * (row % sectorSize) + row / sectorSize + column) % size + 1;
+					grid.setValue(row, column, (byte) value);
+				}
+			}
+		}
+
+		return grid;
+	}
+
+	@Test
+	public void testGridLayout() {
+		SudokuGridLayout layout = SudokuGridLayout.of(3);
+		assertEquals(81, layout.getCells());
+		assertEquals(27, layout.getUnits());
+		assertEquals(81 * 20, layout.getPeers().length);
+		assertTrue(SudokuGridLayout.ofSize(16) == SudokuGridLayout.of(4));
+		assertEquals(625, SudokuGridLayout.of(5).getCells());
+	}
+
+	@SuppressWarnings("null")
+	@Test
+	public void testLoadGridFromString() {
+		SudokuField field = createField();
+		SudokuGrid grid = SudokuGrid.loadFromString(field.toString());
+		assertEquals(field.toString(), grid.toString());
+		assertEquals(grid.toLine(), SudokuGrid.loadFromString(grid.toLine()).toLine());
+		assertEquals(PackedSudoku.of(field).toString(), grid.toLine());
+
+		SudokuGrid grid16 = createGrid(4, 0.5, 1);
+		assertEquals(grid16.toLine(), SudokuGrid.loadFromString(grid16.toString()).toLine());
+	}
+
+	@Test
+	public void testSolveGrid() {
+		for (int sectorSize = SudokuGridLayout.MIN_SECTOR_SIZE; sectorSize <= SudokuGridLayout.MAX_SECTOR_SIZE;
+				sectorSize++) {
+			SudokuGrid grid = createGrid(sectorSize, 0.45, sectorSize);
+			SudokuGrid solution = new SudokuGrid(grid);
+			SudokuGridSolver solver = SudokuGridSolver.create(grid.getLayout());
+
+			assertTrue(solver.solve(solution));
+			assertTrue(solution.isValid(true));
+			for (int cell = 0; cell < grid.getCells(); cell++) {
+				assertTrue(grid.getValue(cell) == SudokuGrid.EMPTY || grid.getValue(cell) == solution.getValue(cell));
+			}
+		}
+
+		SudokuGridSolver solver = SudokuGridSolver.create(SudokuGridLayout.of(3));
+		assertEquals(2, solver.countSolutions(new SudokuGrid(SudokuGridLayout.of(3)), 2));
+
+		SudokuGrid invalid = new SudokuGrid(createField());
+		invalid.setValue(0, 2, (byte) 2);
+		assertFalse(solver.solve(invalid));
+		assertEquals(0, solver.countSolutions(invalid, 2));
+	}
+
+	@Test
+	public void testSolveVariants() {
+		SudokuGridLayout diagonal = SudokuGridLayout.of(3, new DiagonalConstraint());
+		assertEquals(29, diagonal.getUnits());
+		SudokuGrid grid = new SudokuGrid(diagonal);
+		assertTrue(SudokuGridSolver.create(diagonal).solve(grid));
+		assertTrue(grid.isValid(true));
+		for (int i = 1; i < 9; i++) {
+			assertTrue(grid.getValue(i, i) != grid.getValue(0, 0));
+		}
+
+		int[] regions = { 0, 0, 1, 1, 0, 0, 2, 1, 3, 2, 2, 1, 3, 3, 2, 3 };
+		SudokuGridLayout jigsaw = SudokuGridLayout.of(2, new JigsawConstraint(regions));
+		grid = new SudokuGrid(jigsaw);
+		assertTrue(SudokuGridSolver.create(jigsaw).solve(grid));
+		assertTrue(grid.isValid(true));
+
+		// cages of two cells in every row and a single cell in the last column
+		SudokuGrid solution = createGrid(3, 1.0, 0);
+		KillerCageConstraint cages = new KillerCageConstraint(9);
+		for (int row = 0; row < 9; row++) {
+			for (int column = 0; column < 8; column += 2) {
+				int cell = row * 9 + column;
+				cages.addCage(solution.getValue(cell) + solution.getValue(cell + 1), cell, cell + 1);
+			}
+			cages.addCage(solution.getValue(row, 8), row * 9 + 8);
+		}
+
+		SudokuGridLayout killer = SudokuGridLayout.of(3, cages);
+		grid = new SudokuGrid(killer);
+		assertTrue(SudokuGridSolver.create(killer).solve(grid));
+		assertTrue(grid.isValid(true));
+
+		grid.setValue(0, 0, (byte) (grid.getValue(0, 0) % 9 + 1));
+		assertFalse(grid.isValid(false));
+	}
+
+	@Test
+	public void testBatchSolver() throws Exception {
+		List<PackedSudoku> sudokus = new ArrayList<PackedSudoku>();
+		for (int i = 0; i < 20; i++) {
+			sudokus.add(new Sudoku(i % 2 == 0 ? Sudoku.PREDEFINED_VERY_EASY : Sudoku.PREDEFINED_HARD).pack());
+		}
+		sudokus.add(PackedSudoku.EMPTY);
+
+		byte[][] invalid = createField().getField();
+		invalid[0][2] = 2;
+		sudokus.add(PackedSudoku.of(invalid));
+
+		SudokuBatchSolver solver = new SudokuBatchSolver(8);
+		PackedSudoku[] solutions = solver.solve(sudokus);
+
+		for (int i = 0; i < sudokus.size() - 1; i++) {
+			assertTrue(SudokuValidator.isValid(solutions[i], true));
+			for (int cell = 0; cell < SudokuField.CELLS; cell++) {
+				byte value = sudokus.get(i).getValue(cell);
+				assertTrue(value == SudokuField.EMPTY || value == solutions[i].getValue(cell));
+			}
+		}
+		assertTrue(solutions[sudokus.size() - 1] == null);
+		assertEquals(sudokus.size() - 1, solver.numSolvedByPropagation() + solver.numSolvedBySearch());
+		assertEquals(1, solver.numUnsolvable());
+	}
+
+	@Test
+	public void testSolveWithBudget() throws Exception {
+		Sudoku sudoku = new Sudoku(createField().getField());
+		assertEquals(SudokuStatus.TIMEOUT, sudoku.solve(SudokuBudget.ofNodes(10)));
+		assertEquals(10, sudoku.getNodes());
+		assertEquals(9, sudoku.numCellsFilled());
+		assertEquals(SudokuStatus.SOLVED, sudoku.solve(SudokuBudget.ofMillis(60000)));
+		assertEquals(SudokuField.CELLS, sudoku.numCellsFilled());
+
+		byte[][] invalid = createField().getField();
+		invalid[0][2] = 2;
+		assertEquals(SudokuStatus.UNSOLVABLE, new Sudoku(invalid).solve(SudokuBudget.ofNodes(10)));
+
+		SudokuGridSolver solver = SudokuGridSolver.create(SudokuGridLayout.of(3));
+		SudokuGrid grid = new SudokuGrid(SudokuGridLayout.of(3));
+		assertTrue(solver.countSolutions(grid, Integer.MAX_VALUE, SudokuBudget.ofNodes(2000)) < Integer.MAX_VALUE);
+		assertTrue(solver.isTimeout());
+		assertTrue(solver.getNodes() >= 2000);
+
+		// counting all solutions of an empty grid only stops by interruption
+		Thread.currentThread().interrupt();
+		try {
+			solver.countSolutions(grid, Integer.MAX_VALUE, SudokuBudget.ofMillis(60000));
+			assertTrue(solver.isTimeout());
+		} finally {
+			Thread.interrupted();
+		}
+		assertEquals(SudokuStatus.SOLVED, solver.solve(grid, SudokuBudget.ofMillis(60000)));
+
+		// a cancelled budget stops the search at the next check
+		grid = new SudokuGrid(SudokuGridLayout.of(3));
+		assertTrue(solver.countSolutions(grid, Integer.MAX_VALUE, SudokuBudget.UNLIMITED.withCancel(() -> true))
+				< Integer.MAX_VALUE);
+		assertTrue(solver.isTimeout());
+
+		// every game of a batch stops at its own budget
+		PackedSudoku empty = PackedSudoku.of(new byte[SudokuField.CELLS]);
+		SudokuResult[] results = { new SudokuResult(), new SudokuResult() };
+		new SudokuBatchSolver().solve(Arrays.asList(empty, empty),
+				new SudokuBudget[] { SudokuBudget.ofNodes(10), SudokuBudget.UNLIMITED }, results);
+		assertEquals(SudokuStatus.TIMEOUT, results[0].getStatus());
+		assertEquals(SudokuStatus.SOLVED, results[1].getStatus());
+
+		// generation needs at least one node per cell
+		try {
+			new Sudoku(Sudoku.PREDEFINED_MEDIUM, new Random(1), SudokuBudget.ofNodes(10));
+			fail("generation must stop at its budget");
+		} catch (TimeoutException e) {
+			// expected
+		}
+		assertEquals(Sudoku.PREDEFINED_MEDIUM,
+				new Sudoku(Sudoku.PREDEFINED_MEDIUM, new Random(1), SudokuBudget.ofMillis(60000)).numCellsFilled());
+	}
+
+	@Test
+	public void testInputCheck() {
+		assertTrue(SudokuInputCheck.check(createField()).isValid());
+		assertTrue(SudokuInputCheck.check(PackedSudoku.EMPTY).isValid());
+
+		byte[][] duplicate = createField().getField();
+		duplicate[0][2] = 2;
+		SudokuInputCheck check = SudokuInputCheck.check(PackedSudoku.of(duplicate));
+		assertEquals(SudokuInputCheck.Reason.DUPLICATE_GIVEN, check.getReason());
+		assertEquals(2, check.getValue());
+		assertEquals(SudokuStatus.UNSOLVABLE, new Sudoku(duplicate).solve(SudokuBudget.UNLIMITED));
+
+		// 1 - 8 in the first row and 9 in the last column
+		byte[][] noCandidates = new byte[SudokuField.MAX][SudokuField.MAX];
+		for (int column = 0; column < 8; column++) {
+			noCandidates[0][column] = (byte) (column + 1);
+		}
+		noCandidates[8][8] = 9;
+		check = SudokuInputCheck.check(PackedSudoku.of(noCandidates));
+		assertEquals(SudokuInputCheck.Reason.NO_CANDIDATES, check.getReason());
+		assertEquals(8, check.getCell());
+
+		// 1 in the rows 1 and 2 of the second and third sector leaves no place
+		// for 1 in the first row, which starts with 2, 3 and 4
+		byte[][] noPlace = new byte[SudokuField.MAX][SudokuField.MAX];
+		noPlace[0][0] = 2;
+		noPlace[0][1] = 3;
+		noPlace[0][2] = 4;
+		noPlace[1][4] = 1;
+		noPlace[2][7] = 1;
+		check = SudokuInputCheck.check(PackedSudoku.of(noPlace));
+		assertEquals(SudokuInputCheck.Reason.NO_PLACE_FOR_NUMBER, check.getReason());
+		assertEquals(1, check.getValue());
+		assertEquals(0, check.getUnit());
+
+		// the check of a field uses its unit masks, but finds the same problem
+		// as the check of its grid
+		for (byte[][] values : new byte[][][] { createField().getField(), duplicate, noCandidates, noPlace }) {
+			SudokuField field = new SudokuField(values);
+			SudokuInputCheck expected = SudokuInputCheck.check(new SudokuGrid(field));
+			check = SudokuInputCheck.check(field);
+			assertEquals(expected.toString(), check.toString());
+			assertEquals(expected.getCell(), check.getCell());
+		}
+	}
+
+	@Test
+	public void testHintEngine() {
+		SudokuGrid solution = SudokuGrid.loadFromString(
+				"534678912672195348198342567859761423426853791713924856961537284287419635345286179");
+		SudokuGrid grid = SudokuGrid.loadFromString(
+				"53..7....6..195....98....6.8...6...34..8.3..17...2...6.6....28....419..5....8..79");
+		byte[] cells = new byte[SudokuField.CELLS];
+		for (int cell = 0; cell < SudokuField.CELLS; cell++) {
+			cells[cell] = grid.getValue(cell);
+		}
+
+		SudokuHintEngine engine = new SudokuHintEngine();
+		SudokuHint hint = engine.nextHint(PackedSudoku.of(cells));
+		while (hint != null) {
+			for (int i = 0; i < hint.numEliminations(); i++) {
+				assertTrue(solution.getValue(hint.getEliminatedCell(i)) != hint.getEliminatedValue(i));
+			}
+
+			if (hint.isPlacement()) {
+				assertEquals(solution.getValue(hint.getCell()), hint.getValue());
+				cells[hint.getCell()] = hint.getValue();
+			}
+
+			hint = engine.nextHint(PackedSudoku.of(cells));
+		}
+		assertTrue(SudokuValidator.isValid(PackedSudoku.of(cells), true));
+
+		// removing a number leads to a hint for it again
+		cells[40] = SudokuField.EMPTY;
+		hint = engine.nextHint(PackedSudoku.of(cells));
+		assertEquals(40, hint.getCell());
+		assertEquals(solution.getValue(40), hint.getValue());
+	}
+
+	@SuppressWarnings("null")
+	@Test
+	public void testStrategies() throws Exception {
+		PackedSudoku puzzle = new Sudoku(Sudoku.PREDEFINED_HARD).pack();
+
+		for (SudokuHeuristic heuristic : SudokuHeuristic.values()) {
+			Sudoku sudoku = new Sudoku(puzzle);
+			sudoku.setStrategy(heuristic);
+			assertEquals(SudokuStatus.SOLVED, sudoku.solve(SudokuBudget.UNLIMITED));
+			assertTrue(sudoku.getNodes() > 0);
+			assertTrue(SudokuValidator.isValid(sudoku.pack(), true));
+		}
+
+		Sudoku sudoku = new Sudoku(puzzle);
+		assertTrue(sudoku.solveA());
+		assertTrue(SudokuValidator.isValid(sudoku.pack(), true));
+		for (int cell = 0; cell < SudokuField.CELLS; cell++) {
+			assertTrue(puzzle.getValue(cell) == SudokuField.EMPTY
+					|| puzzle.getValue(cell) == sudoku.pack().getValue(cell));
+		}
+	}
+
+	@Test
+	public void testDispatcher() throws Exception {
+		List<PackedSudoku> sudokus = new ArrayList<PackedSudoku>();
+		sudokus.add(new Sudoku(Sudoku.PREDEFINED_EASY).pack());
+		sudokus.add(new Sudoku(Sudoku.PREDEFINED_HARD).pack());
+		sudokus.add(new Sudoku(Sudoku.PREDEFINED_EXTREME).pack());
+
+		for (PackedSudoku puzzle : sudokus) {
+			SudokuFeatures features = SudokuFeatures.of(puzzle);
+			SudokuFeatures fieldFeatures = SudokuFeatures.of(puzzle.toField());
+			assertEquals(puzzle.numCellsFilled(), features.getClues());
+			assertEquals(fieldFeatures.getCandidates(), features.getCandidates());
+			assertEquals(fieldFeatures.getSingles(), features.getSingles());
+			assertTrue(features.getBucket() >= 0 && features.getBucket() < SudokuFeatures.BUCKETS);
+		}
+
+		// calibration solves are not counted
+		long solves = 0;
+		for (int difficulty = 0; difficulty < SudokuMetrics.numDifficulties(); difficulty++) {
+			solves -= SudokuMetrics.GLOBAL.getSolves(difficulty, SudokuStatus.SOLVED);
+		}
+		SudokuDispatcher dispatcher = SudokuDispatcher.calibrate(sudokus, SudokuBudget.UNLIMITED);
+		for (int difficulty = 0; difficulty < SudokuMetrics.numDifficulties(); difficulty++) {
+			solves += SudokuMetrics.GLOBAL.getSolves(difficulty, SudokuStatus.SOLVED);
+		}
+		assertEquals(0, solves);
+		for (PackedSudoku puzzle : sudokus) {
+			for (SudokuEngine engine : new SudokuEngine[] { dispatcher, SudokuEngines.CLASSIC,
+					SudokuEngines.CLASSIC_DEGREE, SudokuEngines.GRID }) {
+				SudokuResult result = engine.solve(puzzle, SudokuBudget.UNLIMITED);
+				assertEquals(SudokuStatus.SOLVED, result.getStatus());
+				assertTrue(SudokuValidator.isValid(result.toPackedSudoku(), true));
+			}
+		}
+
+		File file = File.createTempFile("sudoku", ".txt");
+		try {
+			dispatcher.save(file.getPath());
+			SudokuDispatcher loaded = SudokuDispatcher.load(file.getPath());
+			for (int bucket = 0; bucket < SudokuFeatures.BUCKETS; bucket++) {
+				assertEquals(dispatcher.getEngine(bucket), loaded.getEngine(bucket));
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testSolveResult() throws Exception {
+		List<PackedSudoku> sudokus = new ArrayList<PackedSudoku>();
+		for (int i = 0; i < 4; i++) {
+			sudokus.add(new Sudoku(Sudoku.PREDEFINED_HARD).pack());
+		}
+		sudokus.add(PackedSudoku.EMPTY);
+
+		byte[] buffer = new byte[SudokuField.CELLS];
+		SudokuResult result = new SudokuResult(buffer);
+		for (PackedSudoku puzzle : sudokus) {
+			assertTrue(new Sudoku(puzzle).solve(SudokuBudget.UNLIMITED, result).isSolved());
+			assertTrue(result.getSolution() == buffer);
+			assertTrue(result.getNanos() > 0);
+			assertTrue(SudokuValidator.isValid(result.toPackedSudoku(), true));
+		}
+
+		SudokuResult[] results = new SudokuResult[sudokus.size()];
+		for (int i = 0; i < results.length; i++) {
+			results[i] = new SudokuResult();
+		}
+		SudokuBatchSolver batchSolver = new SudokuBatchSolver(2);
+		for (int round = 0; round < 2; round++) {
+			batchSolver.solve(sudokus, SudokuBudget.UNLIMITED, results);
+			for (int i = 0; i < results.length; i++) {
+				assertEquals(SudokuStatus.SOLVED, results[i].getStatus());
+				assertEquals(batchSolver.solve(sudokus)[i], results[i].toPackedSudoku());
+			}
+		}
+
+		byte[] duplicate = new byte[SudokuField.CELLS];
+		duplicate[0] = 1;
+		duplicate[1] = 1;
+		assertEquals(SudokuStatus.UNSOLVABLE, new Sudoku(PackedSudoku.of(duplicate))
+				.solve(SudokuBudget.UNLIMITED, result).getStatus());
+		assertTrue(result.toPackedSudoku() == null);
+	}
+
+	@Test
+	public void testFormat() throws Exception {
+		List<PackedSudoku> sudokus = new ArrayList<PackedSudoku>();
+		sudokus.add(PackedSudoku.EMPTY);
+		for (int i = 0; i < 20; i++) {
+			sudokus.add(new Sudoku(Sudoku.PREDEFINED_MEDIUM).pack());
+		}
+
+		StringBuilder expected = new StringBuilder();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (SudokuWriter writer = new SudokuWriter(out, SudokuFormat.GRID, 1000)) {
+			for (PackedSudoku sudoku : sudokus) {
+				byte[] cells = sudoku.toBytes(new byte[SudokuField.CELLS]);
+				String grid = sudoku.toField().toString();
+
+				StringBuilder sb = new StringBuilder();
+				SudokuFormat.GRID.render(cells, sb);
+				assertEquals(grid, sb.toString());
+
+				ByteBuffer buffer = ByteBuffer.allocateDirect(SudokuFormat.LINE.getLength());
+				SudokuFormat.LINE.render(cells, buffer);
+				assertEquals(0, buffer.remaining());
+				buffer.flip();
+				byte[] line = new byte[buffer.remaining()];
+				buffer.get(line);
+				assertEquals(sudoku.toString(), new String(line, StandardCharsets.US_ASCII));
+
+				writer.write(sudoku);
+				expected.append(grid).append(System.lineSeparator());
+			}
+			assertEquals(sudokus.size(), writer.numWritten());
+		}
+
+		assertEquals(expected.toString(), new String(out.toByteArray(), StandardCharsets.US_ASCII));
+		assertEquals(sudokus.get(1), PackedSudoku.of(SudokuField.loadFromString(expected.substring(
+				SudokuFormat.GRID.getLength() + System.lineSeparator().length()))));
+	}
+
+	@Test
+	public void testShards() throws Exception {
+		List<PackedSudoku> sudokus = new ArrayList<PackedSudoku>();
+		for (int i = 0; i < 7; i++) {
+			sudokus.add(new Sudoku(Sudoku.PREDEFINED_HARD).pack());
+		}
+		byte[] duplicate = new byte[SudokuField.CELLS];
+		duplicate[0] = 1;
+		duplicate[1] = 1;
+		sudokus.add(PackedSudoku.of(duplicate));
+
+		File input = File.createTempFile("sudoku", ".txt");
+		String output = input.getPath() + ".out";
+		try {
+			// grid and line format mixed
+			try (FileWriter writer = new FileWriter(input)) {
+				for (int i = 0; i < sudokus.size(); i++) {
+					writer.write(((i % 2 == 0) ? sudokus.get(i).toField().toString() : sudokus.get(i).toString())
+							+ System.lineSeparator());
+				}
+			}
+			try (SudokuReader reader = SudokuReader.open(input.getPath())) {
+				for (PackedSudoku sudoku : sudokus) {
+					assertEquals(sudoku, reader.read());
+				}
+				assertTrue(reader.read() == null);
+			}
+
+			SudokuStats stats = new SudokuStats();
+			for (int index = 0; index < 3; index++) {
+				stats.merge(SudokuShards.runShard(input.getPath(), output, index, 3, false));
+			}
+			SudokuStats merged = SudokuShards.merge(output, 3);
+			SudokuStats loaded = SudokuStats.load(SudokuShards.getStatsFile(output));
+			for (SudokuStats s : new SudokuStats[] { merged, loaded }) {
+				assertEquals(stats.toString(), s.toString());
+				assertEquals(sudokus.size(), s.numSudokus());
+				assertEquals(sudokus.size() - 1, s.numSolved());
+				assertEquals(1, s.numUnsolvable());
+				assertEquals(sudokus.size(), s.getCluesCount(sudokus.get(0).numCellsFilled()) + 1);
+			}
+
+			try (SudokuReader reader = SudokuReader.open(output)) {
+				for (PackedSudoku sudoku : sudokus) {
+					PackedSudoku result = reader.read();
+					if (sudoku.equals(sudokus.get(sudokus.size() - 1))) {
+						assertEquals(sudoku, result);
+					} else {
+						assertTrue(SudokuValidator.isValid(result, true));
+					}
+				}
+			}
+
+			// crash of shard 1 after a checkpoint behind game 1 and a partial
+			// line written afterwards
+			String shardFile = SudokuShards.getShardFile(output, 1);
+			byte[] expected = Files.readAllBytes(Paths.get(shardFile));
+			int lineLength = SudokuField.CELLS + System.lineSeparator().length();
+			SudokuStats checkpointStats = new SudokuStats();
+			checkpointStats.add(sudokus.get(1).numCellsFilled(), new SudokuResult());
+			new SudokuCheckpoint(2, lineLength, checkpointStats).save(shardFile);
+			try (FileWriter writer = new FileWriter(shardFile, true)) {
+				writer.write("12345");
+			}
+
+			SudokuStats resumed = SudokuShards.runShard(input.getPath(), output, 1, 3, true);
+			assertEquals(3, resumed.numSudokus());
+			assertTrue(Arrays.equals(expected, Files.readAllBytes(Paths.get(shardFile))));
+			assertFalse(new File(SudokuCheckpoint.getFile(shardFile)).exists());
+		} finally {
+			for (int index = 0; index < 3; index++) {
+				new File(SudokuShards.getShardFile(output, index)).delete();
+				new File(SudokuShards.getStatsFile(SudokuShards.getShardFile(output, index))).delete();
+			}
+			new File(output).delete();
+			new File(SudokuShards.getStatsFile(output)).delete();
+			input.delete();
+		}
+	}
+
+	@Test
+	public void testPipeline() throws Exception {
+		List<PackedSudoku> sudokus = new ArrayList<PackedSudoku>();
+		for (int i = 0; i < 40; i++) {
+			sudokus.add(new Sudoku(Sudoku.PREDEFINED_HARD).pack());
+		}
+		byte[] duplicate = new byte[SudokuField.CELLS];
+		duplicate[0] = 1;
+		duplicate[1] = 1;
+		sudokus.add(17, PackedSudoku.of(duplicate));
+
+		File input = File.createTempFile("sudoku", ".txt");
+		File output = File.createTempFile("sudoku", ".out");
+		try {
+			try (FileWriter writer = new FileWriter(input)) {
+				for (PackedSudoku sudoku : sudokus) {
+					writer.write(sudoku.toString() + System.lineSeparator());
+				}
+			}
+
+			// small chunks, so chunks are finished out of order
+			SudokuPipeline pipeline = new SudokuPipeline(3, 2, 4);
+			SudokuStats stats;
+			try (SudokuReader reader = SudokuReader.open(input.getPath());
+					SudokuWriter writer = new SudokuWriter(new FileOutputStream(output), SudokuFormat.LINE)) {
+				stats = pipeline.run(reader, writer, SudokuBudget.ofNodes(SudokuShards.MAX_NODES));
+			}
+			assertEquals(sudokus.size(), stats.numSudokus());
+			assertEquals(sudokus.size() - 1, stats.numSolved());
+			assertEquals(1, stats.numUnsolvable());
+			assertTrue(pipeline.getMetrics().contains("pipeline_chunks 21"));
+
+			try (SudokuReader reader = SudokuReader.open(output.getPath())) {
+				for (int i = 0; i < sudokus.size(); i++) {
+					PackedSudoku sudoku = sudokus.get(i);
+					PackedSudoku result = reader.read();
+					if (i == 17) {
+						assertEquals(sudoku, result);
+						continue;
+					}
+					assertTrue(SudokuValidator.isValid(result, true));
+					for (int cell = 0; cell < SudokuField.CELLS; cell++) {
+						if (sudoku.getValue(cell) != 0) {
+							assertEquals(sudoku.getValue(cell), result.getValue(cell));
+						}
+					}
+				}
+				assertTrue(reader.read() == null);
+			}
+
+			// invalid input after some games
+			try (FileWriter writer = new FileWriter(input, true)) {
+				writer.write(sudokus.get(0).toString().replace('.', 'x') + System.lineSeparator());
+			}
+			boolean failed = false;
+			try (SudokuReader reader = SudokuReader.open(input.getPath());
+					SudokuWriter writer = new SudokuWriter(new FileOutputStream(output), SudokuFormat.LINE)) {
+				new SudokuPipeline(2, 3, 2).run(reader, writer, SudokuBudget.ofNodes(SudokuShards.MAX_NODES));
+			} catch (IOException e) {
+				failed = true;
+			}
+			assertTrue(failed);
+		} finally {
+			output.delete();
+			input.delete();
+		}
+	}
+
+	@Test
+	public void testCorpus() throws Exception {
+		List<PackedSudoku> sudokus = new ArrayList<PackedSudoku>();
+		for (int i = 0; i < 10; i++) {
+			sudokus.add(new Sudoku(Sudoku.PREDEFINED_HARD).pack());
+		}
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (SudokuCorpusWriter writer = new SudokuCorpusWriter(out, 3, Deflater.BEST_SPEED)) {
+			for (PackedSudoku sudoku : sudokus) {
+				writer.write(sudoku);
+			}
+			assertEquals(sudokus.size(), writer.numWritten());
+		}
+		byte[] corpus = out.toByteArray();
+
+		assertTrue(SudokuCorpusReader.isCorpus(new BufferedInputStream(new ByteArrayInputStream(corpus))));
+		assertFalse(SudokuCorpusReader.isCorpus(
+				new BufferedInputStream(new ByteArrayInputStream(sudokus.get(0).toString().getBytes()))));
+
+		try (SudokuReader reader = new SudokuReader(new SudokuCorpusReader(new ByteArrayInputStream(corpus), 2))) {
+			for (PackedSudoku sudoku : sudokus) {
+				assertEquals(sudoku, reader.read());
+			}
+			assertTrue(reader.read() == null);
+			assertEquals(sudokus.size(), reader.numRead());
+		}
+
+		// without end mark and with a changed byte in the last block
+		byte[] truncated = Arrays.copyOf(corpus, corpus.length - 12);
+		byte[] corrupt = corpus.clone();
+		corrupt[corpus.length - 14] ^= 1;
+		for (byte[] invalid : new byte[][] { truncated, corrupt }) {
+			boolean failed = false;
+			try (SudokuCorpusReader reader = new SudokuCorpusReader(new ByteArrayInputStream(invalid), 2)) {
+				while (reader.read() != null) {
+				}
+			} catch (IOException e) {
+				failed = true;
+			}
+			assertTrue(failed);
+		}
+	}
+
+	@Test
+	public void testEvents() throws Exception {
+		PackedSudoku puzzle = new Sudoku(Sudoku.PREDEFINED_EXTREME).pack();
+		Path file = Files.createTempFile("sudoku", ".jfr");
+		try {
+			try (Recording recording = new Recording()) {
+				recording.enable("sudoku.Solve").withoutThreshold();
+				recording.enable("sudoku.Uniqueness").withoutThreshold();
+				recording.start();
+
+				Sudoku sudoku = new Sudoku(puzzle);
+				assertTrue(sudoku.solve());
+				assertTrue(SudokuGridSolver.create(SudokuGridLayout.of(3))
+						.countSolutions(SudokuGrid.loadFromString(puzzle.toString()), 2) > 0);
+
+				recording.stop();
+				recording.dump(file);
+
+				List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+				assertEquals(2, events.size());
+				RecordedEvent solve = events.get(0).getEventType().getName().equals("sudoku.Solve") ? events.get(0)
+						: events.get(1);
+				assertEquals("MRV", solve.getString("engine"));
+				assertEquals(puzzle.numCellsFilled(), solve.getInt("clues"));
+				assertEquals(sudoku.getNodes(), solve.getLong("nodes"));
+				assertEquals(sudoku.getBacktracks(), solve.getLong("backtracks"));
+				assertEquals("SOLVED", solve.getString("status"));
+			}
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	public void testMetrics() throws Exception {
+		assertEquals(0, SudokuMetrics.getDifficulty(Sudoku.PREDEFINED_EXTREME));
+		assertEquals(2, SudokuMetrics.getDifficulty(Sudoku.PREDEFINED_HARD));
+		assertEquals(SudokuMetrics.numDifficulties() - 1, SudokuMetrics.getDifficulty(SudokuField.CELLS));
+
+		final SudokuMetrics metrics = new SudokuMetrics();
+		Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread(() -> {
+				for (int j = 0; j < 10000; j++) {
+					metrics.recordSolve(Sudoku.PREDEFINED_HARD, SudokuStatus.SOLVED, 3, 1500);
+				}
+			});
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		metrics.recordSolve(Sudoku.PREDEFINED_EASY, SudokuStatus.TIMEOUT, 100, 0);
+		metrics.recordSolve(Sudoku.PREDEFINED_MEDIUM, SudokuStatus.SOLVED, 1, 1001);
+		metrics.recordSolve(Sudoku.PREDEFINED_MEDIUM, SudokuStatus.SOLVED, 1, 1000);
+		metrics.recordCache(true);
+		metrics.recordGeneration(true, 7);
+
+		assertEquals(40000, metrics.getSolves(2, SudokuStatus.SOLVED));
+		String export = metrics.toPrometheus();
+		assertTrue(export.contains("# TYPE sudoku_solves_total counter\n"));
+		assertTrue(export.contains("sudoku_solves_total{difficulty=\"hard\",status=\"solved\"} 40000\n"));
+		assertTrue(export.contains("sudoku_solves_total{difficulty=\"easy\",status=\"timeout\"} 1\n"));
+		// durations are rounded up to whole microseconds and buckets include
+		// their upper bound: 1500 ns are counted in le=2us, 1001 ns in le=2us
+		// and 1000 ns in le=1us, 3 nodes in le=4 and 100 nodes in le=128
+		assertTrue(export.contains("sudoku_solve_duration_seconds_bucket{difficulty=\"hard\",le=\"1.0E-6\"} 0\n"));
+		assertTrue(export.contains("sudoku_solve_duration_seconds_bucket{difficulty=\"hard\",le=\"2.0E-6\"} 40000\n"));
+		assertTrue(export.contains("sudoku_solve_duration_seconds_sum{difficulty=\"hard\"} 0.08\n"));
+		assertTrue(export.contains("sudoku_solve_duration_seconds_bucket{difficulty=\"medium\",le=\"1.0E-6\"} 1\n"));
+		assertTrue(export.contains("sudoku_solve_duration_seconds_bucket{difficulty=\"medium\",le=\"2.0E-6\"} 2\n"));
+		assertTrue(export.contains("sudoku_solve_nodes_bucket{difficulty=\"hard\",le=\"2.0\"} 0\n"));
+		assertTrue(export.contains("sudoku_solve_nodes_bucket{difficulty=\"hard\",le=\"4.0\"} 40000\n"));
+		assertTrue(export.contains("sudoku_solve_nodes_bucket{difficulty=\"easy\",le=\"64.0\"} 0\n"));
+		assertTrue(export.contains("sudoku_solve_nodes_bucket{difficulty=\"easy\",le=\"128.0\"} 1\n"));
+		assertTrue(export.contains("sudoku_solve_nodes_count{difficulty=\"hard\"} 40000\n"));
+		assertTrue(export.contains("sudoku_solver_cache_hits_total 1\n"));
+		assertTrue(export.contains("sudoku_generation_retries_total 7\n"));
+
+		// every game of the batch solver is counted once with its own clues
+		PackedSudoku puzzle = new Sudoku(Sudoku.PREDEFINED_EXTREME).pack();
+		long solves = SudokuMetrics.GLOBAL.getSolves(0, SudokuStatus.SOLVED);
+		new SudokuBatchSolver().solve(Arrays.asList(puzzle, puzzle));
+		assertEquals(solves + 2, SudokuMetrics.GLOBAL.getSolves(0, SudokuStatus.SOLVED));
+	}
+
+	@Test
+	public void testMinimalGenerator() throws Exception {
+		SudokuMinimalGenerator generator = new SudokuMinimalGenerator(2, SudokuMinimalGenerator.DEFAULT_MAX_CLUES);
+		long solves = 0;
+		for (int difficulty = 0; difficulty < SudokuMetrics.numDifficulties(); difficulty++) {
+			solves += SudokuMetrics.GLOBAL.getSolves(difficulty, SudokuStatus.SOLVED);
+		}
+		PackedSudoku sudoku = generator.generate(new Random(5));
+		assertEquals(sudoku, generator.generate(new Random(5)));
+		// the solutions of the attempts are no solves
+		for (int difficulty = 0; difficulty < SudokuMetrics.numDifficulties(); difficulty++) {
+			solves -= SudokuMetrics.GLOBAL.getSolves(difficulty, SudokuStatus.SOLVED);
+		}
+		assertEquals(0, solves);
+		assertTrue(sudoku.numCellsFilled() >= SudokuMinimalGenerator.MIN_CLUES);
+		assertTrue(sudoku.numCellsFilled() <= SudokuMinimalGenerator.DEFAULT_MAX_CLUES);
+
+		// unique, but not without any of the givens
+		SudokuGridSolver solver = SudokuGridSolver.create(SudokuGridLayout.of(3));
+		SudokuGrid grid = new SudokuGrid(SudokuGridLayout.of(3));
+		sudoku.toBytes(grid.getValues());
+		assertEquals(1, solver.countSolutions(grid, 2));
+		for (int cell = 0; cell < SudokuField.CELLS; cell++) {
+			byte value = grid.getValue(cell);
+			if (value != SudokuGrid.EMPTY) {
+				grid.setValue(cell, SudokuGrid.EMPTY);
+				assertEquals(2, solver.countSolutions(grid, 2));
+				grid.setValue(cell, value);
+			}
+		}
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (SudokuWriter writer = new SudokuWriter(out, SudokuFormat.LINE)) {
+			generator.run(5, 1, writer);
+		}
+		try (SudokuReader reader = new SudokuReader(
+				new InputStreamReader(new ByteArrayInputStream(out.toByteArray()), StandardCharsets.US_ASCII))) {
+			PackedSudoku generated;
+			while ((generated = reader.read()) != null) {
+				generated.toBytes(grid.getValues());
+				assertEquals(1, solver.countSolutions(grid, 2));
+			}
+			assertEquals(5, reader.numRead());
+		}
+		assertTrue(generator.numAttempts() >= generator.numGenerated());
+
+		boolean failed = false;
+		try {
+			new SudokuMinimalGenerator(1, SudokuMinimalGenerator.MIN_CLUES - 1);
+		} catch (IllegalArgumentException e) {
+			failed = true;
+		}
+		assertTrue(failed);
+	}
+
+	@Test
+	public void testTopology() throws Exception {
+		SudokuGridLayout layout = SudokuGridLayout.of(3);
+		int[] unitCells = layout.getUnitCells();
+		assertEquals(unitCells.length, SudokuTopology.UNIT_CELLS.length);
+		for (int i = 0; i < unitCells.length; i++) {
+			assertEquals(unitCells[i], SudokuTopology.UNIT_CELLS[i]);
+		}
+
+		int[] peers = layout.getPeers();
+		int[] peerStart = layout.getPeerStart();
+		for (int cell = 0; cell < SudokuField.CELLS; cell++) {
+			assertEquals(SudokuTopology.PEERS_PER_CELL, peerStart[cell + 1] - peerStart[cell]);
+			for (int i = 0; i < SudokuTopology.PEERS_PER_CELL; i++) {
+				assertEquals(peers[peerStart[cell] + i], SudokuTopology.PEERS[cell * SudokuTopology.PEERS_PER_CELL + i]);
+			}
+
+			int row = cell / SudokuField.MAX;
+			int column = cell % SudokuField.MAX;
+			int sector = SudokuField.getSector(row, column) - 1;
+			assertEquals(row, SudokuTopology.ROWS[cell]);
+			assertEquals(column, SudokuTopology.COLUMNS[cell]);
+			assertEquals(sector, SudokuTopology.SECTORS[cell]);
+			assertEquals(row, SudokuTopology.CELL_UNITS[cell * SudokuTopology.UNITS_PER_CELL]);
+			assertEquals(SudokuField.MAX + column, SudokuTopology.CELL_UNITS[cell * SudokuTopology.UNITS_PER_CELL + 1]);
+			assertEquals(2 * SudokuField.MAX + sector,
+					SudokuTopology.CELL_UNITS[cell * SudokuTopology.UNITS_PER_CELL + 2]);
+		}
+
+		// every number placed once removes it from all peers and restores it
+		// when cleared
+		SudokuField field = new SudokuField();
+		assertTrue(field.setValue((byte) 4, (byte) 4, (byte) 5));
+		for (byte row = 0; row < SudokuField.MAX; row++) {
+			for (byte column = 0; column < SudokuField.MAX; column++) {
+				boolean peer = (row == 4 || column == 4 || SudokuField.getSector(row, column) == 5)
+						&& !(row == 4 && column == 4);
+				if (peer) {
+					assertFalse(field.isOption(row, column, (byte) 5));
+				} else if (row != 4 || column != 4) {
+					assertTrue(field.isOption(row, column, (byte) 5));
+				}
+			}
+		}
+		field.clearValue((byte) 4, (byte) 4);
+		for (byte row = 0; row < SudokuField.MAX; row++) {
+			for (byte column = 0; column < SudokuField.MAX; column++) {
+				assertTrue(field.isOption(row, column, (byte) 5));
+			}
+		}
+	}
+}